@@ -0,0 +1,46 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks with the GC profiler enabled, so each
+ * benchmark reports its allocation rate (<code>gc.alloc.rate.norm</code> is
+ * the number of bytes allocated per operation). The arguments are the usual
+ * JMH arguments, for instance <code>ParseBenchmark.shortOption -p optionCount=100</code>.
+ *
+ * @author Robert Monnet
+ */
+public final class BenchmarkMain {
+
+    /**
+     * Construct the launcher, not used.
+     */
+    private BenchmarkMain() {
+
+    }
+
+    /**
+     * run the benchmarks.
+     *
+     * @param args
+     *            the JMH arguments
+     * @throws Exception
+     *             if the arguments are invalid or a benchmark fails
+     */
+    public static void main(String[] args)
+        throws Exception {
+
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+
+}
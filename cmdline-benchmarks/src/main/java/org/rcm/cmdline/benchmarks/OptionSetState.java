@@ -0,0 +1,118 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CompiledCommandLine;
+import org.rcm.cmdline.ToggleOption;
+import org.rcm.cmdline.ValueOption;
+import org.rcm.cmdline.ValuesOption;
+
+/**
+ * This class holds a command line declaring a given number of options, and
+ * the arguments used by the benchmarks. Most of the options are fillers named
+ * <code>--opt&lt;i&gt;</code>, they only populate the lookup tables. The
+ * benchmarks use the options declared last:
+ * <ul>
+ * <li><code>-v</code>, <code>-q</code>, <code>-x</code>, toggle options</li>
+ * <li><code>-o, --output</code>, a value option</li>
+ * <li><code>-l, --list</code>, a values option</li>
+ * </ul>
+ *
+ * @author Robert Monnet
+ */
+@State(Scope.Benchmark)
+public class OptionSetState {
+
+    // number of values in the large values list
+    private static final int LIST_SIZE       = 1000;
+
+    // number of arguments in the large positional tail
+    private static final int POSITIONAL_SIZE = 10000;
+
+    /**
+     * the number of options declared on the command line
+     */
+    @Param({ "10", "100", "1000" })
+    public int               optionCount;
+
+    // fields
+    CommandLine              commandLine;
+    CompiledCommandLine      compiled;
+    CompiledCommandLine      specialized;
+    ToggleOption             verbose;
+    ValueOption              output;
+    ValuesOption             list;
+
+    String[]                 shortOption;
+    String[]                 bundledShortOptions;
+    String[]                 longOptionWithEquals;
+    String[]                 longOptionWithSeparateValue;
+    String[]                 largeValuesList;
+    String[]                 largePositionalTail;
+    String[]                 unknownOption;
+    String[]                 missingValue;
+    String                   line;
+
+    /**
+     * create the command line and the arguments.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        commandLine = new CommandLine("usage: bench [options] <files>");
+        for (int i = 0; i < optionCount - 5; i++) {
+            String longName = "opt" + i;
+            switch (i % 3) {
+            case 0:
+                commandLine.addToggleOption(null, longName, "filler toggle option " + i);
+                break;
+            case 1:
+                commandLine.addValueOption(null, longName, "VALUE", "filler value option " + i);
+                break;
+            default:
+                commandLine.addValuesOption(null, longName, "VALUE", "filler values option " + i);
+                break;
+            }
+        }
+        verbose = commandLine.addToggleOption("v", "verbose", "set the output to verbose");
+        commandLine.addToggleOption("q", "quiet", "only report errors");
+        commandLine.addToggleOption("x", "extended", "use the extended format");
+        output = commandLine.addValueOption("o", "output", "FILE", "write the report to FILE");
+        list = commandLine.addValuesOption("l", "list", "ITEM", "set the items to process");
+        compiled = commandLine.compile();
+        specialized = commandLine.specialize();
+
+        shortOption = new String[] { "-v" };
+        bundledShortOptions = new String[] { "-vqx" };
+        longOptionWithEquals = new String[] { "--output=report.txt" };
+        longOptionWithSeparateValue = new String[] { "--output", "report.txt" };
+
+        StringBuilder items = new StringBuilder("--list=");
+        for (int i = 0; i < LIST_SIZE; i++) {
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("item").append(i);
+        }
+        largeValuesList = new String[] { items.toString() };
+
+        largePositionalTail = new String[POSITIONAL_SIZE + 1];
+        largePositionalTail[0] = "-v";
+        for (int i = 1; i <= POSITIONAL_SIZE; i++) {
+            largePositionalTail[i] = "file" + i + ".txt";
+        }
+
+        unknownOption = new String[] { "--unknown" };
+        missingValue = new String[] { "--output" };
+        line = "-v --output='my report.txt' file1.txt file2.txt";
+    }
+
+}
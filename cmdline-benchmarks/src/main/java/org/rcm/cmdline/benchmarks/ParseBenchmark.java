@@ -0,0 +1,237 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class defines a benchmark for each parse path of the command line. Each
+ * benchmark runs against command lines declaring 10, 100 and 1000 options, see
+ * {@link OptionSetState}. Run through {@link BenchmarkMain} to get the
+ * allocation rate of each path as well.
+ *
+ * @author Robert Monnet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * a single short toggle option, <code>-v</code>.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the positional arguments
+     */
+    @Benchmark
+    public String[] shortOption(OptionSetState state) {
+
+        return state.commandLine.parse(state.shortOption);
+    }
+
+    /**
+     * short toggle options bundled together, <code>-vqx</code>.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the positional arguments
+     */
+    @Benchmark
+    public String[] bundledShortOptions(OptionSetState state) {
+
+        return state.commandLine.parse(state.bundledShortOptions);
+    }
+
+    /**
+     * a long option and its value in the same argument,
+     * <code>--output=report.txt</code>.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option value
+     */
+    @Benchmark
+    public String longOptionWithEquals(OptionSetState state) {
+
+        state.commandLine.parse(state.longOptionWithEquals);
+        return state.output.getValue();
+    }
+
+    /**
+     * a long option followed by its value, <code>--output report.txt</code>.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option value
+     */
+    @Benchmark
+    public String longOptionWithSeparateValue(OptionSetState state) {
+
+        state.commandLine.parse(state.longOptionWithSeparateValue);
+        return state.output.getValue();
+    }
+
+    /**
+     * a values option holding a list of 1000 values, all of them are read.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option values
+     */
+    @Benchmark
+    public String[] largeValuesList(OptionSetState state) {
+
+        state.commandLine.parse(state.largeValuesList);
+        return state.list.getValues();
+    }
+
+    /**
+     * a toggle option followed by 10000 positional arguments, copied to the
+     * returned array.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the positional arguments
+     */
+    @Benchmark
+    public String[] largePositionalTail(OptionSetState state) {
+
+        return state.commandLine.parse(state.largePositionalTail);
+    }
+
+    /**
+     * a toggle option followed by 10000 positional arguments, returned as a
+     * view of the arguments array.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the positional arguments
+     */
+    @Benchmark
+    public List<String> largePositionalTailAsList(OptionSetState state) {
+
+        return state.commandLine.parseAsList(state.largePositionalTail);
+    }
+
+    /**
+     * a long option and its value parsed by the compiled command line.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option value
+     */
+    @Benchmark
+    public String compiledLongOptionWithEquals(OptionSetState state) {
+
+        ParseResult res = state.compiled.parse(state.longOptionWithEquals);
+        return res.getValue(state.output);
+    }
+
+    /**
+     * a long option and its value parsed by the specialized command line, to
+     * compare with {@link #compiledLongOptionWithEquals(OptionSetState)}.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option value
+     */
+    @Benchmark
+    public String specializedLongOptionWithEquals(OptionSetState state) {
+
+        ParseResult res = state.specialized.parse(state.longOptionWithEquals);
+        return res.getValue(state.output);
+    }
+
+    /**
+     * a long option and its value parsed by the specialized command line,
+     * with the value in the next argument.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the option value
+     */
+    @Benchmark
+    public String specializedLongOptionWithSeparateValue(OptionSetState state) {
+
+        ParseResult res = state.specialized.parse(state.longOptionWithSeparateValue);
+        return res.getValue(state.output);
+    }
+
+    /**
+     * a command written as a single line with quotes.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the positional arguments
+     */
+    @Benchmark
+    public List<String> parseLine(OptionSetState state) {
+
+        return state.commandLine.parseLine(state.line);
+    }
+
+    /**
+     * the help text listing all the options.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the help text
+     */
+    @Benchmark
+    public String help(OptionSetState state) {
+
+        return state.commandLine.getHelp();
+    }
+
+    /**
+     * an unknown long option, the parse throws.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the exception thrown
+     */
+    @Benchmark
+    public CommandLineException unknownOption(OptionSetState state) {
+
+        try {
+            state.commandLine.parse(state.unknownOption);
+            throw new IllegalStateException("the parse should have failed");
+        } catch (CommandLineException e) {
+            return e;
+        }
+    }
+
+    /**
+     * a long option missing its value, the parse throws.
+     *
+     * @param state
+     *            the command line and arguments
+     * @return the exception thrown
+     */
+    @Benchmark
+    public CommandLineException missingValue(OptionSetState state) {
+
+        try {
+            state.commandLine.parse(state.missingValue);
+            throw new IllegalStateException("the parse should have failed");
+        } catch (CommandLineException e) {
+            return e;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This event records the conversion of the value of an option.
+ *
+ * @author Robert Monnet
+ */
+@Name("org.rcm.cmdline.Conversion")
+@Label("Option Conversion")
+@Category("Command Line")
+@Description("Conversion of the value of an option")
+class ConversionEvent
+    extends Event {
+
+    // fields
+    @Label("Option")
+    @Description("Long name of the option, or its short name if it has none")
+    String  option;
+
+    @Label("Valid")
+    @Description("False if the value could not be converted")
+    boolean valid;
+
+}
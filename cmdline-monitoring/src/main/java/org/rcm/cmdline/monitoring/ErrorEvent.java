@@ -0,0 +1,35 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This event records the creation of the exception describing an invalid
+ * command line.
+ *
+ * @author Robert Monnet
+ */
+@Name("org.rcm.cmdline.Error")
+@Label("Command Line Error")
+@Category("Command Line")
+@Description("Creation of the exception describing an invalid command line")
+class ErrorEvent
+    extends Event {
+
+    // fields
+    @Label("Error")
+    @Description("Reason why the command line is invalid")
+    String errorCode;
+
+    @Label("Argument")
+    @Description("Index of the argument in error, -1 if not related to an argument")
+    int    errorIndex;
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.monitoring;
+
+import org.rcm.cmdline.CompiledCommandLine;
+import org.rcm.cmdline.Option;
+import org.rcm.cmdline.ParseListener;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class reports the work of a command line as JDK Flight Recorder
+ * events, in the "Command Line" category:
+ * <ul>
+ * <li><code>org.rcm.cmdline.Parse</code> for each parse, with the number of
+ * arguments, the number of options set and the error code if any</li>
+ * <li><code>org.rcm.cmdline.Conversion</code> for each conversion of an
+ * option value, with the option name and whether the value is valid</li>
+ * <li><code>org.rcm.cmdline.Error</code> for each creation of the exception
+ * describing an error, with the error code and the argument index</li>
+ * </ul>
+ * The events are timed by the recorder and follow its settings, such as a
+ * duration threshold. When they are not recorded the listener returns at
+ * once, no event is kept, so it can stay set in production:
+ *
+ * <pre>
+ * cl.setParseListener(new FlightRecorderListener());
+ *
+ * $ java -XX:StartFlightRecording:filename=tool.jfr ...
+ * $ jfr print --categories "Command Line" tool.jfr
+ * </pre>
+ *
+ * The listener holds no state and can be shared by all the command lines.
+ *
+ * @author Robert Monnet
+ */
+public class FlightRecorderListener
+    implements ParseListener {
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#parseStarted(org.rcm.cmdline.CompiledCommandLine, int)
+     */
+    @Override
+    public Object parseStarted(CompiledCommandLine commandLine, int argumentCount) {
+
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.argumentCount = argumentCount;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#parseFinished(java.lang.Object, org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public void parseFinished(Object context, ParseResult result) {
+
+        if (context == null) {
+            return;
+        }
+        ParseEvent event = (ParseEvent) context;
+        event.end();
+        if (event.shouldCommit()) {
+            if (result.isValid()) {
+                event.optionCount = result.getSetCount();
+            } else {
+                event.errorCode = result.getErrorCode().name();
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#conversionStarted(java.lang.Object)
+     */
+    @Override
+    public Object conversionStarted(Object option) {
+
+        ConversionEvent event = new ConversionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#conversionFinished(java.lang.Object, java.lang.Object, boolean)
+     */
+    @Override
+    public void conversionFinished(Object context, Object option, boolean valid) {
+
+        if (context == null) {
+            return;
+        }
+        ConversionEvent event = (ConversionEvent) context;
+        event.end();
+        if (event.shouldCommit()) {
+            Option opt = (Option) option;
+            event.option = opt.getLongName() != null ? opt.getLongName() : opt.getShortName();
+            event.valid = valid;
+            event.commit();
+        }
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#errorStarted(org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public Object errorStarted(ParseResult result) {
+
+        ErrorEvent event = new ErrorEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#errorFinished(java.lang.Object, org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public void errorFinished(Object context, ParseResult result) {
+
+        if (context == null) {
+            return;
+        }
+        ErrorEvent event = (ErrorEvent) context;
+        event.end();
+        if (event.shouldCommit()) {
+            event.errorCode = result.getErrorCode().name();
+            event.errorIndex = result.getErrorIndex();
+            event.commit();
+        }
+    }
+
+}
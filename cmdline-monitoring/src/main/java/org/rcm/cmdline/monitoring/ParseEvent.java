@@ -0,0 +1,38 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This event records the parse of a command line, valid or not.
+ *
+ * @author Robert Monnet
+ */
+@Name("org.rcm.cmdline.Parse")
+@Label("Command Line Parse")
+@Category("Command Line")
+@Description("Parse of the arguments of a command line")
+class ParseEvent
+    extends Event {
+
+    // fields
+    @Label("Arguments")
+    @Description("Number of arguments, including the arguments of argument files")
+    int    argumentCount;
+
+    @Label("Options Set")
+    @Description("Number of options found on the command line")
+    int    optionCount;
+
+    @Label("Error")
+    @Description("Reason why the command line is invalid, null if it is valid")
+    String errorCode;
+
+}
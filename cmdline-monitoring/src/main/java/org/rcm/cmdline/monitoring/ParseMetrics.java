@@ -0,0 +1,308 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.monitoring;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.rcm.cmdline.CompiledCommandLine;
+import org.rcm.cmdline.Option;
+import org.rcm.cmdline.ParseErrorCode;
+import org.rcm.cmdline.ParseListener;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class counts how a command line is used, to find the options that are
+ * never set and the ones causing most errors:
+ * <ul>
+ * <li>per option, the number of valid command lines setting it and the
+ * number of command lines rejected because of it (missing, unexpected or
+ * invalid value)</li>
+ * <li>the number of parses, their total and largest duration, and a
+ * histogram of the durations with power of two buckets</li>
+ * <li>the number of errors per {@link ParseErrorCode}</li>
+ * </ul>
+ * It is set as the listener of the command line:
+ *
+ * <pre>
+ * ParseMetrics metrics = new ParseMetrics();
+ * cl.setParseListener(metrics);
+ * ...
+ * System.out.print(metrics.getSnapshotText());
+ * </pre>
+ *
+ * The counters are {@link LongAdder}s, threads parsing concurrently update
+ * separate cells and never wait for each other. The options declared are
+ * registered the first time a compiled command line is seen, so the options
+ * never set are reported with a zero count. The counters of the options of
+ * each compiled command line are kept by option index, a parse finds them
+ * with one lookup of its command line and then reads them by index. Several
+ * command lines, for instance the commands of a server, can share the
+ * listener without replacing each other's counters. The compiled command
+ * lines seen are kept by the listener, a command line is compiled again only
+ * when options are added to it.
+ * <p>
+ * The snapshot reads the counters without stopping the parses, it is not an
+ * atomic view: a parse running while it is taken can be counted in some
+ * counters only.
+ *
+ * @author Robert Monnet
+ */
+public class ParseMetrics
+    implements ParseListener {
+
+    // the durations of 2^(BUCKET_COUNT - 2) ns (about 0.5 s) and above
+    // share the last bucket
+    private static final int                                 BUCKET_COUNT = 31;
+
+    // fields
+    private final ConcurrentHashMap<Option, Counters>                counters;
+    private final ConcurrentHashMap<CompiledCommandLine, Counters[]> bindings;
+    private final LongAdder                                          parses;
+    private final LongAdder                                          totalNanos;
+    private final LongAccumulator                                    maxNanos;
+    private final LongAdder[]                                        buckets;
+    private final LongAdder[]                                        errors;
+
+    /**
+     * Construct a registry with all counters at zero.
+     */
+    public ParseMetrics() {
+
+        counters = new ConcurrentHashMap<Option, Counters>();
+        bindings = new ConcurrentHashMap<CompiledCommandLine, Counters[]>();
+        parses = new LongAdder();
+        totalNanos = new LongAdder();
+        maxNanos = new LongAccumulator(Math::max, 0);
+        buckets = newAdders(BUCKET_COUNT);
+        errors = newAdders(ParseErrorCode.values().length);
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#parseStarted(org.rcm.cmdline.CompiledCommandLine, int)
+     */
+    @Override
+    public Object parseStarted(CompiledCommandLine commandLine, int argumentCount) {
+
+        Counters[] byIndex = bindings.get(commandLine);
+        if (byIndex == null) {
+            byIndex = bindings.computeIfAbsent(commandLine, this::bind);
+        }
+        return new Parse(byIndex, System.nanoTime());
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#parseFinished(java.lang.Object, org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public void parseFinished(Object context, ParseResult result) {
+
+        Parse parse = (Parse) context;
+        long nanos = Math.max(System.nanoTime() - parse.start, 0);
+        parses.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets[bucket(nanos)].increment();
+
+        if (result.isValid()) {
+            for (int i = 0; i < result.getSetCount(); i++) {
+                parse.counters[result.getSetOption(i).getIndex()].set.increment();
+            }
+        } else {
+            errors[result.getErrorCode().ordinal()].increment();
+            Option option = result.getFailedOption();
+            if (option != null) {
+                parse.counters[option.getIndex()].errors.increment();
+            }
+        }
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#conversionStarted(java.lang.Object)
+     */
+    @Override
+    public Object conversionStarted(Object option) {
+
+        // invalid values are counted from the parse result
+        return null;
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#conversionFinished(java.lang.Object, java.lang.Object, boolean)
+     */
+    @Override
+    public void conversionFinished(Object context, Object option, boolean valid) {
+
+        // nothing to count
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#errorStarted(org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public Object errorStarted(ParseResult result) {
+
+        // errors are counted when the parse finishes, not when reported
+        return null;
+    }
+
+    /**
+     * @see org.rcm.cmdline.ParseListener#errorFinished(java.lang.Object, org.rcm.cmdline.ParseResult)
+     */
+    @Override
+    public void errorFinished(Object context, ParseResult result) {
+
+        // nothing to count
+    }
+
+    /**
+     * provide the current value of the counters, sorted by name:
+     * <ul>
+     * <li><code>parse.count</code>, <code>parse.nanos.total</code> and
+     * <code>parse.nanos.max</code></li>
+     * <li><code>parse.nanos.lt.&lt;n&gt;</code>, the number of parses taking
+     * less than n ns and at least n / 2 ns, and
+     * <code>parse.nanos.ge.&lt;n&gt;</code> for the slowest ones. Only the
+     * buckets holding parses are reported</li>
+     * <li><code>error.&lt;code&gt;</code> for each {@link ParseErrorCode}</li>
+     * <li><code>option.&lt;name&gt;.set</code> and
+     * <code>option.&lt;name&gt;.errors</code> for each option, named by its
+     * long name or else its short name. Options of several command lines
+     * sharing a name are added together</li>
+     * </ul>
+     *
+     * @return a new map of counter names to values
+     */
+    public SortedMap<String, Long> getSnapshot() {
+
+        SortedMap<String, Long> res = new TreeMap<String, Long>();
+        res.put("parse.count", parses.sum());
+        res.put("parse.nanos.total", totalNanos.sum());
+        res.put("parse.nanos.max", maxNanos.get());
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = buckets[i].sum();
+            if (count > 0) {
+                res.put(i < BUCKET_COUNT - 1 ? "parse.nanos.lt." + (1L << i) : "parse.nanos.ge."
+                    + (1L << (i - 1)), count);
+            }
+        }
+        ParseErrorCode[] codes = ParseErrorCode.values();
+        for (int i = 0; i < codes.length; i++) {
+            res.put("error." + codes[i].name(), errors[i].sum());
+        }
+        for (Map.Entry<Option, Counters> e : counters.entrySet()) {
+            Option option = e.getKey();
+            String name = "option."
+                + (option.getLongName() != null ? option.getLongName() : option.getShortName());
+            res.merge(name + ".set", e.getValue().set.sum(), Long::sum);
+            res.merge(name + ".errors", e.getValue().errors.sum(), Long::sum);
+        }
+        return res;
+    }
+
+    /**
+     * provide the current value of the counters as text, one
+     * <code>name value</code> line per counter in the order of
+     * {@link #getSnapshot()}.
+     *
+     * @return the counters
+     */
+    public String getSnapshotText() {
+
+        StringBuilder res = new StringBuilder();
+        for (Map.Entry<String, Long> e : getSnapshot().entrySet()) {
+            res.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return res.toString();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * register the options of a compiled command line.
+     *
+     * @param commandLine
+     *            the compiled command line
+     * @return the counters of its options, by option index
+     */
+    private Counters[] bind(CompiledCommandLine commandLine) {
+
+        Counters[] res = new Counters[commandLine.getOptionCount()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = counters.computeIfAbsent(commandLine.getOption(i), k -> new Counters());
+        }
+        return res;
+    }
+
+    /**
+     * find the histogram bucket of a duration.
+     *
+     * @param nanos
+     *            the duration in ns
+     * @return the index of the smallest power of two larger than the
+     *         duration, capped to the last bucket
+     */
+    private static int bucket(long nanos) {
+
+        return Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKET_COUNT - 1);
+    }
+
+    /**
+     * create an array of counters.
+     *
+     * @param count
+     *            the number of counters
+     * @return the counters
+     */
+    private static LongAdder[] newAdders(int count) {
+
+        LongAdder[] res = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            res[i] = new LongAdder();
+        }
+        return res;
+    }
+
+    /**
+     * This class holds the counters of an option.
+     */
+    private static final class Counters {
+
+        // fields
+        final LongAdder set    = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * This class holds the state of a parse in progress.
+     */
+    private static final class Parse {
+
+        // fields
+        final Counters[] counters;
+        final long       start;
+
+        /**
+         * Construct the state of a parse.
+         *
+         * @param pCounters
+         *            the counters of the options, by option index
+         * @param pStart
+         *            the start time in ns
+         */
+        Parse(Counters[] pCounters, long pStart) {
+
+            counters = pCounters;
+            start = pStart;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package org.rcm.cmdline.monitoring;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * @author Robert
+ */
+public class FlightRecorderListenerTest extends TestCase {
+
+	private CommandLine cl;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		cl = new CommandLine("usage ...");
+		cl.addToggleOption("v", "verbose", "set the output to verbose");
+		cl.addIntOption(null, "count", "N", "set the count");
+		cl.setParseListener(new FlightRecorderListener());
+	}
+
+	/**
+	 * test the events recorded for a valid and an invalid command line
+	 */
+	public void testEvents() throws Exception {
+
+		Path file = Files.createTempFile("cmdline", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(ParseEvent.class);
+			recording.enable(ConversionEvent.class);
+			recording.enable(ErrorEvent.class);
+			recording.start();
+			cl.parse(new String[] { "-v", "--count=3", "file" });
+			try {
+				cl.parse(new String[] { "--count", "x" });
+				fail("invalid value accepted");
+			} catch (CommandLineException e) {
+				// expected
+			}
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertEquals(5, events.size());
+			RecordedEvent parse = find(events, "org.rcm.cmdline.Parse", 0);
+			assertEquals(3, parse.getInt("argumentCount"));
+			assertEquals(2, parse.getInt("optionCount"));
+			assertNull(parse.getString("errorCode"));
+			parse = find(events, "org.rcm.cmdline.Parse", 1);
+			assertEquals("INVALID_VALUE", parse.getString("errorCode"));
+			RecordedEvent conversion = find(events, "org.rcm.cmdline.Conversion", 1);
+			assertEquals("count", conversion.getString("option"));
+			assertFalse(conversion.getBoolean("valid"));
+			RecordedEvent error = find(events, "org.rcm.cmdline.Error", 0);
+			assertEquals("INVALID_VALUE", error.getString("errorCode"));
+			assertEquals(0, error.getInt("errorIndex"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * test that nothing is recorded when the events are not enabled
+	 */
+	public void testDisabled() throws Exception {
+
+		FlightRecorderListener listener = new FlightRecorderListener();
+		assertNull(listener.parseStarted(cl.compile(), 1));
+		ParseResult res = cl.compile().tryParse(new String[] { "-x" });
+		assertNotNull(res.getError());
+	}
+
+	/**
+	 * find the n-th event of a type, in time order.
+	 */
+	private static RecordedEvent find(List<RecordedEvent> events, String name, int n) {
+
+		events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(name) && n-- == 0) {
+				return event;
+			}
+		}
+		fail("missing event " + name);
+		return null;
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ *
+ */
+package org.rcm.cmdline.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CompiledCommandLine;
+import org.rcm.cmdline.IncrementalParser;
+
+/**
+ * @author Robert
+ */
+public class ParseMetricsTest extends TestCase {
+
+	private CommandLine cl;
+	private ParseMetrics metrics;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		cl = new CommandLine("usage ...");
+		cl.addToggleOption("v", "verbose", "set the output to verbose");
+		cl.addIntOption(null, "count", "N", "set the count");
+		cl.addToggleOption("q", null, "set the output to quiet");
+		cl.addValueOption(null, "unused", "X", "never set");
+		metrics = new ParseMetrics();
+		cl.setParseListener(metrics);
+	}
+
+	/**
+	 * test the counters of valid and invalid command lines
+	 */
+	public void testCounters() throws Exception {
+
+		CompiledCommandLine ccl = cl.compile();
+		ccl.parse(new String[] { "-v", "--count=3", "file" });
+		ccl.parse(new String[] { "-vq" });
+		assertFalse(ccl.tryParse(new String[] { "--count", "x" }).isValid());
+		assertFalse(ccl.tryParse(new String[] { "-v", "--count" }).isValid());
+		assertFalse(ccl.tryParse(new String[] { "-x" }).isValid());
+		assertFalse(ccl.tryParseLine("-v \"file").isValid());
+
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(6L, (long) snapshot.get("parse.count"));
+		assertEquals(2L, (long) snapshot.get("option.verbose.set"));
+		assertEquals(1L, (long) snapshot.get("option.count.set"));
+		assertEquals(2L, (long) snapshot.get("option.count.errors"));
+		assertEquals(1L, (long) snapshot.get("option.q.set"));
+		assertEquals(0L, (long) snapshot.get("option.unused.set"));
+		assertEquals(0L, (long) snapshot.get("option.unused.errors"));
+		assertEquals(1L, (long) snapshot.get("error.INVALID_VALUE"));
+		assertEquals(1L, (long) snapshot.get("error.MISSING_VALUE"));
+		assertEquals(1L, (long) snapshot.get("error.UNKNOWN_OPTION"));
+		assertEquals(1L, (long) snapshot.get("error.INVALID_LINE"));
+		assertEquals(0L, (long) snapshot.get("error.AMBIGUOUS_OPTION"));
+
+		long buckets = 0;
+		for (Map.Entry<String, Long> e : snapshot.entrySet()) {
+			if (e.getKey().startsWith("parse.nanos.lt.") || e.getKey().startsWith("parse.nanos.ge.")) {
+				buckets += e.getValue();
+			}
+		}
+		assertEquals(6, buckets);
+		assertTrue(snapshot.get("parse.nanos.max") <= snapshot.get("parse.nanos.total"));
+
+		String text = metrics.getSnapshotText();
+		assertTrue(text.startsWith("error.AMBIGUOUS_OPTION 0\n"));
+		assertTrue(text.contains("\noption.verbose.set 2\n"));
+	}
+
+	/**
+	 * test that the options added after a parse are registered
+	 */
+	public void testNewOption() throws Exception {
+
+		cl.parse(new String[] { "-v" });
+		cl.addToggleOption(null, "late", "added after the first parse");
+		cl.parse(new String[] { "-v", "--late" });
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(2L, (long) snapshot.get("option.verbose.set"));
+		assertEquals(1L, (long) snapshot.get("option.late.set"));
+	}
+
+	/**
+	 * test several command lines sharing the listener
+	 */
+	public void testSeveralCommandLines() throws Exception {
+
+		CommandLine other = new CommandLine("usage ...");
+		other.addToggleOption("f", "force", "overwrite the files");
+		other.addIntOption(null, "count", "N", "set the count");
+		other.setParseListener(metrics);
+		CompiledCommandLine first = cl.compile();
+		CompiledCommandLine second = other.compile();
+		for (int i = 0; i < 3; i++) {
+			first.parse(new String[] { "-v" });
+			second.parse(new String[] { "--force", "--count=1" });
+			assertFalse(second.tryParse(new String[] { "--count", "x" }).isValid());
+		}
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(9L, (long) snapshot.get("parse.count"));
+		assertEquals(3L, (long) snapshot.get("option.verbose.set"));
+		assertEquals(3L, (long) snapshot.get("option.force.set"));
+		// the options sharing a name are added together
+		assertEquals(3L, (long) snapshot.get("option.count.set"));
+		assertEquals(3L, (long) snapshot.get("option.count.errors"));
+	}
+
+	/**
+	 * test that the checks of a line being typed are not counted
+	 */
+	public void testIncremental() throws Exception {
+
+		IncrementalParser parser = cl.compile().newIncrementalParser();
+		parser.push("-v");
+		parser.push("--count");
+		parser.push("x");
+		parser.pop();
+		parser.push("3");
+		cl.complete(new String[] { "-v", "--co" }, 1, 4);
+		cl.complete(new String[] { "--count" }, 1, 0);
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(0L, (long) snapshot.get("parse.count"));
+		assertEquals(0L, (long) snapshot.get("error.MISSING_VALUE"));
+		assertEquals(0L, (long) snapshot.get("error.INVALID_VALUE"));
+
+		// the submitted line is a parse
+		assertTrue(parser.getResult().isValid());
+		snapshot = metrics.getSnapshot();
+		assertEquals(1L, (long) snapshot.get("parse.count"));
+		assertEquals(1L, (long) snapshot.get("option.count.set"));
+	}
+
+	/**
+	 * test that no count is lost when threads parse concurrently
+	 */
+	public void testConcurrent() throws Exception {
+
+		final CompiledCommandLine ccl = cl.compile();
+		final int count = 10000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread() {
+
+				@Override
+				public void run() {
+
+					for (int i = 0; i < count; i++) {
+						ccl.tryParse(new String[] { "-v", "--count", i % 2 == 0 ? "1" : "x" });
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(4L * count, (long) snapshot.get("parse.count"));
+		assertEquals(2L * count, (long) snapshot.get("option.count.set"));
+		assertEquals(2L * count, (long) snapshot.get("option.count.errors"));
+		assertEquals(2L * count, (long) snapshot.get("option.verbose.set"));
+		assertEquals(2L * count, (long) snapshot.get("error.INVALID_VALUE"));
+	}
+
+}
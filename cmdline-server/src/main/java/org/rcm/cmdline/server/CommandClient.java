@@ -0,0 +1,164 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * This class sends a command to a {@link CommandServer} and copies its output
+ * to the given streams. The protocol is described in {@link Protocol}, it is
+ * small enough to be implemented by a native client or a script when the
+ * start up time of a JVM client matters; this class is the reference
+ * implementation, used by tests and by other JVM processes.
+ * <p>
+ * From a shell: <code>java org.rcm.cmdline.server.CommandClient
+ * &lt;socket&gt; &lt;command&gt; [arguments]</code>, the exit code of the
+ * command is the exit code of the client.
+ *
+ * @author Robert Monnet
+ */
+public final class CommandClient {
+
+    // fields
+    private final Path socketPath;
+
+    /**
+     * Construct a client of the server listening on a socket file.
+     *
+     * @param cSocketPath
+     *            the path of the socket file
+     */
+    public CommandClient(Path cSocketPath) {
+
+        socketPath = cSocketPath;
+    }
+
+    /**
+     * run a command with the working directory and environment of this
+     * process.
+     *
+     * @param command
+     *            the command name
+     * @param args
+     *            the arguments of the command
+     * @param out
+     *            the stream receiving the standard output of the command
+     * @param err
+     *            the stream receiving the standard error of the command
+     * @return the exit code of the command
+     * @throws IOException
+     *             if the server cannot be reached or closes the connection
+     *             before the end of the command
+     */
+    public int run(String command, String[] args, OutputStream out, OutputStream err)
+        throws IOException {
+
+        return run(command, args, System.getProperty("user.dir"), System.getenv(), out, err);
+    }
+
+    /**
+     * run a command.
+     *
+     * @param command
+     *            the command name
+     * @param args
+     *            the arguments of the command
+     * @param cwd
+     *            the working directory passed to the command
+     * @param env
+     *            the environment passed to the command
+     * @param out
+     *            the stream receiving the standard output of the command
+     * @param err
+     *            the stream receiving the standard error of the command
+     * @return the exit code of the command
+     * @throws IOException
+     *             if the server cannot be reached or closes the connection
+     *             before the end of the command
+     */
+    public int run(String command, String[] args, String cwd, Map<String, String> env,
+        OutputStream out, OutputStream err)
+        throws IOException {
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(channel)));
+            request.writeInt(Protocol.MAGIC);
+            Protocol.writeString(request, command);
+            Protocol.writeString(request, cwd);
+            request.writeInt(env.size());
+            for (Map.Entry<String, String> var : env.entrySet()) {
+                Protocol.writeString(request, var.getKey());
+                Protocol.writeString(request, var.getValue());
+            }
+            request.writeInt(args.length);
+            for (String arg : args) {
+                Protocol.writeString(request, arg);
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel)));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte type = response.readByte();
+                if (type == Protocol.EXIT) {
+                    out.flush();
+                    err.flush();
+                    return response.readInt();
+                }
+                OutputStream target = type == Protocol.STDOUT ? out : err;
+                int length = response.readInt();
+                while (length > 0) {
+                    int n = response.read(buffer, 0, Math.min(length, buffer.length));
+                    if (n < 0) {
+                        throw new IOException("connection closed in the middle of a frame");
+                    }
+                    target.write(buffer, 0, n);
+                    length -= n;
+                }
+                if (type == Protocol.STDERR) {
+                    err.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * run a command from the shell.
+     *
+     * @param args
+     *            the socket path, the command name and its arguments
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    public static void main(String[] args)
+        throws IOException {
+
+        if (args.length < 2) {
+            System.err.println("usage: CommandClient <socket> <command> [arguments]");
+            System.exit(CommandServer.EXIT_USAGE);
+        }
+        CommandClient client = new CommandClient(Paths.get(args[0]));
+        int code = client.run(args[1], Arrays.copyOfRange(args, 2, args.length), System.out,
+            System.err);
+        System.exit(code);
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+/**
+ * This interface is implemented by the commands run by a
+ * {@link CommandServer}. The server parses the arguments before calling the
+ * handler, the options are read from {@link CommandRequest#getResult()}.
+ * <p>
+ * A handler is shared by all the requests of its command and may be called by
+ * several threads at the same time.
+ *
+ * @author Robert Monnet
+ */
+public interface CommandHandler {
+
+    /**
+     * run the command.
+     *
+     * @param request
+     *            the parsed arguments, the client environment and the output
+     *            streams
+     * @return the exit code returned to the client
+     * @throws Exception
+     *             if the command fails, the client receives the message of the
+     *             exception and the exit code {@link CommandServer#EXIT_FAILURE}
+     */
+    int run(CommandRequest request)
+        throws Exception;
+
+}
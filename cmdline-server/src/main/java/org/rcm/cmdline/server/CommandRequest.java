@@ -0,0 +1,163 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Map;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class holds a command received by a {@link CommandServer} or a
+ * {@link ConsoleServer}: its parsed arguments, the working directory and
+ * environment of the client, and the streams sent back to the client. The
+ * server JVM has its own working directory and environment, handlers must use
+ * the ones of the request.
+ *
+ * @author Robert Monnet
+ */
+public final class CommandRequest {
+
+    // fields
+    private final String              command;
+    private final String[]            args;
+    private final String              line;
+    private final ParseResult         result;
+    private final File                workingDirectory;
+    private final Map<String, String> environment;
+    private final PrintStream         out;
+    private final PrintStream         err;
+
+    /**
+     * Construct a request.
+     *
+     * @param rCommand
+     *            the command name
+     * @param rArgs
+     *            the arguments sent by the client, null for a line
+     * @param rLine
+     *            the line sent by the client, null for arguments
+     * @param rResult
+     *            the arguments parsed by the command line of the command
+     * @param rWorkingDirectory
+     *            the working directory of the client
+     * @param rEnvironment
+     *            the environment of the client
+     * @param rOut
+     *            the standard output of the client
+     * @param rErr
+     *            the standard error of the client
+     */
+    CommandRequest(String rCommand, String[] rArgs, String rLine, ParseResult rResult,
+        File rWorkingDirectory, Map<String, String> rEnvironment, PrintStream rOut,
+        PrintStream rErr) {
+
+        command = rCommand;
+        args = rArgs;
+        line = rLine;
+        result = rResult;
+        workingDirectory = rWorkingDirectory;
+        environment = rEnvironment;
+        out = rOut;
+        err = rErr;
+    }
+
+    /**
+     * provide the name of the command.
+     *
+     * @return the command name
+     */
+    public String getCommand() {
+
+        return command;
+    }
+
+    /**
+     * provide the arguments as sent by a {@link CommandClient}.
+     *
+     * @return the arguments, null for a line read by a {@link ConsoleServer}
+     */
+    public String[] getArguments() {
+
+        return args;
+    }
+
+    /**
+     * provide the line read by a {@link ConsoleServer}, including the command
+     * name.
+     *
+     * @return the line, null for the arguments sent by a {@link CommandClient}
+     */
+    public String getLine() {
+
+        return line;
+    }
+
+    /**
+     * provide the options and positional arguments, the parse is valid when
+     * the handler is called.
+     *
+     * @return the parse result
+     */
+    public ParseResult getResult() {
+
+        return result;
+    }
+
+    /**
+     * provide the working directory of the client.
+     *
+     * @return the working directory
+     */
+    public File getWorkingDirectory() {
+
+        return workingDirectory;
+    }
+
+    /**
+     * resolve a path given on the command line against the working directory
+     * of the client.
+     *
+     * @param path
+     *            the path, absolute or relative
+     * @return the file
+     */
+    public File getFile(String path) {
+
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(workingDirectory, path);
+    }
+
+    /**
+     * provide the environment of the client.
+     *
+     * @return the unmodifiable map of environment variables
+     */
+    public Map<String, String> getEnvironment() {
+
+        return environment;
+    }
+
+    /**
+     * provide the standard output of the client.
+     *
+     * @return the stream
+     */
+    public PrintStream getOut() {
+
+        return out;
+    }
+
+    /**
+     * provide the standard error of the client.
+     *
+     * @return the stream
+     */
+    public PrintStream getErr() {
+
+        return err;
+    }
+
+}
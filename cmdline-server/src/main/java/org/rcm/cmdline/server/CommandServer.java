@@ -0,0 +1,291 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class keeps command lines and their handlers resident in a JVM and
+ * runs the commands sent by {@link CommandClient} over a unix domain socket.
+ * A short lived tool then pays for the JVM start up, the class loading and
+ * the compilation of its parse path once, when the server starts, instead of
+ * on every invocation.
+ * <p>
+ * Each command is registered with its {@link CommandLine}, specialized once
+ * with {@link CommandLine#specialize()}, and its {@link CommandHandler}. For
+ * each request the server parses the arguments, calls the handler with the
+ * working directory and environment of the client, and streams what the
+ * handler writes to the standard output and standard error of the client.
+ * Requests are served in parallel, one thread per connection.
+ *
+ * <pre>
+ * CommandServer server = new CommandServer(Paths.get("/tmp/tools.sock"));
+ * server.register("report", cl, new ReportHandler());
+ * server.serve();
+ * </pre>
+ *
+ * @author Robert Monnet
+ */
+public final class CommandServer implements Closeable {
+
+    /**
+     * exit code when the handler throws an exception
+     */
+    public static final int                 EXIT_FAILURE         = 1;
+
+    /**
+     * exit code when the arguments do not match the command line
+     */
+    public static final int                 EXIT_USAGE           = 2;
+
+    /**
+     * exit code when no command is registered with the requested name
+     */
+    public static final int                 EXIT_UNKNOWN_COMMAND = 127;
+
+    // largest number of environment variables or arguments in a request
+    private static final int                MAX_COUNT            = 1 << 20;
+
+    // fields
+    private final Path                      socketPath;
+    private final Map<String, Registration> commands;
+    private final ExecutorService           executor;
+    private ServerSocketChannel             channel;
+    private volatile boolean                closed;
+
+    /**
+     * Construct a server listening on a socket file. The socket is created
+     * by {@link CommandServer#bind()}.
+     *
+     * @param sSocketPath
+     *            the path of the socket file
+     */
+    public CommandServer(Path sSocketPath) {
+
+        socketPath = sSocketPath;
+        commands = new ConcurrentHashMap<String, Registration>();
+        executor = Executors.newCachedThreadPool(new DaemonThreadFactory("cmdline-server-"));
+    }
+
+    /**
+     * register a command. The command line is specialized when the command
+     * is registered, options added to it afterwards are ignored.
+     *
+     * @param name
+     *            the command name sent by the client
+     * @param commandLine
+     *            the options of the command
+     * @param handler
+     *            the handler running the command
+     */
+    public void register(String name, CommandLine commandLine, CommandHandler handler) {
+
+        commands.put(name, new Registration(commandLine, handler));
+    }
+
+    /**
+     * create the socket file and start listening. A socket file left by a
+     * server that was not closed is replaced.
+     *
+     * @throws IOException
+     *             if the socket cannot be created
+     */
+    public synchronized void bind()
+        throws IOException {
+
+        if (channel != null) {
+            return;
+        }
+        Files.deleteIfExists(socketPath);
+        ServerSocketChannel ssc = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            ssc.bind(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            ssc.close();
+            throw e;
+        }
+        channel = ssc;
+    }
+
+    /**
+     * accept and run requests until the server is closed. The socket is
+     * created first if needed.
+     *
+     * @throws IOException
+     *             if the socket cannot be created or fails
+     */
+    public void serve()
+        throws IOException {
+
+        bind();
+        while (!closed) {
+            final SocketChannel client;
+            try {
+                client = channel.accept();
+            } catch (AsynchronousCloseException e) {
+                // closed while waiting for a connection
+                return;
+            }
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    handle(client);
+                }
+            });
+        }
+    }
+
+    /**
+     * create the socket and serve the requests from a background thread.
+     *
+     * @throws IOException
+     *             if the socket cannot be created
+     */
+    public void start()
+        throws IOException {
+
+        bind();
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    serve();
+                } catch (IOException e) {
+                    if (!closed) {
+                        throw new IllegalStateException("command server failed", e);
+                    }
+                }
+            }
+        }, "cmdline-server-accept");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stop accepting requests and delete the socket file. Requests already
+     * accepted run to completion.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close()
+        throws IOException {
+
+        closed = true;
+        executor.shutdown();
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * read a request from a connection, run it and send the output and exit
+     * code back.
+     *
+     * @param client
+     *            the connection
+     */
+    private void handle(SocketChannel client) {
+
+        try (SocketChannel c = client) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(c)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(c)));
+            if (in.readInt() != Protocol.MAGIC) {
+                return;
+            }
+            String name = Protocol.readString(in);
+            File cwd = new File(Protocol.readString(in));
+            int envCount = Protocol.readCount(in, MAX_COUNT);
+            Map<String, String> env = new HashMap<String, String>();
+            for (int i = 0; i < envCount; i++) {
+                env.put(Protocol.readString(in), Protocol.readString(in));
+            }
+            String[] args = new String[Protocol.readCount(in, MAX_COUNT)];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = Protocol.readString(in);
+            }
+
+            PrintStream stdout = new PrintStream(new FrameOutputStream(out, Protocol.STDOUT),
+                false, "UTF-8");
+            PrintStream stderr = new PrintStream(new FrameOutputStream(out, Protocol.STDERR),
+                false, "UTF-8");
+            int code = run(name, args, cwd, Collections.unmodifiableMap(env), stdout, stderr);
+            stdout.flush();
+            stderr.flush();
+            synchronized (out) {
+                out.writeByte(Protocol.EXIT);
+                out.writeInt(code);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away or sent an invalid request, there is
+            // nobody to report to
+        }
+    }
+
+    /**
+     * parse the arguments of a command and run its handler.
+     *
+     * @param name
+     *            the command name
+     * @param args
+     *            the arguments
+     * @param cwd
+     *            the working directory of the client
+     * @param env
+     *            the environment of the client
+     * @param out
+     *            the standard output of the client
+     * @param err
+     *            the standard error of the client
+     * @return the exit code
+     */
+    private int run(String name, String[] args, File cwd, Map<String, String> env,
+        PrintStream out, PrintStream err) {
+
+        Registration command = commands.get(name);
+        if (command == null) {
+            err.println("unknown command '" + name + "'");
+            return EXIT_UNKNOWN_COMMAND;
+        }
+        ParseResult result = command.getCommandLine().tryParse(args);
+        return command.run(new CommandRequest(name, args, null, result, cwd, env, out, err));
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * This class holds the state of a connection to a {@link ConsoleServer}: the
+ * start of a line not complete yet, the lines waiting for their turn and the
+ * output not sent yet. It is only used by the selector thread of the server.
+ * <p>
+ * Buffers are created when needed and released once empty, an idle
+ * connection only costs this object and its selection key.
+ *
+ * @author Robert Monnet
+ */
+final class ConsoleConnection {
+
+    /**
+     * marker queued in place of a line longer than the limit
+     */
+    static final byte[]            TOO_LONG = new byte[0];
+
+    // fields
+    private final SocketChannel    channel;
+    private byte[]                 partial;
+    private int                    partialLength;
+    private boolean                discarding;
+    private ArrayDeque<byte[]>     lines;
+    private ArrayDeque<ByteBuffer> output;
+    private int                    pendingOutput;
+    private boolean                running;
+    private boolean                endOfInput;
+
+    /**
+     * Construct the state of a new connection.
+     *
+     * @param cChannel
+     *            the connection
+     */
+    ConsoleConnection(SocketChannel cChannel) {
+
+        channel = cChannel;
+    }
+
+    /**
+     * provide the connection.
+     *
+     * @return the channel
+     */
+    SocketChannel getChannel() {
+
+        return channel;
+    }
+
+    /**
+     * split the bytes read into lines. Complete lines are queued, the start
+     * of an incomplete line is kept until the rest is read. A line longer
+     * than the limit is dropped and replaced by {@link #TOO_LONG}.
+     *
+     * @param data
+     *            the bytes read
+     * @param maxLineLength
+     *            the largest number of bytes in a line
+     */
+    void append(ByteBuffer data, int maxLineLength) {
+
+        while (data.hasRemaining()) {
+            int start = data.position();
+            int newLine = -1;
+            for (int i = start; i < data.limit(); i++) {
+                if (data.get(i) == '\n') {
+                    newLine = i;
+                    break;
+                }
+            }
+            int end = newLine < 0 ? data.limit() : newLine;
+            int length = end - start;
+
+            if (!discarding) {
+                if (partialLength + length > maxLineLength) {
+                    discarding = true;
+                    partial = null;
+                    partialLength = 0;
+                } else if (newLine >= 0 && partialLength == 0) {
+                    // the whole line is in the buffer, no need to keep it
+                    queueLine(data, start, length);
+                } else if (length > 0) {
+                    if (partial == null || partial.length < partialLength + length) {
+                        int size = Math.max(64, partialLength + length);
+                        size = Math.min(Integer.highestOneBit(size - 1) << 1, maxLineLength);
+                        partial = partial == null ? new byte[size] : Arrays.copyOf(partial, size);
+                    }
+                    data.position(start);
+                    data.get(partial, partialLength, length);
+                    partialLength += length;
+                }
+            }
+
+            if (newLine < 0) {
+                data.position(data.limit());
+            } else {
+                data.position(newLine + 1);
+                if (discarding) {
+                    queue(TOO_LONG);
+                    discarding = false;
+                } else if (partialLength > 0) {
+                    queueLine(ByteBuffer.wrap(partial), 0, partialLength);
+                    partial = null;
+                    partialLength = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * remove the next line to run.
+     *
+     * @return the line or null if none is waiting
+     */
+    byte[] nextLine() {
+
+        if (lines == null) {
+            return null;
+        }
+        byte[] line = lines.poll();
+        if (lines.isEmpty()) {
+            lines = null;
+        }
+        return line;
+    }
+
+    /**
+     * queue the output of a command.
+     *
+     * @param bytes
+     *            the output
+     */
+    void queueOutput(byte[] bytes) {
+
+        if (bytes.length == 0) {
+            return;
+        }
+        if (output == null) {
+            output = new ArrayDeque<ByteBuffer>();
+        }
+        output.add(ByteBuffer.wrap(bytes));
+        pendingOutput += bytes.length;
+    }
+
+    /**
+     * send as much of the queued output as the connection accepts.
+     *
+     * @throws IOException
+     *             if the connection fails
+     */
+    void write()
+        throws IOException {
+
+        while (output != null) {
+            ByteBuffer head = output.peek();
+            pendingOutput -= channel.write(head);
+            if (head.hasRemaining()) {
+                return;
+            }
+            output.poll();
+            if (output.isEmpty()) {
+                output = null;
+            }
+        }
+    }
+
+    /**
+     * specify if output is waiting to be sent.
+     *
+     * @return true if output is queued
+     */
+    boolean hasOutput() {
+
+        return output != null;
+    }
+
+    /**
+     * specify if more input should be read. Reading stops while a command
+     * runs, while lines are waiting and while the client does not read its
+     * output fast enough, so a client cannot make the server buffer more than
+     * one read and the limit of pending output.
+     *
+     * @param maxPendingOutput
+     *            the number of bytes of output above which reading stops
+     * @return true if the connection should be read
+     */
+    boolean canRead(int maxPendingOutput) {
+
+        return !endOfInput && !running && lines == null && pendingOutput < maxPendingOutput;
+    }
+
+    /**
+     * specify if the connection has nothing left to do after the end of its
+     * input.
+     *
+     * @return true if the connection can be closed
+     */
+    boolean isFinished() {
+
+        return endOfInput && !running && lines == null && output == null;
+    }
+
+    /**
+     * specify if a command of the connection is running.
+     *
+     * @return true while a command runs
+     */
+    boolean isRunning() {
+
+        return running;
+    }
+
+    /**
+     * set if a command of the connection is running.
+     *
+     * @param value
+     *            true when a command starts, false when it completes
+     */
+    void setRunning(boolean value) {
+
+        running = value;
+    }
+
+    /**
+     * record that the client closed its side of the connection.
+     */
+    void setEndOfInput() {
+
+        endOfInput = true;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * queue a copy of a line, without its carriage return. Blank lines are
+     * ignored.
+     *
+     * @param data
+     *            the buffer holding the line
+     * @param start
+     *            the index of the first byte of the line
+     * @param length
+     *            the number of bytes of the line
+     */
+    private void queueLine(ByteBuffer data, int start, int length) {
+
+        if (length > 0 && data.get(start + length - 1) == '\r') {
+            length--;
+        }
+        boolean blank = true;
+        for (int i = start; i < start + length && blank; i++) {
+            byte b = data.get(i);
+            blank = b == ' ' || b == '\t';
+        }
+        if (blank) {
+            return;
+        }
+        byte[] line = new byte[length];
+        for (int i = 0; i < length; i++) {
+            line[i] = data.get(start + i);
+        }
+        queue(line);
+    }
+
+    /**
+     * queue a line.
+     *
+     * @param line
+     *            the line
+     */
+    private void queue(byte[] line) {
+
+        if (lines == null) {
+            lines = new ArrayDeque<byte[]>();
+        }
+        lines.add(line);
+    }
+
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.ParseResult;
+
+/**
+ * This class serves an administration console over TCP: clients send
+ * commands as lines of text, such as <code>deploy -v --region=eu-1 "my
+ * app"</code>. The first word of a line selects the registered command, the
+ * rest is split as {@link CommandLine#parseLine(CharSequence)} does and parsed
+ * by the specialized command line of the command, then its
+ * {@link CommandHandler} runs. The output of the command is sent back,
+ * followed by a status line, <code>ok</code> or <code>error &lt;exit
+ * code&gt;</code>. Blank lines are ignored.
+ * <p>
+ * All the connections are handled by a single selector thread, commands run
+ * on a fixed pool of worker threads. The registered commands are immutable
+ * once specialized, requests do not share any lock. Each connection runs its
+ * lines one at a time, in order, and is not read while a command runs or
+ * while its client leaves more than {@link #MAX_PENDING_OUTPUT} bytes of
+ * output unread. A line longer than the limit is rejected without being
+ * buffered. An idle connection holds no buffer, tens of thousands of them
+ * cost a few megabytes.
+ * <p>
+ * The handlers run with the working directory and environment of the server,
+ * standard output and standard error are both sent to the client.
+ *
+ * @author Robert Monnet
+ */
+public final class ConsoleServer implements Closeable {
+
+    /**
+     * default largest number of bytes in a line
+     */
+    public static final int  DEFAULT_MAX_LINE_LENGTH = 4096;
+
+    /**
+     * number of bytes of unread output above which a connection is not read
+     */
+    public static final int  MAX_PENDING_OUTPUT      = 64 * 1024;
+
+    // size of the buffer shared by all the reads
+    private static final int READ_BUFFER_SIZE        = 16 * 1024;
+
+    // fields
+    private final SocketAddress                     address;
+    private final int                               maxLineLength;
+    private final Map<String, Registration>         commands;
+    private final ExecutorService                   workers;
+    private final ConcurrentLinkedQueue<Completion> completions;
+    private final File                              workingDirectory;
+    private ServerSocketChannel                     channel;
+    private Selector                                selector;
+    private boolean                                 serving;
+    private volatile boolean                        closed;
+
+    /**
+     * Construct a server listening on an address, with one worker thread per
+     * processor and lines of at most {@link #DEFAULT_MAX_LINE_LENGTH} bytes.
+     *
+     * @param sAddress
+     *            the address to listen on, port 0 picks a free port
+     */
+    public ConsoleServer(SocketAddress sAddress) {
+
+        this(sAddress, DEFAULT_MAX_LINE_LENGTH, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a server listening on an address.
+     *
+     * @param sAddress
+     *            the address to listen on, port 0 picks a free port
+     * @param sMaxLineLength
+     *            the largest number of bytes in a line
+     * @param threads
+     *            the number of commands running at the same time
+     */
+    public ConsoleServer(SocketAddress sAddress, int sMaxLineLength, int threads) {
+
+        address = sAddress;
+        maxLineLength = sMaxLineLength;
+        commands = new ConcurrentHashMap<String, Registration>();
+        workers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory(
+            "cmdline-console-"));
+        completions = new ConcurrentLinkedQueue<Completion>();
+        workingDirectory = new File(System.getProperty("user.dir"));
+    }
+
+    /**
+     * register a command. The command line is specialized when the command
+     * is registered, options added to it afterwards are ignored.
+     *
+     * @param name
+     *            the first word of the lines running the command
+     * @param commandLine
+     *            the options of the command
+     * @param handler
+     *            the handler running the command
+     */
+    public void register(String name, CommandLine commandLine, CommandHandler handler) {
+
+        commands.put(name, new Registration(commandLine, handler));
+    }
+
+    /**
+     * open the listening socket.
+     *
+     * @throws IOException
+     *             if the socket cannot be opened
+     */
+    public synchronized void bind()
+        throws IOException {
+
+        if (channel != null) {
+            return;
+        }
+        Selector sel = Selector.open();
+        ServerSocketChannel ssc = ServerSocketChannel.open();
+        try {
+            ssc.bind(address);
+            ssc.configureBlocking(false);
+            ssc.register(sel, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            ssc.close();
+            sel.close();
+            throw e;
+        }
+        selector = sel;
+        channel = ssc;
+    }
+
+    /**
+     * provide the address the server listens on, with the port picked if 0
+     * was requested.
+     *
+     * @return the address
+     * @throws IOException
+     *             if the socket cannot be opened
+     */
+    public InetSocketAddress getAddress()
+        throws IOException {
+
+        bind();
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * serve the connections until the server is closed. The socket is opened
+     * first if needed.
+     *
+     * @throws IOException
+     *             if the socket cannot be opened or fails
+     */
+    public void serve()
+        throws IOException {
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            bind();
+            serving = true;
+        }
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        try {
+            while (!closed) {
+                selector.select();
+                Completion completion;
+                while ((completion = completions.poll()) != null) {
+                    complete(completion);
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        process(key, readBuffer);
+                    }
+                }
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * open the socket and serve the connections from a background thread.
+     *
+     * @throws IOException
+     *             if the socket cannot be opened
+     */
+    public void start()
+        throws IOException {
+
+        bind();
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    serve();
+                } catch (IOException e) {
+                    if (!closed) {
+                        throw new IllegalStateException("console server failed", e);
+                    }
+                }
+            }
+        }, "cmdline-console-selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stop serving and close all the connections. Commands already running
+     * complete but their output is not sent.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close()
+        throws IOException {
+
+        closed = true;
+        if (selector == null) {
+            workers.shutdown();
+            return;
+        }
+        if (serving) {
+            selector.wakeup();
+        } else {
+            closeAll();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * accept a new connection.
+     *
+     * @throws IOException
+     *             if the listening socket fails
+     */
+    private void accept()
+        throws IOException {
+
+        SocketChannel client = channel.accept();
+        if (client == null) {
+            return;
+        }
+        client.configureBlocking(false);
+        client.register(selector, SelectionKey.OP_READ, new ConsoleConnection(client));
+    }
+
+    /**
+     * read from and write to a connection ready for it.
+     *
+     * @param key
+     *            the key of the connection
+     * @param readBuffer
+     *            the buffer receiving the bytes read
+     */
+    private void process(SelectionKey key, ByteBuffer readBuffer) {
+
+        ConsoleConnection connection = (ConsoleConnection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                connection.write();
+            }
+            if (key.isReadable()) {
+                readBuffer.clear();
+                if (connection.getChannel().read(readBuffer) < 0) {
+                    connection.setEndOfInput();
+                } else {
+                    readBuffer.flip();
+                    connection.append(readBuffer, maxLineLength);
+                }
+            }
+            update(key, connection);
+        } catch (IOException e) {
+            // the client went away
+            close(key);
+        }
+    }
+
+    /**
+     * start the next command of a connection if it is free, then select the
+     * events to wait for.
+     *
+     * @param key
+     *            the key of the connection
+     * @param connection
+     *            the connection
+     */
+    private void update(SelectionKey key, final ConsoleConnection connection) {
+
+        if (!connection.isRunning()) {
+            final byte[] line = connection.nextLine();
+            if (line != null) {
+                connection.setRunning(true);
+                workers.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        byte[] output;
+                        try {
+                            output = execute(line);
+                        } catch (RuntimeException e) {
+                            // the connection waits for a status line, it
+                            // must get one whatever fails
+                            output = failure(e);
+                        }
+                        completions.add(new Completion(connection, output));
+                        selector.wakeup();
+                    }
+                });
+            }
+        }
+        if (connection.isFinished()) {
+            close(key);
+            return;
+        }
+        int ops = 0;
+        if (connection.hasOutput()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        if (connection.canRead(MAX_PENDING_OUTPUT)) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * queue the output of a command and let the connection continue.
+     *
+     * @param completion
+     *            the completed command
+     */
+    private void complete(Completion completion) {
+
+        ConsoleConnection connection = completion.connection;
+        SelectionKey key = connection.getChannel().keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        connection.setRunning(false);
+        connection.queueOutput(completion.output);
+        update(key, connection);
+    }
+
+    /**
+     * run a line, on a worker thread.
+     *
+     * @param line
+     *            the bytes of the line or {@link ConsoleConnection#TOO_LONG}
+     * @return the output of the command and its status line
+     */
+    private byte[] execute(byte[] line) {
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buf, false, StandardCharsets.UTF_8);
+        int code;
+        if (line == ConsoleConnection.TOO_LONG) {
+            out.println("line longer than " + maxLineLength + " bytes");
+            code = CommandServer.EXIT_USAGE;
+        } else {
+            String text = new String(line, StandardCharsets.UTF_8);
+            int start = 0;
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            String name = text.substring(start, end);
+            Registration command = commands.get(name);
+            if (command == null) {
+                out.println("unknown command '" + name + "'");
+                code = CommandServer.EXIT_UNKNOWN_COMMAND;
+            } else {
+                // the arguments are parsed in place, after the command name
+                ParseResult result = command.getCommandLine().tryParseLine(
+                    CharBuffer.wrap(text, end, text.length()));
+                code = command.run(new CommandRequest(name, null, text, result,
+                    workingDirectory, System.getenv(), out, out));
+            }
+        }
+        out.println(code == 0 ? "ok" : "error " + code);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    /**
+     * create the output of a line that could not be run, on a worker thread.
+     *
+     * @param e
+     *            the exception thrown while running the line
+     * @return the error message and the status line
+     */
+    private static byte[] failure(RuntimeException e) {
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buf, false, StandardCharsets.UTF_8);
+        out.println("internal error: " + e);
+        out.println("error " + CommandServer.EXIT_FAILURE);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    /**
+     * close a connection.
+     *
+     * @param key
+     *            the key of the connection
+     */
+    private void close(SelectionKey key) {
+
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * close all the connections, the listening socket and the selector.
+     *
+     * @throws IOException
+     *             if the listening socket cannot be closed
+     */
+    private synchronized void closeAll()
+        throws IOException {
+
+        workers.shutdown();
+        if (!selector.isOpen()) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.channel() != channel) {
+                close(key);
+            }
+        }
+        channel.close();
+        selector.close();
+    }
+
+    /**
+     * This class holds the output of a command, handed from the worker thread
+     * to the selector thread.
+     */
+    private static final class Completion {
+
+        // fields
+        private final ConsoleConnection connection;
+        private final byte[]            output;
+
+        /**
+         * Construct a completed command.
+         *
+         * @param cConnection
+         *            the connection that sent the line
+         * @param cOutput
+         *            the output of the command
+         */
+        Completion(ConsoleConnection cConnection, byte[] cOutput) {
+
+            connection = cConnection;
+            output = cOutput;
+        }
+
+    }
+
+}
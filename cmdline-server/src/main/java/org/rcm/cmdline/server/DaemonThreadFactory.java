@@ -0,0 +1,44 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the named daemon threads of the servers, so a server
+ * left open does not keep the JVM alive.
+ *
+ * @author Robert Monnet
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+    // fields
+    private final String        prefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Construct a factory.
+     *
+     * @param tPrefix
+     *            the prefix of the thread names, followed by a number
+     */
+    DaemonThreadFactory(String tPrefix) {
+
+        prefix = tPrefix;
+    }
+
+    /**
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(Runnable r) {
+
+        Thread thread = new Thread(r, prefix + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class sends the bytes written by a command to the client, as
+ * {@link Protocol} frames of one type. The bytes are buffered, a frame is
+ * sent when the buffer is full or the stream is flushed. The standard output
+ * and standard error streams of a request share the connection, frames are
+ * written while holding the lock of the connection stream.
+ *
+ * @author Robert Monnet
+ */
+final class FrameOutputStream extends OutputStream {
+
+    // size of the buffer, the largest frame sent
+    private static final int       BUFFER_SIZE = 8192;
+
+    // fields
+    private final DataOutputStream out;
+    private final byte             type;
+    private final byte[]           buffer      = new byte[BUFFER_SIZE];
+    private int                    count;
+
+    /**
+     * Construct a stream sending frames of a given type.
+     *
+     * @param fOut
+     *            the connection stream
+     * @param fType
+     *            the frame type, {@link Protocol#STDOUT} or
+     *            {@link Protocol#STDERR}
+     */
+    FrameOutputStream(DataOutputStream fOut, byte fType) {
+
+        out = fOut;
+        type = fType;
+    }
+
+    /**
+     * @see java.io.OutputStream#write(int)
+     */
+    @Override
+    public void write(int b)
+        throws IOException {
+
+        if (count == buffer.length) {
+            sendFrame();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    @Override
+    public void write(byte[] b, int off, int len)
+        throws IOException {
+
+        while (len > 0) {
+            if (count == buffer.length) {
+                sendFrame();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * @see java.io.OutputStream#flush()
+     */
+    @Override
+    public void flush()
+        throws IOException {
+
+        synchronized (out) {
+            sendFrame();
+            out.flush();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * send the buffered bytes as a frame, if any.
+     *
+     * @throws IOException
+     *             if the frame cannot be written
+     */
+    private void sendFrame()
+        throws IOException {
+
+        if (count == 0) {
+            return;
+        }
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(count);
+            out.write(buffer, 0, count);
+        }
+        count = 0;
+    }
+
+}
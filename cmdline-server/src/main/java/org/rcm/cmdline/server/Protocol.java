@@ -0,0 +1,121 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class defines the messages exchanged between {@link CommandClient} and
+ * {@link CommandServer}. All integers are big endian, strings are written as
+ * their length in bytes followed by their UTF-8 bytes.
+ * <p>
+ * The client sends a single request:
+ * <ul>
+ * <li>the magic number {@link #MAGIC}</li>
+ * <li>the command name</li>
+ * <li>the working directory</li>
+ * <li>the number of environment variables, then the name and value of each</li>
+ * <li>the number of arguments, then each argument</li>
+ * </ul>
+ * The server answers with a sequence of frames, each starting with its type:
+ * {@link #STDOUT} and {@link #STDERR} frames hold a length and the bytes
+ * written to the stream, the last frame is an {@link #EXIT} frame holding the
+ * exit code of the command.
+ *
+ * @author Robert Monnet
+ */
+final class Protocol {
+
+    /**
+     * magic number starting a request, "CMD" and the protocol version
+     */
+    static final int  MAGIC            = 0x434D4401;
+
+    /**
+     * frame holding bytes written to the standard output
+     */
+    static final byte STDOUT           = 1;
+
+    /**
+     * frame holding bytes written to the standard error
+     */
+    static final byte STDERR           = 2;
+
+    /**
+     * last frame, holding the exit code
+     */
+    static final byte EXIT             = 3;
+
+    // longest string accepted, protects the server from a corrupted request
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    /**
+     * Construct the protocol, not used.
+     */
+    private Protocol() {
+
+    }
+
+    /**
+     * write a string.
+     *
+     * @param out
+     *            the stream
+     * @param value
+     *            the string
+     * @throws IOException
+     *             if the string cannot be written
+     */
+    static void writeString(DataOutputStream out, String value)
+        throws IOException {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * read a string.
+     *
+     * @param in
+     *            the stream
+     * @return the string
+     * @throws IOException
+     *             if the string cannot be read or its length is invalid
+     */
+    static String readString(DataInputStream in)
+        throws IOException {
+
+        int length = readCount(in, MAX_STRING_LENGTH);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * read a count or length.
+     *
+     * @param in
+     *            the stream
+     * @param max
+     *            the largest value accepted
+     * @return the count
+     * @throws IOException
+     *             if the count cannot be read or is out of range
+     */
+    static int readCount(DataInputStream in, int max)
+        throws IOException {
+
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("invalid count " + count + " in request");
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.server;
+
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CompiledCommandLine;
+
+/**
+ * This class holds a command registered with a {@link CommandServer} or a
+ * {@link ConsoleServer}: its command line, specialized once, the help text
+ * printed on usage errors and its handler.
+ *
+ * @author Robert Monnet
+ */
+final class Registration {
+
+    // fields
+    private final CompiledCommandLine commandLine;
+    private final String              help;
+    private final CommandHandler      handler;
+
+    /**
+     * Construct a registered command. The command line is specialized now,
+     * options added to it afterwards are ignored.
+     *
+     * @param rCommandLine
+     *            the options of the command
+     * @param rHandler
+     *            the handler
+     */
+    Registration(CommandLine rCommandLine, CommandHandler rHandler) {
+
+        commandLine = rCommandLine.specialize();
+        help = rCommandLine.getHelp();
+        handler = rHandler;
+    }
+
+    /**
+     * provide the specialized command line.
+     *
+     * @return the command line
+     */
+    CompiledCommandLine getCommandLine() {
+
+        return commandLine;
+    }
+
+    /**
+     * run the handler for a parsed request. An invalid parse prints the error
+     * and the help text, an exception thrown by the handler prints its
+     * message.
+     *
+     * @param request
+     *            the request, its parse may be invalid
+     * @return the exit code
+     */
+    int run(CommandRequest request) {
+
+        if (!request.getResult().isValid()) {
+            request.getErr().println(request.getResult().getErrorMessage());
+            request.getErr().print(help);
+            return CommandServer.EXIT_USAGE;
+        }
+        try {
+            return handler.run(request);
+        } catch (Exception e) {
+            request.getErr().println(request.getCommand() + ": " + e.getMessage());
+            return CommandServer.EXIT_FAILURE;
+        }
+    }
+
+}
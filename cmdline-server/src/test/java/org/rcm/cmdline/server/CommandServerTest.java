@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package org.rcm.cmdline.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.ParseResult;
+import org.rcm.cmdline.ToggleOption;
+import org.rcm.cmdline.ValueOption;
+
+/**
+ * @author Robert
+ */
+public class CommandServerTest extends TestCase {
+
+	private Path dir;
+	private CommandServer server;
+	private CommandClient client;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		dir = Files.createTempDirectory("cmdline");
+		Path socket = dir.resolve("server.sock");
+
+		CommandLine cl = new CommandLine("usage: greet [options] <names>");
+		final ToggleOption loud = cl.addToggleOption("l", "loud", "shout the greeting");
+		final ValueOption greeting = cl.addValueOption("g", "greeting", "TEXT",
+				"set the greeting");
+
+		server = new CommandServer(socket);
+		server.register("greet", cl, new CommandHandler() {
+
+			@Override
+			public int run(CommandRequest request) {
+
+				ParseResult res = request.getResult();
+				String text = res.isSet(greeting) ? res.getValue(greeting) : "hello";
+				for (String name : res.getPositionalArguments()) {
+					String line = text + " " + name;
+					request.getOut().println(res.isSet(loud) ? line.toUpperCase() : line);
+				}
+				return res.getPositionalArguments().length == 0 ? 1 : 0;
+			}
+		});
+		server.register("where", new CommandLine("usage: where <file>"), new CommandHandler() {
+
+			@Override
+			public int run(CommandRequest request) throws Exception {
+
+				String file = request.getResult().getPositionalArguments()[0];
+				request.getOut().println(request.getFile(file).getPath());
+				request.getOut().println(request.getEnvironment().get("GREETING"));
+				throw new Exception("failed on purpose");
+			}
+		});
+		server.start();
+		client = new CommandClient(socket);
+	}
+
+	/**
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+
+		server.close();
+		Files.deleteIfExists(dir);
+		super.tearDown();
+	}
+
+	/**
+	 * test a command run by the server
+	 */
+	public void testRun() throws Exception {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int code = client.run("greet", new String[] { "--greeting=hi", "-l", "bob", "alice" },
+				out, err);
+		assertEquals(0, code);
+		String nl = System.getProperty("line.separator");
+		assertEquals("HI BOB" + nl + "HI ALICE" + nl, out.toString("UTF-8"));
+		assertEquals(0, err.size());
+
+		// exit code of the handler
+		out.reset();
+		assertEquals(1, client.run("greet", new String[0], out, err));
+		assertEquals(0, out.size());
+
+		// the server is reused by the following requests
+		for (int i = 0; i < 100; i++) {
+			out.reset();
+			assertEquals(0, client.run("greet", new String[] { "n" + i }, out, err));
+			assertEquals("hello n" + i + nl, out.toString("UTF-8"));
+		}
+	}
+
+	/**
+	 * test the working directory and environment of the client
+	 */
+	public void testClientContext() throws Exception {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		Map<String, String> env = Collections.singletonMap("GREETING", "bonjour");
+		int code = client.run("where", new String[] { "report.txt" }, "/home/user", env, out,
+				err);
+		String nl = System.getProperty("line.separator");
+		assertEquals(CommandServer.EXIT_FAILURE, code);
+		assertEquals(new File("/home/user", "report.txt").getPath() + nl + "bonjour" + nl,
+				out.toString("UTF-8"));
+		assertEquals("where: failed on purpose" + nl, err.toString("UTF-8"));
+	}
+
+	/**
+	 * test the errors reported by the server
+	 */
+	public void testErrors() throws Exception {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		// invalid arguments
+		assertEquals(CommandServer.EXIT_USAGE,
+				client.run("greet", new String[] { "--unknown" }, out, err));
+		assertEquals(0, out.size());
+		assertTrue(err.toString("UTF-8").startsWith("unknown option long name 'unknown'"));
+		assertTrue(err.toString("UTF-8").contains("usage: greet [options] <names>"));
+
+		// unknown command
+		err.reset();
+		assertEquals(CommandServer.EXIT_UNKNOWN_COMMAND,
+				client.run("missing", new String[0], out, err));
+		assertEquals("unknown command 'missing'" + System.getProperty("line.separator"),
+				err.toString("UTF-8"));
+	}
+
+}
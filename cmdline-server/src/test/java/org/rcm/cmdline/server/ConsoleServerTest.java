@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package org.rcm.cmdline.server;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CompiledCommandLine;
+import org.rcm.cmdline.ParseListener;
+import org.rcm.cmdline.ParseResult;
+import org.rcm.cmdline.ToggleOption;
+import org.rcm.cmdline.ValueOption;
+
+/**
+ * @author Robert
+ */
+public class ConsoleServerTest extends TestCase {
+
+	private ConsoleServer server;
+	private InetSocketAddress address;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		CommandLine cl = new CommandLine("usage: greet [options] <names>");
+		final ToggleOption loud = cl.addToggleOption("l", "loud", "shout the greeting");
+		final ValueOption greeting = cl.addValueOption("g", "greeting", "TEXT",
+				"set the greeting");
+
+		server = new ConsoleServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				64, 2);
+		server.register("greet", cl, new CommandHandler() {
+
+			@Override
+			public int run(CommandRequest request) {
+
+				ParseResult res = request.getResult();
+				String text = res.isSet(greeting) ? res.getValue(greeting) : "hello";
+				for (String name : res.getPositionalArguments()) {
+					String line = text + " " + name;
+					request.getOut().println(res.isSet(loud) ? line.toUpperCase() : line);
+				}
+				return res.getPositionalArguments().length == 0 ? 1 : 0;
+			}
+		});
+		server.start();
+		address = server.getAddress();
+	}
+
+	/**
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+
+		server.close();
+		super.tearDown();
+	}
+
+	/**
+	 * test the commands sent on a connection
+	 */
+	public void testCommands() throws Exception {
+
+		Socket socket = new Socket(address.getAddress(), address.getPort());
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), "UTF-8"));
+			OutputStream out = socket.getOutputStream();
+
+			send(out, "greet -l bob\n");
+			assertEquals(Arrays.asList("HELLO BOB", "ok"), response(in));
+
+			send(out, "  greet --greeting='good day' \"ann marie\" joe\r\n");
+			assertEquals(Arrays.asList("good day ann marie", "good day joe", "ok"),
+					response(in));
+
+			// exit code of the handler, blank lines are ignored
+			send(out, "\n \ngreet\n");
+			assertEquals(Arrays.asList("error 1"), response(in));
+
+			// invalid arguments
+			send(out, "greet --unknown\n");
+			List<String> res = response(in);
+			assertEquals("unknown option long name 'unknown'", res.get(0));
+			assertEquals("usage: greet [options] <names>", res.get(1));
+			assertEquals("error 2", res.get(res.size() - 1));
+
+			send(out, "greet 'bob\n");
+			res = response(in);
+			assertEquals("missing closing quote in ' 'bob'", res.get(0));
+
+			// unknown command
+			send(out, "wave bob\n");
+			assertEquals(Arrays.asList("unknown command 'wave'", "error 127"), response(in));
+
+			// a line split over several writes, then a line too long
+			send(out, "greet ");
+			Thread.sleep(20);
+			send(out, "bob\n");
+			assertEquals(Arrays.asList("hello bob", "ok"), response(in));
+			char[] longLine = new char[100];
+			Arrays.fill(longLine, 'x');
+			send(out, "greet " + new String(longLine) + "\ngreet joe\n");
+			assertEquals(Arrays.asList("line longer than 64 bytes", "error 2"), response(in));
+			assertEquals(Arrays.asList("hello joe", "ok"), response(in));
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * test that a command failing outside of its handler still gets a status
+	 */
+	public void testFailure() throws Exception {
+
+		CommandLine cl = new CommandLine("usage: fail");
+		cl.setParseListener(new ParseListener() {
+
+			@Override
+			public Object parseStarted(CompiledCommandLine commandLine, int argumentCount) {
+
+				throw new IllegalStateException("broken parser");
+			}
+
+			@Override
+			public void parseFinished(Object context, ParseResult result) {
+			}
+
+			@Override
+			public Object conversionStarted(Object option) {
+
+				return null;
+			}
+
+			@Override
+			public void conversionFinished(Object context, Object option, boolean valid) {
+			}
+
+			@Override
+			public Object errorStarted(ParseResult result) {
+
+				return null;
+			}
+
+			@Override
+			public void errorFinished(Object context, ParseResult result) {
+			}
+		});
+		server.register("fail", cl, new CommandHandler() {
+
+			@Override
+			public int run(CommandRequest request) {
+
+				return 0;
+			}
+		});
+
+		Socket socket = new Socket(address.getAddress(), address.getPort());
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), "UTF-8"));
+			OutputStream out = socket.getOutputStream();
+			send(out, "fail\ngreet bob\n");
+			assertEquals(Arrays.asList(
+					"internal error: java.lang.IllegalStateException: broken parser", "error 1"),
+					response(in));
+			assertEquals(Arrays.asList("hello bob", "ok"), response(in));
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * test many connections with lines sent before the responses are read
+	 */
+	public void testConnections() throws Exception {
+
+		List<Socket> sockets = new ArrayList<Socket>();
+		try {
+			for (int i = 0; i < 100; i++) {
+				sockets.add(new Socket(address.getAddress(), address.getPort()));
+			}
+			StringBuilder lines = new StringBuilder();
+			for (int j = 0; j < 50; j++) {
+				lines.append("greet n").append(j).append('\n');
+			}
+			for (Socket socket : sockets) {
+				send(socket.getOutputStream(), lines.toString());
+			}
+			for (Socket socket : sockets) {
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), "UTF-8"));
+				for (int j = 0; j < 50; j++) {
+					assertEquals(Arrays.asList("hello n" + j, "ok"), response(in));
+				}
+			}
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	// ---- Helper methods ----
+
+	private static void send(OutputStream out, String text) throws Exception {
+
+		out.write(text.getBytes("UTF-8"));
+		out.flush();
+	}
+
+	private static List<String> response(BufferedReader in) throws Exception {
+
+		List<String> lines = new ArrayList<String>();
+		while (true) {
+			String line = in.readLine();
+			assertNotNull(line);
+			lines.add(line);
+			if (line.equals("ok") || line.startsWith("error ")) {
+				return lines;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class provides the arguments of an array where the arguments starting
+ * with <code>@</code> are replaced by the content of the named file, like the
+ * argument files of javac. A file holds one argument per line or, when it
+ * contains a NUL character, one argument per NUL terminated string as written
+ * by <code>find -print0</code>. Empty arguments are ignored and the files are
+ * read as UTF-8.
+ * <p>
+ * The files are memory mapped and scanned once to count their arguments,
+ * only the position of every {@value #CHECKPOINT_INTERVAL}th argument is
+ * kept. An argument is read from the file when requested, scanning from the
+ * previous argument read or from the nearest position kept, so reading the
+ * arguments in order costs the same as splitting the file, and the heap used
+ * does not depend on the size of the files. A file is limited to 2 GB.
+ *
+ * @author Robert Monnet
+ */
+final class ArgFileArguments
+    extends Arguments {
+
+    // a position is kept for every CHECKPOINT_INTERVAL arguments of a file
+    static final int           CHECKPOINT_INTERVAL = 1024;
+
+    // fields
+    private final String[]     args;
+    private final MappedFile[] files;
+    private final int[]        firstIndex;
+    private final int          size;
+
+    /**
+     * Construct the arguments of an array, mapping its argument files.
+     *
+     * @param aArgs
+     *            the arguments, the array is not copied
+     * @param aFiles
+     *            the argument file of each argument, null for a plain
+     *            argument
+     */
+    ArgFileArguments(String[] aArgs, MappedFile[] aFiles) {
+
+        args = aArgs;
+        files = aFiles;
+        firstIndex = new int[args.length];
+        int count = 0;
+        for (int i = 0; i < args.length; i++) {
+            firstIndex[i] = count;
+            count += files[i] == null ? 1 : files[i].size();
+        }
+        size = count;
+    }
+
+    /**
+     * specify if an argument names an argument file.
+     *
+     * @param arg
+     *            the argument
+     * @return true if the argument is <code>@</code> followed by a path
+     */
+    static boolean isArgFile(String arg) {
+
+        return arg.length() > 1 && arg.charAt(0) == '@';
+    }
+
+    /**
+     * @see Arguments#size()
+     */
+    @Override
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * @see Arguments#text(int)
+     */
+    @Override
+    CharSequence text(int i) {
+
+        return get(i);
+    }
+
+    /**
+     * @see Arguments#start(int)
+     */
+    @Override
+    int start(int i) {
+
+        return 0;
+    }
+
+    /**
+     * @see Arguments#end(int)
+     */
+    @Override
+    int end(int i) {
+
+        return get(i).length();
+    }
+
+    /**
+     * @see Arguments#get(int)
+     */
+    @Override
+    String get(int i) {
+
+        int arg = argumentAt(i);
+        return files[arg] == null ? args[arg] : files[arg].get(i - firstIndex[arg]);
+    }
+
+    /**
+     * @see Arguments#startsWithHyphen(int)
+     */
+    @Override
+    boolean startsWithHyphen(int i) {
+
+        // the parser checks the first positional argument, this avoids
+        // decoding it
+        int arg = argumentAt(i);
+        if (files[arg] == null) {
+            return args[arg].startsWith("-");
+        }
+        return files[arg].startsWithHyphen(i - firstIndex[arg]);
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * find the argument of the array holding an expanded argument.
+     *
+     * @param i
+     *            the index of the expanded argument
+     * @return the index in the array
+     */
+    private int argumentAt(int i) {
+
+        // the last argument starting at or before i, empty files share the
+        // first index of the argument following them
+        int lo = 0;
+        int hi = args.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstIndex[mid] <= i) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * This class holds a memory mapped argument file and reads its arguments.
+     */
+    static final class MappedFile {
+
+        // fields, the buffer is only read with absolute positions so it can
+        // be shared by threads
+        private final ByteBuffer buffer;
+        private final boolean    nulDelimited;
+        private int[]            checkpoints;
+        private int              size;
+        private int              lastIndex;
+        private int              lastPosition;
+
+        /**
+         * Construct an argument file by mapping it and counting its
+         * arguments.
+         *
+         * @param path
+         *            the path of the file
+         * @throws CommandLineException
+         *             if the file cannot be read or is larger than 2 GB
+         */
+        MappedFile(String path)
+            throws CommandLineException {
+
+            try {
+                RandomAccessFile file = new RandomAccessFile(path, "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    if (channel.size() > Integer.MAX_VALUE) {
+                        throw new CommandLineException("argument file '" + path
+                            + "' is larger than 2 GB", false);
+                    }
+                    // the mapping remains valid once the channel is closed
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+                    buffer = mapped;
+                } finally {
+                    file.close();
+                }
+            } catch (IOException e) {
+                throw new CommandLineException("cannot read argument file '" + path + "': "
+                    + e.getMessage(), false);
+            }
+            nulDelimited = containsNul();
+            checkpoints = new int[16];
+            int pos = skipDelimiters(0);
+            while (pos < buffer.limit()) {
+                if (size % CHECKPOINT_INTERVAL == 0) {
+                    addCheckpoint(pos);
+                }
+                size++;
+                pos = skipDelimiters(argumentEnd(pos));
+            }
+            lastIndex = -1;
+        }
+
+        /**
+         * provide the number of arguments of the file.
+         *
+         * @return the number of arguments
+         */
+        int size() {
+
+            return size;
+        }
+
+        /**
+         * read an argument of the file.
+         *
+         * @param i
+         *            the index of the argument in the file
+         * @return the argument
+         */
+        String get(int i) {
+
+            int start = seek(i);
+            byte[] bytes = new byte[argumentEnd(start) - start];
+            for (int k = 0; k < bytes.length; k++) {
+                bytes[k] = buffer.get(start + k);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * specify if an argument of the file starts with an hyphen.
+         *
+         * @param i
+         *            the index of the argument in the file
+         * @return true if the argument starts with an hyphen
+         */
+        boolean startsWithHyphen(int i) {
+
+            return buffer.get(seek(i)) == '-';
+        }
+
+        // ----------------------------------------------------------------------------------
+        // Helper methods
+        // ----------------------------------------------------------------------------------
+
+        /**
+         * find the position of an argument, from the last argument found when
+         * it comes before and in the same interval, else from a checkpoint.
+         *
+         * @param i
+         *            the index of the argument in the file
+         * @return the position of the first byte of the argument
+         */
+        private synchronized int seek(int i) {
+
+            int idx;
+            int pos;
+            if (lastIndex >= 0 && lastIndex <= i
+                && lastIndex / CHECKPOINT_INTERVAL == i / CHECKPOINT_INTERVAL) {
+                idx = lastIndex;
+                pos = lastPosition;
+            } else {
+                idx = i - i % CHECKPOINT_INTERVAL;
+                pos = checkpoints[i / CHECKPOINT_INTERVAL];
+            }
+            while (idx < i) {
+                pos = skipDelimiters(argumentEnd(pos));
+                idx++;
+            }
+            lastIndex = idx;
+            lastPosition = pos;
+            return pos;
+        }
+
+        /**
+         * specify if the file contains a NUL character.
+         *
+         * @return true if the arguments are NUL terminated
+         */
+        private boolean containsNul() {
+
+            int limit = buffer.limit();
+            for (int pos = 0; pos < limit; pos++) {
+                if (buffer.get(pos) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * specify if a byte ends an argument. Carriage returns end the
+         * arguments of a line so files written on Windows are accepted.
+         *
+         * @param b
+         *            the byte
+         * @return true if the byte is a delimiter
+         */
+        private boolean isDelimiter(byte b) {
+
+            return nulDelimited ? b == 0 : b == '\n' || b == '\r';
+        }
+
+        /**
+         * skip the delimiters, and therefore the empty arguments.
+         *
+         * @param pos
+         *            the position of the first byte to check
+         * @return the position of the next argument or the file size
+         */
+        private int skipDelimiters(int pos) {
+
+            int limit = buffer.limit();
+            while (pos < limit && isDelimiter(buffer.get(pos))) {
+                pos++;
+            }
+            return pos;
+        }
+
+        /**
+         * find the end of an argument.
+         *
+         * @param pos
+         *            the position of the first byte of the argument
+         * @return the position of the delimiter following the argument or
+         *         the file size
+         */
+        private int argumentEnd(int pos) {
+
+            int limit = buffer.limit();
+            while (pos < limit && !isDelimiter(buffer.get(pos))) {
+                pos++;
+            }
+            return pos;
+        }
+
+        /**
+         * keep the position of an argument.
+         *
+         * @param pos
+         *            the position of the first byte of the argument
+         */
+        private void addCheckpoint(int pos) {
+
+            int idx = size / CHECKPOINT_INTERVAL;
+            if (idx == checkpoints.length) {
+                int[] newCheckpoints = new int[checkpoints.length * 2];
+                System.arraycopy(checkpoints, 0, newCheckpoints, 0, checkpoints.length);
+                checkpoints = newCheckpoints;
+            }
+            checkpoints[idx] = pos;
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This interface receives the positional arguments read from a stream by
+ * {@link CommandLine#parseStreaming(String[], java.io.InputStream, boolean, int, ArgumentHandler)},
+ * one batch at a time.
+ *
+ * @author Robert Monnet
+ */
+public interface ArgumentHandler {
+
+    /**
+     * process a batch of positional arguments. The list is reused for the
+     * next batch, it must be copied to be kept after the call.
+     *
+     * @param arguments
+     *            the arguments, in the order they were read
+     * @throws IOException
+     *             if the arguments cannot be processed, this stops the parse
+     */
+    void handle(List<String> arguments)
+        throws IOException;
+
+}
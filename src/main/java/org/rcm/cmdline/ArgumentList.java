@@ -0,0 +1,61 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * This class provides a read-only list view over the tail of a sequence of
+ * arguments. The arguments are not copied, changes made to the array are
+ * visible through the list. The String for an argument of a line is only
+ * created when the argument is read.
+ *
+ * @author Robert Monnet
+ */
+final class ArgumentList
+    extends AbstractList<String>
+    implements RandomAccess {
+
+    // fields
+    private final Arguments args;
+    private final int       offset;
+
+    /**
+     * Construct a view over the arguments starting at a given offset.
+     *
+     * @param lArgs
+     *            the arguments
+     * @param lOffset
+     *            the index of the first argument in the view
+     */
+    ArgumentList(Arguments lArgs, int lOffset) {
+
+        args = lArgs;
+        offset = lOffset;
+    }
+
+    /**
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public String get(int index) {
+
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        return args.get(offset + index);
+    }
+
+    /**
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+
+        return args.size() - offset;
+    }
+
+}
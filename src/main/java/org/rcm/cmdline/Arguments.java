@@ -0,0 +1,101 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This class defines the sequence of arguments read by the parser. Each
+ * argument is a range of characters in some text, so arguments can be read
+ * without creating a String for each of them. A String is only created when
+ * {@link Arguments#get(int)} is called.
+ *
+ * @author Robert Monnet
+ */
+abstract class Arguments {
+
+    /**
+     * provide the number of arguments.
+     *
+     * @return the number of arguments
+     */
+    abstract int size();
+
+    /**
+     * provide the characters holding an argument.
+     *
+     * @param i
+     *            the argument index
+     * @return the characters, the argument is between {@link #start(int)} and
+     *         {@link #end(int)}
+     */
+    abstract CharSequence text(int i);
+
+    /**
+     * provide the index of the first character of an argument in
+     * {@link #text(int)}.
+     *
+     * @param i
+     *            the argument index
+     * @return the index of the first character
+     */
+    abstract int start(int i);
+
+    /**
+     * provide the index after the last character of an argument in
+     * {@link #text(int)}.
+     *
+     * @param i
+     *            the argument index
+     * @return the index after the last character
+     */
+    abstract int end(int i);
+
+    /**
+     * provide an argument as a String.
+     *
+     * @param i
+     *            the argument index
+     * @return the argument
+     */
+    abstract String get(int i);
+
+    /**
+     * provide the length of an argument.
+     *
+     * @param i
+     *            the argument index
+     * @return the number of characters of the argument
+     */
+    int length(int i) {
+
+        return end(i) - start(i);
+    }
+
+    /**
+     * provide a character of an argument.
+     *
+     * @param i
+     *            the argument index
+     * @param pos
+     *            the position of the character in the argument
+     * @return the character
+     */
+    char charAt(int i, int pos) {
+
+        return text(i).charAt(start(i) + pos);
+    }
+
+    /**
+     * specify if an argument starts with an hyphen.
+     *
+     * @param i
+     *            the argument index
+     * @return true if the argument starts with an hyphen
+     */
+    boolean startsWithHyphen(int i) {
+
+        return length(i) > 0 && charAt(i, 0) == '-';
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This class provides the arguments held in a String array, typically the
+ * array passed to <code>main</code>.
+ *
+ * @author Robert Monnet
+ */
+final class ArrayArguments
+    extends Arguments {
+
+    // fields
+    private final String[] args;
+
+    /**
+     * Construct the arguments for an array, the array is not copied.
+     *
+     * @param aArgs
+     *            the arguments
+     */
+    ArrayArguments(String[] aArgs) {
+
+        args = aArgs;
+    }
+
+    /**
+     * @see Arguments#size()
+     */
+    @Override
+    int size() {
+
+        return args.length;
+    }
+
+    /**
+     * @see Arguments#text(int)
+     */
+    @Override
+    CharSequence text(int i) {
+
+        return args[i];
+    }
+
+    /**
+     * @see Arguments#start(int)
+     */
+    @Override
+    int start(int i) {
+
+        return 0;
+    }
+
+    /**
+     * @see Arguments#end(int)
+     */
+    @Override
+    int end(int i) {
+
+        return args[i].length();
+    }
+
+    /**
+     * @see Arguments#get(int)
+     */
+    @Override
+    String get(int i) {
+
+        return args[i];
+    }
+
+    /**
+     * @see Arguments#length(int)
+     */
+    @Override
+    int length(int i) {
+
+        return args[i].length();
+    }
+
+    /**
+     * @see Arguments#charAt(int, int)
+     */
+    @Override
+    char charAt(int i, int pos) {
+
+        return args[i].charAt(pos);
+    }
+
+}
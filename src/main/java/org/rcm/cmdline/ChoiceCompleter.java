@@ -0,0 +1,50 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class completes a value from a fixed set of choices, such as the
+ * colors accepted by <code>--color</code>. The choices are sorted once, a
+ * completion finds the choices starting with the prefix by binary search.
+ *
+ * @author Robert Monnet
+ */
+public class ChoiceCompleter
+    implements ValueCompleter {
+
+    // fields
+    private final String[] choices;
+
+    /**
+     * Construct a completer for a set of choices.
+     *
+     * @param cChoices
+     *            the accepted values
+     */
+    public ChoiceCompleter(String... cChoices) {
+
+        choices = cChoices.clone();
+        Arrays.sort(choices);
+    }
+
+    /**
+     * @see org.rcm.cmdline.ValueCompleter#complete(java.lang.String, java.util.List)
+     */
+    @Override
+    public void complete(String prefix, List<String> candidates) {
+
+        int pos = Arrays.binarySearch(choices, prefix);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        while (pos < choices.length && choices[pos].startsWith(prefix)) {
+            candidates.add(choices[pos++]);
+        }
+    }
+
+}
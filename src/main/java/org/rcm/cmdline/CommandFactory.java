@@ -0,0 +1,37 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This interface creates the command line of a sub command registered with a
+ * {@link CommandRegistry}. The registry only calls the factory when the sub
+ * command is used, so the options of the other sub commands are never
+ * created. A factory usually keeps the options it adds, to read them once the
+ * arguments are parsed:
+ *
+ * <pre>
+ * class DeployCommand implements CommandFactory {
+ *     ToggleOption force;
+ *
+ *     public CommandLine createCommandLine() {
+ *         CommandLine cl = new CommandLine("usage: ops deploy [options] &lt;app&gt;");
+ *         force = cl.addToggleOption("f", "force", "replace the running version");
+ *         return cl;
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Robert Monnet
+ */
+public interface CommandFactory {
+
+    /**
+     * create the command line of the sub command, called at most once.
+     *
+     * @return the command line
+     */
+    CommandLine createCommandLine();
+
+}
@@ -4,11 +4,24 @@
  */
 package org.rcm.cmdline;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import org.rcm.cmdline.impl.AbstractOption;
+import org.rcm.cmdline.impl.DoubleOptionImpl;
+import org.rcm.cmdline.impl.DoubleValuesOptionImpl;
+import org.rcm.cmdline.impl.IntOptionImpl;
+import org.rcm.cmdline.impl.IntValuesOptionImpl;
+import org.rcm.cmdline.impl.LongOptionImpl;
+import org.rcm.cmdline.impl.LongValuesOptionImpl;
+import org.rcm.cmdline.impl.PackedLongValuesOptionImpl;
+import org.rcm.cmdline.impl.PackedValuesOptionImpl;
+import org.rcm.cmdline.impl.ParseGeneration;
 import org.rcm.cmdline.impl.ToggleOptionImpl;
 import org.rcm.cmdline.impl.ValueOptionImpl;
 import org.rcm.cmdline.impl.ValuesOptionImpl;
@@ -25,6 +38,8 @@ import org.rcm.cmdline.impl.ValuesOptionImpl;
  * <li>Option are single value options</li>
  * <li>ArrayOption can be associated with a set of options</li>
  * </ul>
+ * Int, long and double options, and their array counterparts, convert their
+ * values once when the command line is parsed and store them unboxed.
  * CommandLine parses the command line arguments, set all the associated options and provides the
  * remaining positional arguments in an array.
  * <p>
@@ -48,19 +63,41 @@ import org.rcm.cmdline.impl.ValuesOptionImpl;
  * <dd><code>colorize --color=black</code></dd>
  * <dd><code>cal --except=monday,friday</code></dd>
  * </dl>
+ * <p>
+ * {@link CommandLine#parse(String[])} stores the results in the options
+ * themselves, so a CommandLine should not be used by several threads at the
+ * same time. Once all the options are added, {@link CommandLine#compile()}
+ * provides an immutable command line that can be shared between threads and
+ * returns the parse results in a {@link ParseResult}.
  * 
  * @author Robert Monnet
  */
 public class CommandLine {
 
+    /**
+     * hidden option asking the program for completion candidates, see
+     * {@link CommandLine#handleCompletion(String[], PrintStream)}
+     */
+    public static final String                  COMPLETE_OPTION = "--__complete";
+
     // OS independent new-line
-    private final static String         NL = System.getProperty("line.separator", "\n");
+    private final static String                 NL              = System.getProperty("line.separator", "\n");
 
     // fields
-    private Map<String, AbstractOption> optionsByShortName;
-    private Map<String, AbstractOption> optionsByLongName;
-    private List<AbstractOption>        optionList;
-    private String                      usage;
+    private Map<String, AbstractOption>         optionsByShortName;
+    private Map<String, AbstractOption>         optionsByLongName;
+    private List<AbstractOption>                optionList;
+    private String                              usage;
+    private ParseGeneration                     generation;
+    private boolean                             allowAbbreviations;
+    private boolean                             expandArgFiles;
+    private ParseListener                       listener;
+    private CompiledCommandLine                 compiled;
+    private CompiledCommandLine                 specialized;
+    private Map<AbstractOption, ValueCompleter> completers;
+    private ValueCompleter                      positionalCompleter;
+    private HelpLayout                          helpLayout;
+    private String                              helpText;
 
     /**
      * Construct a CommandLine.
@@ -72,7 +109,9 @@ public class CommandLine {
 
         optionsByShortName = new HashMap<String, AbstractOption>();
         optionsByLongName = new HashMap<String, AbstractOption>();
-        optionList = new LinkedList<AbstractOption>();
+        optionList = new ArrayList<AbstractOption>();
+        generation = new ParseGeneration();
+        completers = new HashMap<AbstractOption, ValueCompleter>();
         usage = helpUsage;
 
     }
@@ -200,6 +239,376 @@ public class CommandLine {
         return res;
     }
 
+    /**
+     * add an int option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public IntOption addIntOption(String shortName, String longName, String varName, String help)
+        throws IllegalArgumentException {
+
+        IntOptionImpl res = new IntOptionImpl(shortName, longName, varName, help);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an int option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValue
+     *            the default value associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public IntOption addIntOption(String shortName, String longName, String varName,
+        String help, int defValue)
+        throws IllegalArgumentException {
+
+        IntOptionImpl res = new IntOptionImpl(shortName, longName, varName, help, defValue);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an option with a set of int values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public IntValuesOption addIntValuesOption(String shortName, String longName, String varName,
+        String help)
+        throws IllegalArgumentException {
+
+        return addIntValuesOption(shortName, longName, varName, help, null);
+    }
+
+    /**
+     * add an option with a set of int values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if none
+     *            is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public IntValuesOption addIntValuesOption(String shortName, String longName, String varName,
+        String help, int[] defValues)
+        throws IllegalArgumentException {
+
+        IntValuesOptionImpl res =
+            new IntValuesOptionImpl(shortName, longName, varName, help, defValues);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add a long option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public LongOption addLongOption(String shortName, String longName, String varName, String help)
+        throws IllegalArgumentException {
+
+        LongOptionImpl res = new LongOptionImpl(shortName, longName, varName, help);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add a long option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValue
+     *            the default value associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public LongOption addLongOption(String shortName, String longName, String varName,
+        String help, long defValue)
+        throws IllegalArgumentException {
+
+        LongOptionImpl res = new LongOptionImpl(shortName, longName, varName, help, defValue);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an option with a set of long values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public LongValuesOption addLongValuesOption(String shortName, String longName, String varName,
+        String help)
+        throws IllegalArgumentException {
+
+        return addLongValuesOption(shortName, longName, varName, help, null);
+    }
+
+    /**
+     * add an option with a set of long values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if none
+     *            is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public LongValuesOption addLongValuesOption(String shortName, String longName, String varName,
+        String help, long[] defValues)
+        throws IllegalArgumentException {
+
+        LongValuesOptionImpl res =
+            new LongValuesOptionImpl(shortName, longName, varName, help, defValues);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add a double option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleOption addDoubleOption(String shortName, String longName, String varName, String help)
+        throws IllegalArgumentException {
+
+        DoubleOptionImpl res = new DoubleOptionImpl(shortName, longName, varName, help);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add a double option to the command line. The value is converted when the
+     * command line is parsed. Once an option is added, it can be used by its
+     * short name (-) or long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValue
+     *            the default value associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleOption addDoubleOption(String shortName, String longName, String varName,
+        String help, double defValue)
+        throws IllegalArgumentException {
+
+        DoubleOptionImpl res = new DoubleOptionImpl(shortName, longName, varName, help, defValue);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an option with a set of double values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleValuesOption addDoubleValuesOption(String shortName, String longName, String varName,
+        String help)
+        throws IllegalArgumentException {
+
+        return addDoubleValuesOption(shortName, longName, varName, help, null);
+    }
+
+    /**
+     * add an option with a set of double values to the command line. The values
+     * are converted when the command line is parsed. Once an option is added,
+     * it can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if none
+     *            is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleValuesOption addDoubleValuesOption(String shortName, String longName, String varName,
+        String help, double[] defValues)
+        throws IllegalArgumentException {
+
+        DoubleValuesOptionImpl res =
+            new DoubleValuesOptionImpl(shortName, longName, varName, help, defValues);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an option with a set of long values packed outside of the heap, for
+     * lists of millions of values such as identifiers. The values are
+     * converted when the command line is parsed. Once an option is added, it
+     * can be used by its short name (-) or its long name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if none
+     *            is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public PackedLongValuesOption addPackedLongValuesOption(String shortName, String longName,
+        String varName, String help, long[] defValues)
+        throws IllegalArgumentException {
+
+        PackedLongValuesOptionImpl res =
+            new PackedLongValuesOptionImpl(shortName, longName, varName, help, defValues);
+        add(res);
+        return res;
+    }
+
+    /**
+     * add an option with a set of string values encoded outside of the heap,
+     * for lists of millions of values. The values follow the rules of
+     * {@link CommandLine#addValuesOption(String, String, String, String)}.
+     * Once an option is added, it can be used by its short name (-) or its long
+     * name (--) if defined.
+     * 
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if none
+     *            is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public PackedValuesOption addPackedValuesOption(String shortName, String longName,
+        String varName, String help, String[] defValues)
+        throws IllegalArgumentException {
+
+        PackedValuesOptionImpl res =
+            new PackedValuesOptionImpl(shortName, longName, varName, help, defValues);
+        add(res);
+        return res;
+    }
+
     /**
      * add an option to the command line. Once an option is added, it can be
      * used by its short name (-) or long name (--) if defined.
@@ -233,7 +642,111 @@ public class CommandLine {
         }
         // keep a list of options for global operations such as help() and
         // reset()
+        generation.attach(option, optionList.size());
         optionList.add(option);
+        // the compiled versions and the help no longer match the options
+        compiled = null;
+        specialized = null;
+        helpLayout = null;
+        helpText = null;
+    }
+
+    /**
+     * allow long options to be abbreviated on the command line, as long as the
+     * abbreviation is a prefix of a single long name (<code>--verb</code> for
+     * <code>--verbose</code>). A long name that matches exactly is always
+     * preferred to an abbreviation. Abbreviations are not allowed by default.
+     * 
+     * @param allow
+     *            true to accept unique prefix abbreviations
+     */
+    public void setAllowAbbreviations(boolean allow) {
+
+        allowAbbreviations = allow;
+        compiled = null;
+        specialized = null;
+    }
+
+    /**
+     * replace the arguments starting with <code>@</code> by the content of
+     * the file they name, for argument lists too long for the system. A file
+     * holds one argument per line, or one argument per NUL terminated string
+     * if it contains a NUL character (<code>find -print0</code>). Empty
+     * arguments are ignored, quotes are not interpreted and the arguments of
+     * a file are not expanded again. Argument files are not expanded by
+     * default.
+     * <p>
+     * The files are memory mapped and an argument is only read from its file
+     * when the parser or the caller reads it, use
+     * {@link CommandLine#parseAsList(String[])} or
+     * {@link ParseResult#getPositionalList()} rather than an array to keep
+     * the positional arguments in the file. The index of an argument in a
+     * {@link ParseResult} counts the arguments of the files.
+     * 
+     * @param expand
+     *            true to expand the argument files
+     */
+    public void setExpandArgFiles(boolean expand) {
+
+        expandArgFiles = expand;
+        compiled = null;
+        specialized = null;
+    }
+
+    /**
+     * set the listener observing the parses, the conversions of the option
+     * values and the creation of the errors, for monitoring. The listener is
+     * used by the command line and by the compiled command lines obtained
+     * after the call. No listener is set by default.
+     * 
+     * @param parseListener
+     *            the listener or null to remove it
+     * @see ParseListener
+     */
+    public void setParseListener(ParseListener parseListener) {
+
+        listener = parseListener;
+        compiled = null;
+        specialized = null;
+    }
+
+    /**
+     * freeze the options added so far into an immutable command line. The
+     * compiled command line can be shared between threads, its parse method
+     * returns the options set in a {@link ParseResult} rather than modifying
+     * the options. Options added after the call are not part of the compiled
+     * command line.
+     * 
+     * @return the compiled command line
+     */
+    public CompiledCommandLine compile() {
+
+        if (compiled == null) {
+            compiled = new CompiledCommandLine(optionList, allowAbbreviations, false,
+                expandArgFiles, listener);
+        }
+        return compiled;
+    }
+
+    /**
+     * freeze the options added so far into an immutable command line tuned
+     * for this exact set of options. This is identical to
+     * {@link CommandLine#compile()} but long names are found through a perfect
+     * hash table computed for the declared names: a lookup hashes the name
+     * once and compares it with a single candidate, whatever the number of
+     * options. Building the table takes longer, this is worth it for a command
+     * line that parses many inputs. Abbreviated long names still go through
+     * the regular lookup.
+     * 
+     * @return the specialized command line
+     */
+    public CompiledCommandLine specialize() {
+
+        if (specialized == null) {
+            specialized = new CompiledCommandLine(optionList, allowAbbreviations, true,
+                expandArgFiles, listener);
+        }
+        return specialized;
     }
 
     /**
@@ -251,224 +764,493 @@ public class CommandLine {
     public String[] parse(String[] args)
         throws CommandLineException {
 
-        // the OptionParser can be reused several time so everytime
-        // we parse, we first reset the results.
+        return parseOptions(args).getPositionalArguments();
+    }
+
+    /**
+     * parse an array of command line argument. This is identical to
+     * {@link CommandLine#parse(String[])} but the positional arguments are
+     * returned as a read-only view of the arguments array rather than copied
+     * to a new array.
+     * 
+     * @param args
+     *            the array of arguments including options and positional
+     *            arguments
+     * @return the list of positional arguments
+     * @throws CommandLineException
+     *             if the command line does not match the set of defined options
+     */
+    public List<String> parseAsList(String[] args)
+        throws CommandLineException {
+
+        return parseOptions(args).getPositionalList();
+    }
+
+    /**
+     * parse the options of an array of command line argument and read the
+     * positional arguments from a stream, like xargs. The options are set
+     * before the first batch is handled. The positional arguments of the
+     * array come first, followed by the arguments of the stream, one per line
+     * or one per NUL terminated string (<code>find -print0</code>). They are
+     * passed to the handler in batches as they are read, so the handler can
+     * start working before the stream ends, and only one batch is held in
+     * memory whatever the number of arguments.
+     * 
+     * <pre>
+     * cl.parseStreaming(args, System.in, true, 1000, new ArgumentHandler() {
+     *     public void handle(List&lt;String&gt; paths) throws IOException {
+     *         ...
+     *     }
+     * });
+     * </pre>
+     * 
+     * @param args
+     *            the array of arguments including options and positional
+     *            arguments
+     * @param in
+     *            the stream holding the positional arguments, read as UTF-8
+     *            and not closed
+     * @param nulDelimited
+     *            true if the arguments of the stream are NUL terminated, false
+     *            for one argument per line
+     * @param batchSize
+     *            the maximum number of arguments of a batch
+     * @param handler
+     *            the handler receiving the positional arguments
+     * @return the number of positional arguments handled
+     * @throws CommandLineException
+     *             if the command line does not match the set of defined options
+     * @throws IOException
+     *             if the stream cannot be read or the handler fails
+     * @throws IllegalArgumentException
+     *             if the batch size is not positive
+     */
+    public long parseStreaming(String[] args, InputStream in, boolean nulDelimited,
+        int batchSize, ArgumentHandler handler)
+        throws CommandLineException, IOException, IllegalArgumentException {
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("invalid batch size " + batchSize);
+        }
+        List<String> batch = new ArrayList<String>(Math.min(batchSize, 1024));
+        long count = 0;
+        for (String arg : parseOptions(args).getPositionalList()) {
+            add(batch, arg, batchSize, handler);
+            count++;
+        }
+        DelimitedReader reader = new DelimitedReader(in, nulDelimited);
+        for (String arg = reader.next(); arg != null; arg = reader.next()) {
+            add(batch, arg, batchSize, handler);
+            count++;
+        }
+        if (!batch.isEmpty()) {
+            handler.handle(batch);
+        }
+        return count;
+    }
+
+    /**
+     * parse an array of command line argument without throwing on errors.
+     * When the command line is valid, the options found are set as by
+     * {@link CommandLine#parse(String[])}. Otherwise the options are left
+     * unset and the returned result describes the error with a code and the
+     * index of the argument in error, no exception is created unless
+     * requested.
+     * 
+     * @param args
+     *            the array of arguments including options and positional
+     *            arguments
+     * @return the parse result, see {@link ParseResult#isValid()}
+     * @see CompiledCommandLine#tryParse(String[])
+     */
+    public ParseResult tryParse(String[] args) {
+
         reset();
+        ParseResult result = compile().tryParse(args);
+        return result.isValid() ? assignOptions(result) : result;
+    }
 
-        // Let's parse all options first
-        // we could find:
-        // 1- "-a" => a single short boolean option
-        // 2- "-ab" => a set of short boolean options
-        // 3- "-a=value" => a single short option with a value or a list
-        // 4- "-a" "value" => a single short option with the next arg being the
-        // value r a list of values
-        // 5- "--opt" => a single long boolean option
-        // 6- "--noopt" => a single long boolean option in negative form
-        // 7- "--opt=value" => a single long option with a value or a list
-        // 8- "--opt" "value" => a single long option with the next arg being
-        // the
-        // value or the list of values
-
-        int idx = 0;
-        while (idx < args.length) {
-
-            String tok = args[idx];
-            if (tok.charAt(0) != '-') {
-                // we are past the option section, in the positional arguments
-                break;
-            }
+    /**
+     * parse a command written as a single line of text, for instance a line
+     * read from a console or a script. The line is split into arguments
+     * following the POSIX shell rules for white spaces, quotes and escapes,
+     * the first word is not skipped. Options found in the line will be set,
+     * the remaining arguments (positional arguments) will be returned.
+     * 
+     * @param line
+     *            the options and positional arguments
+     * @return the list of positional arguments
+     * @throws CommandLineException
+     *             if the line cannot be split or if it does not match the set
+     *             of defined options
+     * @see CompiledCommandLine#parseLine(CharSequence)
+     */
+    public List<String> parseLine(CharSequence line)
+        throws CommandLineException {
 
-            if (tok.startsWith("--")) {
-                // long name option
-                if (tok.length() == 2) {
-                    throw new CommandLineException("missing short option after --");
-                }
-                idx = parseLongOption(args, idx);
-            } else {
-                // short name option
-                if (tok.length() == 1) {
-                    throw new CommandLineException("missing short option after -");
-                }
-                if (tok.length() == 2) {
-                    idx = parseShortOption(args, idx);
-                } else {
-                    idx = parseMultipleShortOptions(args, idx);
-                }
-            }
+        reset();
+        return assignOptions(compile().parseLine(line)).getPositionalList();
+    }
+
+    /**
+     * set the completer proposing the values of an option, see
+     * {@link CommandLine#complete(String[], int, int)}.
+     * 
+     * @param option
+     *            an option returned by one of the add methods, expecting a
+     *            value
+     * @param completer
+     *            the completer or null to remove it
+     * @throws IllegalArgumentException
+     *             if the option is not part of this command line or does not
+     *             expect a value
+     */
+    public void setValueCompleter(Object option, ValueCompleter completer)
+        throws IllegalArgumentException {
+
+        if (!(option instanceof AbstractOption)) {
+            throw new IllegalArgumentException("option not declared on this command line");
+        }
+        // the index of an option of another command line can be valid here
+        AbstractOption opt = (AbstractOption) option;
+        int index = opt.getIndex();
+        if (index < 0 || index >= optionList.size() || optionList.get(index) != opt) {
+            throw new IllegalArgumentException("option not declared on this command line");
+        }
+        if (!opt.expectValue()) {
+            throw new IllegalArgumentException("option does not expect a value");
+        }
+        if (completer == null) {
+            completers.remove(opt);
+        } else {
+            completers.put(opt, completer);
+        }
+    }
+
+    /**
+     * set the completer proposing the positional arguments, see
+     * {@link CommandLine#complete(String[], int, int)}.
+     * 
+     * @param completer
+     *            the completer or null if positional arguments are not
+     *            completed
+     */
+    public void setPositionalCompleter(ValueCompleter completer) {
+
+        positionalCompleter = completer;
+    }
+
+    /**
+     * compute the completion candidates of an argument, for a shell or an
+     * interactive console. The arguments before the one completed tell if an
+     * option, an option value or a positional argument is expected. Long
+     * names are completed through the long name trie and short names checked
+     * in the short name table of the compiled command line, so the cost
+     * depends on the length of the arguments and the number of candidates,
+     * not on the number of options. Values are completed by the completers
+     * set with {@link CommandLine#setValueCompleter(Object, ValueCompleter)}
+     * and {@link CommandLine#setPositionalCompleter(ValueCompleter)}.
+     * 
+     * @param args
+     *            the arguments typed so far
+     * @param word
+     *            the index of the argument completed, args.length to start a
+     *            new argument
+     * @param position
+     *            the position of the cursor in the argument completed, the
+     *            characters after it are ignored
+     * @return the candidates replacing the argument up to the cursor, in the
+     *         order of the completers and of the long names
+     * @throws IllegalArgumentException
+     *             if the word index or the cursor position is out of range
+     */
+    public List<String> complete(String[] args, int word, int position)
+        throws IllegalArgumentException {
+
+        if (word < 0 || word > args.length) {
+            throw new IllegalArgumentException("invalid word index " + word);
+        }
+        int length = word < args.length ? args[word].length() : 0;
+        if (position < 0 || position > length) {
+            throw new IllegalArgumentException("invalid cursor position " + position);
         }
+        return Completer.complete(compile(), completers, positionalCompleter, args, word,
+            position);
+    }
 
-        // now if any parameters are left, they are positional
-        String[] res = new String[args.length - idx];
-        for (int i = idx; i < args.length; i++) {
-            res[i - idx] = args[i];
+    /**
+     * answer a completion request from the shell. When the first argument is
+     * {@link CommandLine#COMPLETE_OPTION}, the second is the index of the
+     * argument completed among the following arguments, the cursor being at
+     * its end. The candidates are printed one per line. A program calls this
+     * before parsing its arguments and exits when it returns true:
+     * 
+     * <pre>
+     * if (cl.handleCompletion(args, System.out)) {
+     *     return;
+     * }
+     * String[] pargs = cl.parse(args);
+     * </pre>
+     * 
+     * @param args
+     *            the program arguments
+     * @param out
+     *            the stream receiving the candidates
+     * @return true if the arguments were a completion request
+     */
+    public boolean handleCompletion(String[] args, PrintStream out) {
+
+        if (args.length < 2 || !args[0].equals(COMPLETE_OPTION)) {
+            return false;
+        }
+        String[] words = Arrays.copyOfRange(args, 2, args.length);
+        int word;
+        try {
+            word = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        if (word < 0 || word > words.length) {
+            return true;
+        }
+        int position = word < words.length ? words[word].length() : 0;
+        for (String candidate : complete(words, word, position)) {
+            out.println(candidate);
         }
+        out.flush();
+        return true;
+    }
 
-        return res;
+    /**
+     * return a bash script enabling the completion of a program, through
+     * {@link CommandLine#handleCompletion(String[], PrintStream)}. The script
+     * is usually saved in the bash completion directory or sourced from the
+     * user profile.
+     * 
+     * @param program
+     *            the command name of the program
+     * @return the bash script
+     */
+    public String getBashCompletion(String program) {
+
+        String function = "_" + program.replaceAll("[^A-Za-z0-9_]", "_") + "_complete";
+        StringBuffer res = new StringBuffer();
+        res.append(function).append("() {").append(NL);
+        res.append("    local IFS=$'\\n'").append(NL);
+        res.append("    COMPREPLY=($(").append(program).append(' ').append(COMPLETE_OPTION)
+            .append(" $((COMP_CWORD - 1)) \"${COMP_WORDS[@]:1:COMP_CWORD}\"))").append(NL);
+        res.append("}").append(NL);
+        res.append("complete -o default -F ").append(function).append(' ').append(program)
+            .append(NL);
+        return res.toString();
     }
 
     /**
      * return a help text for the command line and all associated options. It
      * includes the usage set when the command line is created as well as one
-     * line for each option associated with the command line.
+     * line for each option associated with the command line. The text is
+     * built once and kept until an option is added.
      * 
      * @return the help text for the command line.
      */
     public String getHelp() {
 
-        StringBuffer res = new StringBuffer();
-        res.append(usage).append(NL);
-        for (AbstractOption option : optionList) {
-            res.append("    ").append(option.getHelp()).append(NL);
+        if (helpText == null) {
+            StringBuilder res = new StringBuilder();
+            writeHelp(res, getHelpLayout());
+            helpText = res.toString();
         }
-        return res.toString();
-
+        return helpText;
     }
 
-    // --------------------------------------------------------------------------------------
-    // Helper methods
-    // --------------------------------------------------------------------------------------
+    /**
+     * return a help text for the command line with the options in two
+     * columns, the syntax of the options aligned on the left and their
+     * description on the right, wrapped to fit the width of a terminal. The
+     * description column follows the longest syntax, up to half the width.
+     * The columns and the line breaks are computed once for a width and kept
+     * until another width is requested or an option is added.
+     * 
+     * @param width
+     *            the number of characters per line, such as the
+     *            <code>COLUMNS</code> of the terminal
+     * @return the help text for the command line
+     */
+    public String getHelp(int width) {
+
+        StringBuilder res = new StringBuilder();
+        writeHelp(res, getHelpLayout(), width);
+        return res.toString();
+    }
 
     /**
-     * reset all the toggle options, useful when the command line is used
-     * to parse more than one set of inputs.
+     * write the help text of {@link CommandLine#getHelp()} option by option,
+     * without building the whole text, for command lines with many options.
+     * 
+     * @param out
+     *            the destination of the text, such as a Writer or a
+     *            PrintStream
+     * @throws IOException
+     *             if the text cannot be written
      */
-    private void reset() {
+    public void writeHelp(Appendable out)
+        throws IOException {
 
-        for (AbstractOption option : optionList) {
-            option.reset();
+        if (helpText != null) {
+            out.append(helpText);
+        } else {
+            getHelpLayout().write(out);
         }
     }
 
     /**
-     * parse a long option
+     * write the help text of {@link CommandLine#getHelp(int)} option by
+     * option, without building the whole text.
+     * 
+     * @param out
+     *            the destination of the text, such as a Writer or a
+     *            PrintStream
+     * @param width
+     *            the number of characters per line
+     * @throws IOException
+     *             if the text cannot be written
+     */
+    public void writeHelp(Appendable out, int width)
+        throws IOException {
+
+        getHelpLayout().write(out, width);
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * parse an array of command line argument and set the options found.
      * 
      * @param args
-     *            the array of parameters to parse
-     * @param idx
-     *            the index in the parameters array of the option
-     * @return the index of the next option to parse
+     *            the array of arguments including options and positional
+     *            arguments
+     * @return the parse result
      * @throws CommandLineException
-     *             if the option is invalid
+     *             if the command line does not match the set of defined options
      */
-    private int parseLongOption(String[] args, int idx)
+    private ParseResult parseOptions(String[] args)
         throws CommandLineException {
 
-        String tok = args[idx];
-        // see if there is a value attached to the option
-        int eqIdx = tok.indexOf("=");
-        String optName = eqIdx < 0 ? tok.substring(2) : tok.substring(2, eqIdx);
+        // the OptionParser can be reused several time so everytime
+        // we parse, we first reset the results.
+        reset();
+
+        // the parsing itself is done by the compiled command line, we only
+        // need to copy the options found to the options
+        return assignOptions(compile().parse(args));
+    }
 
-        // find if the option exists
-        AbstractOption option = optionsByLongName.get(optName);
-        if (option == null) {
-            throw new CommandLineException("unknown option long name '" + optName + "'");
+    /**
+     * add a positional argument to a batch, handling the batch once full.
+     * 
+     * @param batch
+     *            the current batch
+     * @param arg
+     *            the positional argument
+     * @param batchSize
+     *            the maximum number of arguments of a batch
+     * @param handler
+     *            the handler receiving the batches
+     * @throws IOException
+     *             if the handler fails
+     */
+    private void add(List<String> batch, String arg, int batchSize, ArgumentHandler handler)
+        throws IOException {
+
+        batch.add(arg);
+        if (batch.size() == batchSize) {
+            handler.handle(batch);
+            batch.clear();
         }
+    }
 
-        // see if the option requires a value
-        if (option.expectValue()) {
-            // need a value, if we don't have one then it should be in the next
-            // argument
-            if (eqIdx >= 0) {
-                String value = tok.substring(eqIdx + 1);
-                option.setValue(value);
+    /**
+     * copy the options found by the compiled command line to the options.
+     * 
+     * @param result
+     *            the parse result
+     * @return the parse result
+     */
+    private ParseResult assignOptions(ParseResult result) {
+
+        for (int i = 0; i < result.getSetCount(); i++) {
+            AbstractOption option = (AbstractOption) result.getSetOption(i);
+            if (option.isPrimitive()) {
+                generation.assignBits(option, result.getSetBits(i));
             } else {
-                if (idx >= args.length - 1 || args[idx + 1].startsWith("-")) {
-                    throw new CommandLineException("option '" + optName + "' was expecting a value");
-                }
-                String value = args[++idx];
-                option.setValue(value);
-            }
-        } else {
-            if (eqIdx >= 0) {
-                throw new CommandLineException("option '" + optName + "' was not expecting a value");
+                generation.assign(option, result.getSetValue(i));
             }
-            // no value needed, just "toggle" the option
-            option.setValue(null);
         }
-        // skip to the next argument
-        return ++idx;
+        return result;
     }
 
     /**
-     * parse a single short option
+     * provide the help text of the options, computed once until an option is
+     * added.
      * 
-     * @param args
-     *            the array of parameters to parse
-     * @param idx
-     *            the index in the parameters array of the option
-     * @return the index of the next option to parse
-     * @throws CommandLineException
-     *             if the option is invalid
+     * @return the help layout
      */
-    private int parseShortOption(String[] args, int idx)
-        throws CommandLineException {
-
-        String tok = args[idx];
-        String optName = tok.substring(1);
+    private HelpLayout getHelpLayout() {
 
-        // find if the option exists
-        AbstractOption option = optionsByShortName.get(optName);
-        if (option == null) {
-            throw new CommandLineException("unknown option short name '" + optName + "'");
+        if (helpLayout == null) {
+            helpLayout = new HelpLayout(usage, optionList, NL);
         }
+        return helpLayout;
+    }
 
-        // see if the option requires a value
-        if (option.expectValue()) {
-            // need a value, for short option this is in the next argument
-            if (idx >= args.length - 1 || args[idx + 1].startsWith("-")) {
-                throw new CommandLineException("option '" + optName + "' was expecting a value");
-            }
-            String value = args[++idx];
-            option.setValue(value);
+    /**
+     * write the help text to a buffer.
+     * 
+     * @param res
+     *            the buffer
+     * @param layout
+     *            the help layout
+     */
+    private static void writeHelp(StringBuilder res, HelpLayout layout) {
 
-        } else {
-            // no value needed, just "toggle" the option
-            option.setValue(null);
+        try {
+            layout.write(res);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new IllegalStateException(e);
         }
-        // skip to the next argument
-        return ++idx;
-
     }
 
     /**
-     * parse a set of short options packed together
+     * write the help text in columns to a buffer.
      * 
-     * @param args
-     *            the array of parameters to parse
-     * @param idx
-     *            the index in the parameters array of the option
-     * @return the index of the next option to parse
-     * @throws CommandLineException
-     *             if any option is invalid
+     * @param res
+     *            the buffer
+     * @param layout
+     *            the help layout
+     * @param width
+     *            the number of characters per line
      */
-    private int parseMultipleShortOptions(String[] args, int idx)
-        throws CommandLineException {
-
-        String tok = args[idx];
-
-        // multiple short options, all must use implicit value
-        for (int i = 1; i < tok.length(); i++) {
-            String optName = tok.substring(i, i + 1);
-
-            // find if the option exists
-            AbstractOption option = optionsByShortName.get(optName);
-            if (option == null) {
-                throw new CommandLineException("unknown option short name '" + optName + "'");
-            }
+    private static void writeHelp(StringBuilder res, HelpLayout layout, int width) {
 
-            // using multiple combined options is incomatible with passing a value
-            if (option.expectValue()) {
-                throw new CommandLineException("option '" + optName
-                    + "' was expecting a value, cannot be used in combination with other options '"
-                    + tok + "'");
-            }
-
-            // no value needed, just "toggle" the option
-            option.setValue(null);
+        try {
+            layout.write(res, width);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new IllegalStateException(e);
         }
-        // skip to the next argument
-        return ++idx;
+    }
+
+    /**
+     * reset all the options, useful when the command line is used to parse
+     * more than one set of inputs. The options are not visited, starting a new
+     * parse generation makes all of them return to their default value.
+     */
+    private void reset() {
 
+        generation.advance();
     }
 
 }
@@ -27,4 +27,21 @@ public class CommandLineException extends RuntimeException {
 		super(message);
 	}
 
+	/**
+	 * Construct a Command Line Exception, optionally without stack trace.
+	 * Filling in the stack trace is the main cost of creating an exception,
+	 * it can be skipped when the exception is caught and handled without being
+	 * reported, for instance when parsing untrusted input. Suppressed
+	 * exceptions are recorded in both cases.
+	 * 
+	 * @param message
+	 *            the error message associated with the exception
+	 * @param writableStackTrace
+	 *            false to create the exception without stack trace
+	 */
+	public CommandLineException(String message, boolean writableStackTrace) {
+
+		super(message, null, true, writableStackTrace);
+	}
+
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class defines a command line made of sub commands, such as
+ * <code>ops [options] deploy [deploy options] &lt;app&gt;</code>. The options
+ * placed before the sub command name belong to a top level
+ * {@link CommandLine}, the first positional argument selects the sub command
+ * and the remaining arguments are parsed by the command line of the sub
+ * command.
+ * <p>
+ * Sub commands are registered with a {@link CommandFactory} and a one line
+ * help. The command line of a sub command is only created when the sub
+ * command is parsed or its command line requested, and the help text of the
+ * registry only lists the names and help lines. Starting a program with
+ * hundreds of sub commands then costs the same as starting one with a single
+ * command. A factory can also be registered by class name, its class is then
+ * not even loaded until the sub command is used.
+ *
+ * <pre>
+ * CommandRegistry ops = new CommandRegistry(new CommandLine("usage: ops [options] &lt;command&gt;"));
+ * ops.addCommand("deploy", "deploy an application", new DeployCommand());
+ * ops.addCommand("rollback", "revert to the previous version", "org.rcm.ops.RollbackCommand");
+ * String[] pargs = ops.parse(args);
+ * if (ops.getCommand().equals("deploy")) {
+ *     DeployCommand deploy = (DeployCommand) ops.getFactory();
+ *     ...
+ * }
+ * </pre>
+ *
+ * Like {@link CommandLine#parse(String[])}, the parse stores the results in
+ * the options, a registry should not be used by several threads at the same
+ * time.
+ *
+ * @author Robert Monnet
+ */
+public class CommandRegistry {
+
+    // OS independent new-line
+    private final static String      NL = System.getProperty("line.separator", "\n");
+
+    // fields
+    private final CommandLine        commandLine;
+    private final Map<String, Entry> commands;
+    private Entry                    selected;
+
+    /**
+     * Construct a registry.
+     *
+     * @param rCommandLine
+     *            the options placed before the sub command name, its usage
+     *            starts the help text
+     */
+    public CommandRegistry(CommandLine rCommandLine) {
+
+        commandLine = rCommandLine;
+        commands = new LinkedHashMap<String, Entry>();
+    }
+
+    /**
+     * register a sub command.
+     *
+     * @param name
+     *            the sub command name
+     * @param help
+     *            the help line of the sub command
+     * @param factory
+     *            the factory creating the command line of the sub command
+     * @throws IllegalArgumentException
+     *             if a sub command with the same name is already registered
+     */
+    public void addCommand(String name, String help, CommandFactory factory)
+        throws IllegalArgumentException {
+
+        add(name, new Entry(help, factory, null));
+    }
+
+    /**
+     * register a sub command with the name of its factory class. The class
+     * is loaded and instantiated through its public no argument constructor
+     * when the sub command is used.
+     *
+     * @param name
+     *            the sub command name
+     * @param help
+     *            the help line of the sub command
+     * @param factoryClassName
+     *            the fully qualified name of a class implementing
+     *            {@link CommandFactory}
+     * @throws IllegalArgumentException
+     *             if a sub command with the same name is already registered
+     */
+    public void addCommand(String name, String help, String factoryClassName)
+        throws IllegalArgumentException {
+
+        add(name, new Entry(help, null, factoryClassName));
+    }
+
+    /**
+     * parse an array of command line argument. The options before the sub
+     * command name are set in the top level command line, the options after
+     * it in the command line of the sub command, which is created if needed.
+     *
+     * @param args
+     *            the array of arguments including the sub command name
+     * @return the positional arguments following the options of the sub
+     *         command
+     * @throws CommandLineException
+     *             if the sub command name is missing or unknown, or if the
+     *             arguments do not match the options
+     */
+    public String[] parse(String[] args)
+        throws CommandLineException {
+
+        selected = null;
+        String[] pargs = commandLine.parse(args);
+        if (pargs.length == 0) {
+            throw new CommandLineException("missing command name");
+        }
+        Entry entry = commands.get(pargs[0]);
+        if (entry == null) {
+            throw new CommandLineException("unknown command '" + pargs[0] + "'");
+        }
+        String[] res = entry.getCommandLine().parse(Arrays.copyOfRange(pargs, 1, pargs.length));
+        selected = entry;
+        return res;
+    }
+
+    /**
+     * provide the name of the sub command selected by the last parse.
+     *
+     * @return the sub command name or null if the last parse failed
+     */
+    public String getCommand() {
+
+        return selected == null ? null : selected.name;
+    }
+
+    /**
+     * provide the factory of the sub command selected by the last parse, it
+     * holds the options of the sub command.
+     *
+     * @return the factory or null if the last parse failed
+     */
+    public CommandFactory getFactory() {
+
+        return selected == null ? null : selected.getFactory();
+    }
+
+    /**
+     * provide the command line of a sub command, created if needed. This
+     * gives the help text of a sub command, for instance.
+     *
+     * @param name
+     *            the sub command name
+     * @return the command line
+     * @throws IllegalArgumentException
+     *             if no sub command is registered with this name
+     */
+    public CommandLine getCommandLine(String name)
+        throws IllegalArgumentException {
+
+        Entry entry = commands.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("unknown command '" + name + "'");
+        }
+        return entry.getCommandLine();
+    }
+
+    /**
+     * return a help text listing the top level options and the sub commands.
+     * The command lines of the sub commands are not created.
+     *
+     * @return the help text
+     */
+    public String getHelp() {
+
+        StringBuffer res = new StringBuffer(commandLine.getHelp());
+        res.append("commands:").append(NL);
+        for (Entry entry : commands.values()) {
+            res.append("    ").append(entry.name).append(" : ").append(entry.help).append(NL);
+        }
+        return res.toString();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * register a sub command.
+     *
+     * @param name
+     *            the sub command name
+     * @param entry
+     *            the sub command
+     * @throws IllegalArgumentException
+     *             if a sub command with the same name is already registered
+     */
+    private void add(String name, Entry entry)
+        throws IllegalArgumentException {
+
+        if (commands.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate command declared '" + name + "'");
+        }
+        entry.name = name;
+        commands.put(name, entry);
+    }
+
+    /**
+     * This class holds a registered sub command and creates its command line
+     * on first use.
+     */
+    private static final class Entry {
+
+        // fields
+        private String         name;
+        private final String   help;
+        private final String   factoryClassName;
+        private CommandFactory factory;
+        private CommandLine    commandLine;
+
+        /**
+         * Construct a sub command.
+         *
+         * @param eHelp
+         *            the help line
+         * @param eFactory
+         *            the factory or null if given by class name
+         * @param eFactoryClassName
+         *            the factory class name or null if the factory is given
+         */
+        Entry(String eHelp, CommandFactory eFactory, String eFactoryClassName) {
+
+            help = eHelp;
+            factory = eFactory;
+            factoryClassName = eFactoryClassName;
+        }
+
+        /**
+         * provide the factory, instantiated if needed.
+         *
+         * @return the factory
+         * @throws IllegalStateException
+         *             if the factory class cannot be instantiated
+         */
+        CommandFactory getFactory()
+            throws IllegalStateException {
+
+            if (factory == null) {
+                try {
+                    factory = (CommandFactory) Class.forName(factoryClassName).getConstructor()
+                        .newInstance();
+                } catch (Exception e) {
+                    throw new IllegalStateException("cannot create the command '" + name
+                        + "' from '" + factoryClassName + "'", e);
+                }
+            }
+            return factory;
+        }
+
+        /**
+         * provide the command line, created if needed.
+         *
+         * @return the command line
+         */
+        CommandLine getCommandLine() {
+
+            if (commandLine == null) {
+                commandLine = getFactory().createCommandLine();
+            }
+            return commandLine;
+        }
+
+    }
+
+}
@@ -0,0 +1,827 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.rcm.cmdline.impl.AbstractOption;
+import org.rcm.cmdline.impl.PrimitiveOption;
+
+/**
+ * This class defines an immutable snapshot of the options declared on a
+ * {@link CommandLine}. It is obtained through {@link CommandLine#compile()}.
+ * <p>
+ * Unlike {@link CommandLine#parse(String[])}, parsing with a compiled command
+ * line never modifies the options, the result of the parse is returned as a
+ * {@link ParseResult} that is queried with the options returned when the
+ * command line was set up. A compiled command line can therefore be shared by
+ * several threads without any locking.
+ *
+ * <pre>
+ * CompiledCommandLine spec = cl.compile();
+ * ...
+ * ParseResult res = spec.parse(args);
+ * if (res.isSet(verbose)) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Robert Monnet
+ */
+public final class CompiledCommandLine {
+
+    // number of tasks created for each thread of the pool by parseAll, enough
+    // for idle threads to steal work when some command lines are longer
+    private static final int          TASKS_PER_THREAD = 8;
+
+    // fields
+    private final AbstractOption[]    options;
+    private final ShortOptionTable    optionsByShortName;
+    private final LongOptionTrie      optionsByLongName;
+    private final LongOptionHash      optionsByExactLongName;
+    private final boolean             allowAbbreviations;
+    private final boolean             expandArgFiles;
+    private final ParseListener       listener;
+    private final CompiledCommandLine unobserved;
+
+    /**
+     * Construct a compiled command line from the options declared on a command
+     * line. The tables are copied so later additions to the command line do
+     * not affect the compiled version.
+     *
+     * @param optionList
+     *            the options in declaration order
+     * @param abbreviations
+     *            true if long names can be abbreviated to a unique prefix
+     * @param specialized
+     *            true to build a perfect hash table for the long names, which
+     *            takes longer to build but is faster to search
+     * @param argFiles
+     *            true if the arguments starting with <code>@</code> are
+     *            replaced by the content of the file they name
+     * @param parseListener
+     *            the listener observing the parses or null
+     */
+    CompiledCommandLine(List<AbstractOption> optionList, boolean abbreviations,
+        boolean specialized, boolean argFiles, ParseListener parseListener) {
+
+        options = optionList.toArray(new AbstractOption[optionList.size()]);
+        optionsByShortName = new ShortOptionTable(optionList);
+        optionsByLongName = new LongOptionTrie(optionList);
+        // abbreviations need the prefixes held by the trie
+        optionsByExactLongName = specialized && !abbreviations ? LongOptionHash.build(optionList)
+            : null;
+        allowAbbreviations = abbreviations;
+        expandArgFiles = argFiles;
+        listener = parseListener;
+        unobserved = parseListener == null ? this : new CompiledCommandLine(this);
+    }
+
+    /**
+     * Construct a copy of a compiled command line that does not report to its
+     * listener, the tables are shared.
+     *
+     * @param observed
+     *            the compiled command line reporting to a listener
+     */
+    private CompiledCommandLine(CompiledCommandLine observed) {
+
+        options = observed.options;
+        optionsByShortName = observed.optionsByShortName;
+        optionsByLongName = observed.optionsByLongName;
+        optionsByExactLongName = observed.optionsByExactLongName;
+        allowAbbreviations = observed.allowAbbreviations;
+        expandArgFiles = observed.expandArgFiles;
+        listener = null;
+        unobserved = this;
+    }
+
+    /**
+     * parse an array of command line argument. Arguments associated with
+     * options declared on the command line are returned in the result,
+     * remaining arguments (positional arguments) are available through
+     * {@link ParseResult#getPositionalList()}, a view of the array that is not
+     * copied, or {@link ParseResult#getPositionalArguments()}. This method can be called
+     * concurrently from several threads.
+     *
+     * @param args
+     *            the array of arguments including options and positional
+     *            arguments
+     * @return the options set and the positional arguments
+     * @throws CommandLineException
+     *             if the command line does not match the set of defined options
+     */
+    public ParseResult parse(String[] args)
+        throws CommandLineException {
+
+        return checkValid(tryParse(args));
+    }
+
+    /**
+     * parse an array of command line argument without throwing on errors.
+     * This is identical to {@link #parse(String[])} but an invalid command
+     * line produces a result holding the error, see
+     * {@link ParseResult#isValid()}. The error is recorded as a code and the
+     * index of the argument in error, no exception or message is created
+     * unless requested, which makes this method suited to untrusted input.
+     *
+     * @param args
+     *            the array of arguments including options and positional
+     *            arguments
+     * @return the options set and the positional arguments, or the error
+     */
+    public ParseResult tryParse(String[] args) {
+
+        if (expandArgFiles) {
+            for (String arg : args) {
+                if (ArgFileArguments.isArgFile(arg)) {
+                    return parseArgFiles(args);
+                }
+            }
+        }
+        return parse(new ArrayArguments(args));
+    }
+
+    /**
+     * parse a command written as a single line of text, such as
+     * <code>-v --region=eu-1 "my app"</code>. The line is split into arguments
+     * following the POSIX shell rules for white spaces, quotes and escapes,
+     * then parsed as {@link #parse(String[])} would. The arguments are read
+     * directly from the line, a String is only created for option values and
+     * for the positional arguments that are read from the result. The line
+     * must not be modified while the result is in use.
+     *
+     * @param line
+     *            the options and positional arguments
+     * @return the options set and the positional arguments
+     * @throws CommandLineException
+     *             if the line cannot be split or if it does not match the set
+     *             of defined options
+     */
+    public ParseResult parseLine(CharSequence line)
+        throws CommandLineException {
+
+        return checkValid(tryParseLine(line));
+    }
+
+    /**
+     * parse a command written as a single line of text without throwing on
+     * errors, see {@link #parseLine(CharSequence)} and
+     * {@link #tryParse(String[])}.
+     *
+     * @param line
+     *            the options and positional arguments
+     * @return the options set and the positional arguments, or the error
+     */
+    public ParseResult tryParseLine(CharSequence line) {
+
+        LineArguments args;
+        try {
+            args = new LineArguments(line);
+        } catch (CommandLineException e) {
+            return failBeforeParse(ParseErrorCode.INVALID_LINE, -1, e.getMessage(), 0);
+        }
+        return parse(args);
+    }
+
+    /**
+     * create a parser receiving the arguments one at a time, for interactive
+     * shells checking a line while it is typed.
+     *
+     * @return a new incremental parser with no argument
+     */
+    public IncrementalParser newIncrementalParser() {
+
+        return new IncrementalParser(this);
+    }
+
+    /**
+     * parse many command lines in parallel, see
+     * {@link #parseAll(Iterable, ForkJoinPool)}. The command lines are parsed
+     * on a fork-join pool shared by all the compiled command lines, with one
+     * thread per processor.
+     *
+     * @param commands
+     *            the arrays of arguments to parse
+     * @return the results in the order of the command lines
+     */
+    public List<ParseResult> parseAll(Iterable<String[]> commands) {
+
+        return parseAll(commands, DefaultPool.INSTANCE);
+    }
+
+    /**
+     * parse many command lines in parallel on a fork-join pool. Each command
+     * line is parsed as by {@link #parse(String[])}, but an invalid command
+     * line does not stop the batch: its result holds the error, see
+     * {@link ParseResult#isValid()} and {@link ParseResult#getError()}. The
+     * command lines are split in ranges parsed by separate tasks, the options
+     * are only read during the batch.
+     *
+     * @param commands
+     *            the arrays of arguments to parse
+     * @param pool
+     *            the pool running the parse tasks
+     * @return the results in the order of the command lines
+     */
+    public List<ParseResult> parseAll(Iterable<String[]> commands, ForkJoinPool pool) {
+
+        return parseAll(toArray(commands), false, pool);
+    }
+
+    /**
+     * parse many lines of text in parallel, see
+     * {@link #parseAllLines(Iterable, ForkJoinPool)}. The lines are parsed on
+     * a fork-join pool shared by all the compiled command lines, with one
+     * thread per processor.
+     *
+     * @param lines
+     *            the lines to parse
+     * @return the results in the order of the lines
+     */
+    public List<ParseResult> parseAllLines(Iterable<? extends CharSequence> lines) {
+
+        return parseAllLines(lines, DefaultPool.INSTANCE);
+    }
+
+    /**
+     * parse many lines of text in parallel on a fork-join pool. Each line is
+     * parsed as by {@link #parseLine(CharSequence)}, but an invalid line does
+     * not stop the batch: its result holds the error, see
+     * {@link ParseResult#isValid()} and {@link ParseResult#getError()}.
+     *
+     * @param lines
+     *            the lines to parse
+     * @param pool
+     *            the pool running the parse tasks
+     * @return the results in the order of the lines
+     */
+    public List<ParseResult> parseAllLines(Iterable<? extends CharSequence> lines,
+        ForkJoinPool pool) {
+
+        return parseAll(toArray(lines), true, pool);
+    }
+
+    /**
+     * provide an option by its index, the options are indexed in the order
+     * they were added to the command line.
+     *
+     * @param idx
+     *            the option index, between 0 and {@link #getOptionCount()}
+     * @return the option, as returned when it was added to the command line
+     */
+    public Option getOption(int idx) {
+
+        return options[idx];
+    }
+
+    /**
+     * provide the number of options.
+     *
+     * @return the number of options declared
+     */
+    public int getOptionCount() {
+
+        return options.length;
+    }
+
+    /**
+     * find an option by short name.
+     *
+     * @param c
+     *            the short name
+     * @return the option or null if no option has this short name
+     */
+    AbstractOption findShortOption(char c) {
+
+        return optionsByShortName.get(c);
+    }
+
+    /**
+     * find an option by long name, following the abbreviation setting.
+     *
+     * @param text
+     *            the characters holding the name
+     * @param start
+     *            the index of the first character of the name
+     * @param end
+     *            the index after the last character of the name
+     * @return the option or null if the name is unknown or ambiguous
+     */
+    AbstractOption findLongOption(CharSequence text, int start, int end) {
+
+        LongOptionTrie.Node node = optionsByLongName.find(text, start, end);
+        if (node == null || node.getDepth() != end - start) {
+            return null;
+        }
+        return allowAbbreviations ? node.getUniqueOption() : node.getOption();
+    }
+
+    /**
+     * find the options whose long name starts with a prefix.
+     *
+     * @param prefix
+     *            the beginning of the long name
+     * @param res
+     *            the list receiving the options, in long name order
+     */
+    void findLongOptions(String prefix, List<AbstractOption> res) {
+
+        LongOptionTrie.Node node = optionsByLongName.find(prefix, 0, prefix.length());
+        if (node != null && node.getDepth() == prefix.length()) {
+            node.collect(res);
+        }
+    }
+
+    /**
+     * provide the listener observing the parses.
+     *
+     * @return the listener or null
+     */
+    ParseListener getParseListener() {
+
+        return listener;
+    }
+
+    /**
+     * provide a version of this command line that parses the same way without
+     * reporting to the listener, for the partial lines checked while a line
+     * is typed, which are not parses of a command.
+     *
+     * @return the command line without listener, this one if it has none
+     */
+    CompiledCommandLine getUnobserved() {
+
+        return unobserved;
+    }
+
+    /**
+     * verify that an option was declared on this command line.
+     *
+     * @param option
+     *            the option to check
+     * @return the option as an AbstractOption
+     * @throws IllegalArgumentException
+     *             if the option is not part of the command line
+     */
+    AbstractOption checkOption(Object option)
+        throws IllegalArgumentException {
+
+        if (option instanceof AbstractOption) {
+            AbstractOption res = (AbstractOption) option;
+            int idx = res.getIndex();
+            if (idx >= 0 && idx < options.length && options[idx] == res) {
+                return res;
+            }
+        }
+        throw new IllegalArgumentException("option is not part of the compiled command line");
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * parse a batch of command lines on a fork-join pool.
+     *
+     * @param commands
+     *            the command lines, either argument arrays or lines of text
+     * @param lines
+     *            true if the command lines are lines of text
+     * @param pool
+     *            the pool running the parse tasks
+     * @return the results in the order of the command lines
+     */
+    private List<ParseResult> parseAll(Object[] commands, boolean lines, ForkJoinPool pool) {
+
+        ParseResult[] results = new ParseResult[commands.length];
+        if (commands.length > 0) {
+            int threshold = Math.max(1, commands.length / (pool.getParallelism() * TASKS_PER_THREAD));
+            pool.invoke(new ParseAllTask(this, commands, lines, results, 0, commands.length,
+                threshold));
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * copy the command lines of a batch to an array, so they can be split in
+     * ranges.
+     *
+     * @param commands
+     *            the command lines
+     * @return the command lines in iteration order
+     */
+    private static Object[] toArray(Iterable<?> commands) {
+
+        if (commands instanceof Collection<?>) {
+            return ((Collection<?>) commands).toArray();
+        }
+        List<Object> res = new ArrayList<Object>();
+        for (Object command : commands) {
+            res.add(command);
+        }
+        return res.toArray();
+    }
+
+    /**
+     * throw the error held by a result, if any.
+     *
+     * @param result
+     *            the parse result
+     * @return the result if it is valid
+     * @throws CommandLineException
+     *             if the result holds an error
+     */
+    private static ParseResult checkValid(ParseResult result)
+        throws CommandLineException {
+
+        if (!result.isValid()) {
+            throw result.getError();
+        }
+        return result;
+    }
+
+    /**
+     * parse a sequence of arguments. Errors are recorded in the result, the
+     * parse stops at the first one.
+     *
+     * @param args
+     *            the arguments including options and positional arguments
+     * @return the options set and the positional arguments, or the error
+     */
+    private ParseResult parse(Arguments args) {
+
+        if (listener == null) {
+            return parseArguments(args);
+        }
+        Object context = listener.parseStarted(this, args.size());
+        ParseResult result = parseArguments(args);
+        listener.parseFinished(context, result);
+        return result;
+    }
+
+    /**
+     * create the result of a command line that cannot be split into
+     * arguments. The listener sees it as a parse, so the errors it counts
+     * include these.
+     *
+     * @param code
+     *            the reason of the error
+     * @param index
+     *            the index of the argument in error or -1
+     * @param detail
+     *            the message of the error
+     * @param argumentCount
+     *            the number of arguments given
+     * @return the result holding the error
+     */
+    private ParseResult failBeforeParse(ParseErrorCode code, int index, String detail,
+        int argumentCount) {
+
+        Object context = listener == null ? null : listener.parseStarted(this, argumentCount);
+        ParseResult result = new ParseResult(this, 0);
+        result.fail(code, null, index, 0, detail);
+        if (listener != null) {
+            listener.parseFinished(context, result);
+        }
+        return result;
+    }
+
+    /**
+     * parse the arguments, see {@link #parse(Arguments)}.
+     *
+     * @param args
+     *            the arguments including options and positional arguments
+     * @return the options set and the positional arguments, or the error
+     */
+    private ParseResult parseArguments(Arguments args) {
+
+        int count = args.size();
+        ParseResult result = new ParseResult(this, Math.min(count, options.length));
+
+        // Let's parse all options first
+        // we could find:
+        // 1- "-a" => a single short boolean option
+        // 2- "-ab" => a set of short boolean options
+        // 3- "-a=value" => a single short option with a value or a list
+        // 4- "-a" "value" => a single short option with the next arg being the
+        // value r a list of values
+        // 5- "--opt" => a single long boolean option
+        // 6- "--noopt" => a single long boolean option in negative form
+        // 7- "--opt=value" => a single long option with a value or a list
+        // 8- "--opt" "value" => a single long option with the next arg being
+        // the
+        // value or the list of values
+
+        int idx = 0;
+        while (idx < count) {
+
+            if (!args.startsWithHyphen(idx)) {
+                // we are past the option section, in the positional arguments
+                break;
+            }
+
+            int len = args.length(idx);
+            if (len > 1 && args.charAt(idx, 1) == '-') {
+                // long name option
+                if (len == 2) {
+                    result.fail(ParseErrorCode.MISSING_OPTION_NAME, args, idx, 0, null);
+                    return result;
+                }
+                idx = parseLongOption(args, idx, result);
+            } else {
+                // short name option
+                if (len == 1) {
+                    result.fail(ParseErrorCode.MISSING_OPTION_NAME, args, idx, 0, null);
+                    return result;
+                }
+                if (len == 2) {
+                    idx = parseShortOption(args, idx, result);
+                } else {
+                    idx = parseMultipleShortOptions(args, idx, result);
+                }
+            }
+            if (idx < 0) {
+                return result;
+            }
+        }
+
+        // now if any parameters are left, they are positional
+        result.setPositionalArguments(args, idx);
+
+        return result;
+    }
+
+    /**
+     * parse an array of command line argument, replacing the argument files
+     * by their content.
+     *
+     * @param args
+     *            the arguments including argument files
+     * @return the options set and the positional arguments, or the error
+     */
+    private ParseResult parseArgFiles(String[] args) {
+
+        ArgFileArguments.MappedFile[] files = new ArgFileArguments.MappedFile[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (ArgFileArguments.isArgFile(args[i])) {
+                try {
+                    files[i] = new ArgFileArguments.MappedFile(args[i].substring(1));
+                } catch (CommandLineException e) {
+                    return failBeforeParse(ParseErrorCode.INVALID_ARG_FILE, i, e.getMessage(),
+                        args.length);
+                }
+            }
+        }
+        return parse(new ArgFileArguments(args, files));
+    }
+
+    /**
+     * parse a long option
+     *
+     * @param args
+     *            the arguments to parse
+     * @param idx
+     *            the index in the arguments of the option
+     * @param result
+     *            the parse result to update
+     * @return the index of the next option to parse or -1 if the option is
+     *         invalid
+     */
+    private int parseLongOption(Arguments args, int idx, ParseResult result) {
+
+        CharSequence text = args.text(idx);
+        int start = args.start(idx);
+        int end = args.end(idx);
+
+        // find if the option exists, the lookup stops at the end of the name
+        AbstractOption option = null;
+        int nameEnd;
+        if (optionsByExactLongName != null) {
+            nameEnd = start + 2;
+            while (nameEnd < end && text.charAt(nameEnd) != '=') {
+                nameEnd++;
+            }
+            option = optionsByExactLongName.get(text, start + 2, nameEnd);
+            if (option == null) {
+                result.fail(ParseErrorCode.UNKNOWN_OPTION, args, idx, 0, null);
+                return -1;
+            }
+        } else {
+            LongOptionTrie.Node node = optionsByLongName.find(text, start + 2, end);
+            if (node != null && node.getDepth() > 0) {
+                option = allowAbbreviations ? node.getUniqueOption() : node.getOption();
+            }
+            if (option == null) {
+                if (node != null && allowAbbreviations && node.getDepth() > 0) {
+                    result.fail(ParseErrorCode.AMBIGUOUS_OPTION, args, idx, 0, null);
+                } else {
+                    result.fail(ParseErrorCode.UNKNOWN_OPTION, args, idx, 0, null);
+                }
+                return -1;
+            }
+            nameEnd = start + 2 + node.getDepth();
+        }
+
+        // see if there is a value attached to the option
+        int eqIdx = nameEnd == end ? -1 : nameEnd;
+
+        // see if the option requires a value
+        if (option.expectValue()) {
+            // need a value, if we don't have one then it should be in the next
+            // argument
+            if (eqIdx >= 0) {
+                if (!setValue(option, text, eqIdx + 1, end, args, idx, result)) {
+                    return -1;
+                }
+            } else {
+                if (idx >= args.size() - 1 || args.startsWithHyphen(idx + 1)) {
+                    result.fail(option, ParseErrorCode.MISSING_VALUE, args, idx, 0, null);
+                    return -1;
+                }
+                if (!setValue(option, args.text(idx + 1), args.start(idx + 1), args.end(idx + 1),
+                    args, idx, result)) {
+                    return -1;
+                }
+                idx++;
+            }
+        } else {
+            if (eqIdx >= 0) {
+                result.fail(option, ParseErrorCode.UNEXPECTED_VALUE, args, idx, 0, null);
+                return -1;
+            }
+            // no value needed, just "toggle" the option
+            result.set(option, option.convert(null));
+        }
+        // skip to the next argument
+        return ++idx;
+    }
+
+    /**
+     * convert the value of an option and record it in the result. Options
+     * holding primitive values read the value directly from the characters.
+     *
+     * @param option
+     *            the option set
+     * @param text
+     *            the characters holding the value
+     * @param start
+     *            the index of the first character of the value
+     * @param end
+     *            the index after the last character of the value
+     * @param args
+     *            the arguments parsed
+     * @param idx
+     *            the index in the arguments of the option
+     * @param result
+     *            the parse result to update
+     * @return false if the value is not valid for the option
+     */
+    private boolean setValue(AbstractOption option, CharSequence text, int start, int end,
+        Arguments args, int idx, ParseResult result) {
+
+        if (listener == null) {
+            return convertValue(option, text, start, end, args, idx, result);
+        }
+        Object context = listener.conversionStarted(option);
+        boolean valid = convertValue(option, text, start, end, args, idx, result);
+        listener.conversionFinished(context, option, valid);
+        return valid;
+    }
+
+    /**
+     * convert the value of an option, see
+     * {@link #setValue(AbstractOption, CharSequence, int, int, Arguments, int, ParseResult)}.
+     *
+     * @param option
+     *            the option set
+     * @param text
+     *            the characters holding the value
+     * @param start
+     *            the index of the first character of the value
+     * @param end
+     *            the index after the last character of the value
+     * @param args
+     *            the arguments parsed
+     * @param idx
+     *            the index in the arguments of the option
+     * @param result
+     *            the parse result to update
+     * @return false if the value is not valid for the option
+     */
+    private static boolean convertValue(AbstractOption option, CharSequence text, int start,
+        int end, Arguments args, int idx, ParseResult result) {
+
+        try {
+            if (option.isPrimitive()) {
+                result.setBits(option, ((PrimitiveOption) option).convertBits(text, start, end));
+            } else {
+                result.set(option, option.convert(text, start, end));
+            }
+            return true;
+        } catch (CommandLineException e) {
+            result.fail(option, ParseErrorCode.INVALID_VALUE, args, idx, 0, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * parse a single short option
+     *
+     * @param args
+     *            the arguments to parse
+     * @param idx
+     *            the index in the arguments of the option
+     * @param result
+     *            the parse result to update
+     * @return the index of the next option to parse or -1 if the option is
+     *         invalid
+     */
+    private int parseShortOption(Arguments args, int idx, ParseResult result) {
+
+        // find if the option exists
+        AbstractOption option = optionsByShortName.get(args.charAt(idx, 1));
+        if (option == null) {
+            result.fail(ParseErrorCode.UNKNOWN_OPTION, args, idx, 0, null);
+            return -1;
+        }
+
+        // see if the option requires a value
+        if (option.expectValue()) {
+            // need a value, for short option this is in the next argument
+            if (idx >= args.size() - 1 || args.startsWithHyphen(idx + 1)) {
+                result.fail(option, ParseErrorCode.MISSING_VALUE, args, idx, 0, null);
+                return -1;
+            }
+            if (!setValue(option, args.text(idx + 1), args.start(idx + 1), args.end(idx + 1), args,
+                idx, result)) {
+                return -1;
+            }
+            idx++;
+
+        } else {
+            // no value needed, just "toggle" the option
+            result.set(option, option.convert(null));
+        }
+        // skip to the next argument
+        return ++idx;
+
+    }
+
+    /**
+     * parse a set of short options packed together
+     *
+     * @param args
+     *            the arguments to parse
+     * @param idx
+     *            the index in the arguments of the option
+     * @param result
+     *            the parse result to update
+     * @return the index of the next option to parse or -1 if any option is
+     *         invalid
+     */
+    private int parseMultipleShortOptions(Arguments args, int idx, ParseResult result) {
+
+        // multiple short options, all must use implicit value
+        int len = args.length(idx);
+        for (int i = 1; i < len; i++) {
+
+            // find if the option exists
+            AbstractOption option = optionsByShortName.get(args.charAt(idx, i));
+            if (option == null) {
+                result.fail(ParseErrorCode.UNKNOWN_OPTION, args, idx, i, null);
+                return -1;
+            }
+
+            // using multiple combined options is incomatible with passing a value
+            if (option.expectValue()) {
+                result.fail(option, ParseErrorCode.VALUE_IN_COMBINATION, args, idx, i, null);
+                return -1;
+            }
+
+            // no value needed, just "toggle" the option
+            result.set(option, option.convert(null));
+        }
+        // skip to the next argument
+        return ++idx;
+
+    }
+
+    /**
+     * This class holds the pool used when no pool is given to parseAll, it is
+     * only created on the first call. The threads of a fork-join pool are
+     * daemon threads, they do not keep the application running.
+     */
+    private static final class DefaultPool {
+
+        // fields
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.rcm.cmdline.impl.AbstractOption;
+
+/**
+ * This class computes the completion candidates of an argument, for
+ * {@link CommandLine#complete(String[], int, int)}. The arguments before the
+ * one completed are read by an {@link IncrementalParser} to find what is
+ * expected, then:
+ * <ul>
+ * <li>a long name prefix is completed from the long name trie, only the
+ * options below the node of the prefix are visited</li>
+ * <li>a short name is checked through the short name table</li>
+ * <li>the value of an option and the positional arguments are completed by
+ * the registered {@link ValueCompleter}, if any</li>
+ * </ul>
+ *
+ * @author Robert Monnet
+ */
+final class Completer {
+
+    /**
+     * Construct the completer, not used.
+     */
+    private Completer() {
+
+    }
+
+    /**
+     * compute the completion candidates of an argument.
+     *
+     * @param cl
+     *            the compiled command line
+     * @param completers
+     *            the completers of the option values
+     * @param positional
+     *            the completer of the positional arguments or null
+     * @param args
+     *            the arguments typed so far
+     * @param word
+     *            the index of the argument completed, args.length for a new
+     *            argument
+     * @param position
+     *            the position of the cursor in the argument completed
+     * @return the candidates, replacing the argument up to the cursor
+     */
+    static List<String> complete(CompiledCommandLine cl,
+        Map<AbstractOption, ValueCompleter> completers, ValueCompleter positional, String[] args,
+        int word, int position) {
+
+        List<String> res = new ArrayList<String>();
+        IncrementalParser parser = cl.newIncrementalParser();
+        for (int i = 0; i < word; i++) {
+            parser.push(args[i]);
+        }
+        String prefix = word < args.length ? args[word].substring(0, position) : "";
+
+        switch (parser.getExpected()) {
+        case VALUE:
+            String pending = args[word - 1];
+            AbstractOption option = pending.startsWith("--") ? cl.findLongOption(pending, 2,
+                pending.length()) : cl.findShortOption(pending.charAt(1));
+            completeValue(completers.get(option), "", prefix, res);
+            break;
+        case POSITIONAL:
+            completeValue(positional, "", prefix, res);
+            break;
+        case OPTION_OR_POSITIONAL:
+            if (prefix.startsWith("--")) {
+                completeLongOption(cl, completers, prefix, res);
+            } else if (prefix.startsWith("-")) {
+                completeShortOption(cl, prefix, res);
+            } else if (prefix.length() > 0 || positional != null) {
+                completeValue(positional, "", prefix, res);
+            } else {
+                completeShortOption(cl, "-", res);
+            }
+            break;
+        default:
+            // the arguments before are in error, nothing can follow
+            break;
+        }
+        return res;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * complete a long option, or its value after an equal sign.
+     *
+     * @param cl
+     *            the compiled command line
+     * @param completers
+     *            the completers of the option values
+     * @param prefix
+     *            the argument up to the cursor, starting with two hyphens
+     * @param res
+     *            the list receiving the candidates
+     */
+    private static void completeLongOption(CompiledCommandLine cl,
+        Map<AbstractOption, ValueCompleter> completers, String prefix, List<String> res) {
+
+        int eqIdx = prefix.indexOf('=');
+        if (eqIdx >= 0) {
+            AbstractOption option = cl.findLongOption(prefix, 2, eqIdx);
+            if (option != null && option.expectValue()) {
+                completeValue(completers.get(option), prefix.substring(0, eqIdx + 1),
+                    prefix.substring(eqIdx + 1), res);
+            }
+            return;
+        }
+        List<AbstractOption> options = new ArrayList<AbstractOption>();
+        cl.findLongOptions(prefix.substring(2), options);
+        for (AbstractOption option : options) {
+            res.add("--" + option.getLongName());
+        }
+    }
+
+    /**
+     * complete a short option. A single hyphen lists all the options, a set
+     * of bundled toggle options is accepted as is.
+     *
+     * @param cl
+     *            the compiled command line
+     * @param prefix
+     *            the argument up to the cursor, starting with one hyphen
+     * @param res
+     *            the list receiving the candidates
+     */
+    private static void completeShortOption(CompiledCommandLine cl, String prefix,
+        List<String> res) {
+
+        if (prefix.length() == 1) {
+            for (int i = 0; i < cl.getOptionCount(); i++) {
+                Option option = cl.getOption(i);
+                res.add(option.getShortName() != null ? "-" + option.getShortName() : "--"
+                    + option.getLongName());
+            }
+            return;
+        }
+        for (int i = 1; i < prefix.length(); i++) {
+            AbstractOption option = cl.findShortOption(prefix.charAt(i));
+            if (option == null || (option.expectValue() && prefix.length() > 2)) {
+                return;
+            }
+        }
+        res.add(prefix);
+    }
+
+    /**
+     * complete a value with a completer.
+     *
+     * @param completer
+     *            the completer or null if the value cannot be completed
+     * @param head
+     *            the text placed before each candidate
+     * @param prefix
+     *            the beginning of the value
+     * @param res
+     *            the list receiving the candidates
+     */
+    private static void completeValue(ValueCompleter completer, String head, String prefix,
+        List<String> res) {
+
+        if (completer == null) {
+            return;
+        }
+        if (head.length() == 0) {
+            completer.complete(prefix, res);
+            return;
+        }
+        List<String> values = new ArrayList<String>();
+        completer.complete(prefix, values);
+        for (String value : values) {
+            res.add(head + value);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class splits a stream into arguments, one per line or one per NUL
+ * terminated string, with the same rules as the argument files: carriage
+ * returns end the lines and empty arguments are ignored. The stream is read
+ * as UTF-8 through a fixed buffer, only the argument being read is held in
+ * memory.
+ *
+ * @author Robert Monnet
+ */
+final class DelimitedReader {
+
+    // size of the read buffer
+    private static final int  BUFFER_SIZE = 8192;
+
+    // fields
+    private final InputStream in;
+    private final boolean     nulDelimited;
+    private final byte[]      buffer;
+    private int               position;
+    private int               limit;
+    private byte[]            argument;
+
+    /**
+     * Construct a reader.
+     *
+     * @param dIn
+     *            the stream holding the arguments, not closed by the reader
+     * @param dNulDelimited
+     *            true if the arguments are NUL terminated, false for one
+     *            argument per line
+     */
+    DelimitedReader(InputStream dIn, boolean dNulDelimited) {
+
+        in = dIn;
+        nulDelimited = dNulDelimited;
+        buffer = new byte[BUFFER_SIZE];
+        argument = new byte[256];
+    }
+
+    /**
+     * read the next argument, blocking until it is terminated or the stream
+     * ends.
+     *
+     * @return the argument or null at the end of the stream
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    String next()
+        throws IOException {
+
+        int len = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                return len == 0 ? null : decode(len);
+            }
+            byte b = buffer[position++];
+            if (nulDelimited ? b == 0 : b == '\n' || b == '\r') {
+                if (len > 0) {
+                    return decode(len);
+                }
+                continue;
+            }
+            if (len == argument.length) {
+                byte[] newArgument = new byte[argument.length * 2];
+                System.arraycopy(argument, 0, newArgument, 0, len);
+                argument = newArgument;
+            }
+            argument[len++] = b;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * read the next bytes of the stream.
+     *
+     * @return false at the end of the stream
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    private boolean fill()
+        throws IOException {
+
+        int count = in.read(buffer);
+        while (count == 0) {
+            count = in.read(buffer);
+        }
+        position = 0;
+        limit = Math.max(count, 0);
+        return count > 0;
+    }
+
+    /**
+     * create the argument read so far.
+     *
+     * @param len
+     *            the number of bytes of the argument
+     * @return the argument
+     */
+    private String decode(int len) {
+
+        return new String(argument, 0, len, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.io.IOException;
+import java.util.List;
+import org.rcm.cmdline.impl.AbstractOption;
+
+/**
+ * This class holds the help text of a command line, split in the syntax and
+ * the description of each option, and writes it to an {@link Appendable}.
+ * The text is written either as one line per option, see
+ * {@link CommandLine#getHelp()}, or in two columns wrapped to a width, see
+ * {@link CommandLine#getHelp(int)}. The columns and the line breaks are
+ * computed for the first width requested and kept until another width is
+ * requested, writing the help again only copies characters.
+ *
+ * @author Robert Monnet
+ */
+final class HelpLayout {
+
+    // indentation of the option lines
+    private static final int      INDENT         = 4;
+
+    // spaces between the syntax and the description columns
+    private static final int      GAP            = 2;
+
+    // the description column is never narrower, even if the lines are then
+    // wider than requested
+    private static final int      MIN_TEXT_WIDTH = 20;
+
+    // source of the padding
+    private static final String   SPACES         = "                                ";
+
+    // fields
+    private final String          usage;
+    private final String[]        syntax;
+    private final String[]        text;
+    private final String          newLine;
+    private volatile Wrapping     wrapping;
+
+    /**
+     * Construct the layout of a set of options.
+     *
+     * @param hUsage
+     *            the usage text written before the options
+     * @param options
+     *            the options, in the order they are written
+     * @param hNewLine
+     *            the line separator
+     */
+    HelpLayout(String hUsage, List<AbstractOption> options, String hNewLine) {
+
+        usage = hUsage;
+        newLine = hNewLine;
+        syntax = new String[options.size()];
+        text = new String[options.size()];
+        for (int i = 0; i < syntax.length; i++) {
+            syntax[i] = options.get(i).getHelpSyntax();
+            text[i] = options.get(i).getHelpText();
+        }
+    }
+
+    /**
+     * write the help text with one line per option.
+     *
+     * @param out
+     *            the destination of the text
+     * @throws IOException
+     *             if the text cannot be written
+     */
+    void write(Appendable out)
+        throws IOException {
+
+        out.append(usage).append(newLine);
+        for (int i = 0; i < syntax.length; i++) {
+            pad(out, INDENT);
+            out.append(syntax[i]).append(" : ").append(text[i]).append(newLine);
+        }
+    }
+
+    /**
+     * write the help text in two columns, the syntax of the options and their
+     * description wrapped to a width.
+     *
+     * @param out
+     *            the destination of the text
+     * @param width
+     *            the number of characters per line
+     * @throws IOException
+     *             if the text cannot be written
+     */
+    void write(Appendable out, int width)
+        throws IOException {
+
+        Wrapping w = wrapping;
+        if (w == null || w.width != width) {
+            w = new Wrapping(width);
+            wrapping = w;
+        }
+        out.append(usage).append(newLine);
+        for (int i = 0; i < syntax.length; i++) {
+            pad(out, INDENT);
+            out.append(syntax[i]);
+            int[] lines = w.lines[i];
+            int k = 0;
+            if (INDENT + syntax[i].length() + GAP > w.column) {
+                // the syntax overflows the column, the description starts on
+                // the next line
+                out.append(newLine);
+            } else if (lines.length > 0) {
+                pad(out, w.column - INDENT - syntax[i].length());
+                out.append(text[i], lines[0], lines[1]).append(newLine);
+                k = 2;
+            } else {
+                out.append(newLine);
+            }
+            for (; k < lines.length; k += 2) {
+                pad(out, w.column);
+                out.append(text[i], lines[k], lines[k + 1]).append(newLine);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * write spaces.
+     *
+     * @param out
+     *            the destination of the text
+     * @param count
+     *            the number of spaces
+     * @throws IOException
+     *             if the text cannot be written
+     */
+    private static void pad(Appendable out, int count)
+        throws IOException {
+
+        while (count > 0) {
+            int n = Math.min(count, SPACES.length());
+            out.append(SPACES, 0, n);
+            count -= n;
+        }
+    }
+
+    /**
+     * This class holds the columns and the line breaks for a width.
+     */
+    private final class Wrapping {
+
+        // fields
+        final int     width;
+        final int     column;
+        final int[][] lines;
+
+        /**
+         * Construct the wrapping of the descriptions for a width. The
+         * description column follows the longest syntax, up to half the width,
+         * the longer syntaxes are written on their own line.
+         *
+         * @param wWidth
+         *            the number of characters per line
+         */
+        Wrapping(int wWidth) {
+
+            width = wWidth;
+            int longest = 0;
+            for (String s : syntax) {
+                longest = Math.max(longest, s.length());
+            }
+            column = Math.min(INDENT + longest + GAP, Math.max(width / 2, INDENT + GAP));
+            int textWidth = Math.max(width - column, MIN_TEXT_WIDTH);
+            lines = new int[text.length][];
+            for (int i = 0; i < text.length; i++) {
+                lines[i] = wrap(text[i], textWidth);
+            }
+        }
+
+        /**
+         * split a description in lines, at the spaces. A word longer than a
+         * line is not split.
+         *
+         * @param s
+         *            the description
+         * @param max
+         *            the number of characters per line
+         * @return the start and end index of each line
+         */
+        private int[] wrap(String s, int max) {
+
+            int[] res = new int[8];
+            int count = 0;
+            int start = skipSpaces(s, 0);
+            while (start < s.length()) {
+                int end;
+                if (s.length() - start <= max) {
+                    end = s.length();
+                } else {
+                    end = s.lastIndexOf(' ', start + max);
+                    if (end <= start) {
+                        end = s.indexOf(' ', start + max);
+                        if (end < 0) {
+                            end = s.length();
+                        }
+                    }
+                }
+                if (count + 2 > res.length) {
+                    int[] newRes = new int[res.length * 2];
+                    System.arraycopy(res, 0, newRes, 0, count);
+                    res = newRes;
+                }
+                res[count++] = start;
+                res[count++] = trimEnd(s, start, end);
+                start = skipSpaces(s, end);
+            }
+            int[] trimmed = new int[count];
+            System.arraycopy(res, 0, trimmed, 0, count);
+            return trimmed;
+        }
+
+        /**
+         * skip spaces.
+         *
+         * @param s
+         *            the description
+         * @param pos
+         *            the index of the first character to check
+         * @return the index of the next character that is not a space
+         */
+        private int skipSpaces(String s, int pos) {
+
+            while (pos < s.length() && s.charAt(pos) == ' ') {
+                pos++;
+            }
+            return pos;
+        }
+
+        /**
+         * remove the spaces ending a line.
+         *
+         * @param s
+         *            the description
+         * @param start
+         *            the index of the first character of the line
+         * @param end
+         *            the index after the last character of the line
+         * @return the index after the last character that is not a space
+         */
+        private int trimEnd(String s, int start, int end) {
+
+            while (end > start && s.charAt(end - 1) == ' ') {
+                end--;
+            }
+            return end;
+        }
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.Arrays;
+
+/**
+ * This class parses a command line one argument at a time, for interactive
+ * shells that validate the line while it is typed. After each argument it
+ * tells what is expected next and whether the arguments so far are valid, and
+ * the last argument can be removed. Pushing or removing an argument only looks
+ * at that argument, and at the option before it when it is a value, so the
+ * cost does not depend on the length of the line.
+ * <p>
+ * Each argument is checked by the compiled command line itself, the rules are
+ * exactly those of {@link CompiledCommandLine#tryParse(String[])}: values in
+ * the next argument or after <code>=</code>, bundled short toggle options, and
+ * the first argument not starting with an hyphen starts the positional
+ * arguments. Once an argument is in error the following arguments are kept
+ * but not checked, until the error is removed. These checks are not reported
+ * to the {@link ParseListener} of the command line, only the parse of the
+ * whole line by {@link #getResult()} is.
+ *
+ * <pre>
+ * IncrementalParser parser = spec.newIncrementalParser();
+ * parser.push("-v");
+ * parser.push("--output");
+ * parser.getExpected(); // Expected.VALUE
+ * parser.push("report.txt");
+ * parser.pop();
+ * </pre>
+ *
+ * An incremental parser holds the state of one line and is not thread safe,
+ * the compiled command line can be shared.
+ *
+ * @author Robert Monnet
+ */
+public final class IncrementalParser {
+
+    /**
+     * This enum defines what the next argument can be.
+     */
+    public enum Expected {
+
+        /**
+         * an option or the first positional argument
+         */
+        OPTION_OR_POSITIONAL,
+
+        /**
+         * the value of the option in the last argument
+         */
+        VALUE,
+
+        /**
+         * a positional argument, the options are over
+         */
+        POSITIONAL,
+
+        /**
+         * nothing, the arguments are in error
+         */
+        NOTHING
+    }
+
+    // initial capacity of the argument stack
+    private static final int          INITIAL_CAPACITY = 16;
+
+    // fields
+    private final CompiledCommandLine commandLine;
+    private final CompiledCommandLine checker;
+    private String[]                  tokens;
+    private Expected[]                states;
+    private int                       size;
+    private int                       errorToken       = -1;
+    private int                       errorIndex;
+    private ParseResult               error;
+
+    /**
+     * Construct an empty incremental parser.
+     *
+     * @param cl
+     *            the compiled command line checking the arguments
+     */
+    IncrementalParser(CompiledCommandLine cl) {
+
+        commandLine = cl;
+        // the partial lines are not parses of a command, the listener of the
+        // command line does not see them
+        checker = cl.getUnobserved();
+        tokens = new String[INITIAL_CAPACITY];
+        states = new Expected[INITIAL_CAPACITY];
+    }
+
+    /**
+     * add an argument at the end of the line.
+     *
+     * @param token
+     *            the argument
+     * @return what is expected after the argument
+     */
+    public Expected push(String token) {
+
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        Expected state;
+        switch (getExpected()) {
+        case POSITIONAL:
+            state = Expected.POSITIONAL;
+            break;
+        case VALUE:
+            // the option is checked again with its value, this converts the
+            // value and rejects a value starting with an hyphen
+            state = check(new String[] { tokens[size - 1], token }, size - 1);
+            break;
+        case OPTION_OR_POSITIONAL:
+            state = check(new String[] { token }, size);
+            break;
+        default:
+            state = Expected.NOTHING;
+            break;
+        }
+        tokens[size] = token;
+        states[size] = state;
+        size++;
+        return state;
+    }
+
+    /**
+     * remove the last argument of the line.
+     *
+     * @return what is expected once the argument is removed
+     * @throws IllegalStateException
+     *             if the line is empty
+     */
+    public Expected pop()
+        throws IllegalStateException {
+
+        if (size == 0) {
+            throw new IllegalStateException("no argument to remove");
+        }
+        size--;
+        tokens[size] = null;
+        states[size] = null;
+        if (errorToken == size) {
+            errorToken = -1;
+            error = null;
+        }
+        return getExpected();
+    }
+
+    /**
+     * remove all the arguments.
+     */
+    public void clear() {
+
+        Arrays.fill(tokens, 0, size, null);
+        Arrays.fill(states, 0, size, null);
+        size = 0;
+        errorToken = -1;
+        error = null;
+    }
+
+    /**
+     * provide the number of arguments pushed.
+     *
+     * @return the number of arguments
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * provide what the next argument can be.
+     *
+     * @return the expected argument
+     */
+    public Expected getExpected() {
+
+        return size == 0 ? Expected.OPTION_OR_POSITIONAL : states[size - 1];
+    }
+
+    /**
+     * specify if the arguments so far are valid. A line ending with an
+     * option waiting for its value is valid but not complete.
+     *
+     * @return true if no argument is in error
+     */
+    public boolean isValid() {
+
+        return error == null;
+    }
+
+    /**
+     * specify if the arguments form a command line that can be run.
+     *
+     * @return true if the arguments are valid and no option is waiting for
+     *         its value
+     */
+    public boolean isComplete() {
+
+        return error == null && getExpected() != Expected.VALUE;
+    }
+
+    /**
+     * provide the name of the option waiting for its value, as written on the
+     * command line.
+     *
+     * @return the option name or null if no value is expected
+     */
+    public String getPendingOption() {
+
+        if (getExpected() != Expected.VALUE) {
+            return null;
+        }
+        String tok = tokens[size - 1];
+        if (tok.startsWith("--")) {
+            return tok.substring(2);
+        }
+        return tok.substring(1);
+    }
+
+    /**
+     * provide the reason of the error, see {@link ParseResult#getErrorCode()}.
+     *
+     * @return the error code or null if the arguments are valid
+     */
+    public ParseErrorCode getErrorCode() {
+
+        return error == null ? null : error.getErrorCode();
+    }
+
+    /**
+     * provide the index of the argument in error, the option for an invalid
+     * or missing value.
+     *
+     * @return the index of the argument or -1 if the arguments are valid
+     */
+    public int getErrorIndex() {
+
+        return error == null ? -1 : errorIndex;
+    }
+
+    /**
+     * provide the message describing the error, see
+     * {@link ParseResult#getErrorMessage()}.
+     *
+     * @return the message or null if the arguments are valid
+     */
+    public String getErrorMessage() {
+
+        return error == null ? null : error.getErrorMessage();
+    }
+
+    /**
+     * parse the whole line, for instance once it is submitted. The result is
+     * the one of {@link CompiledCommandLine#tryParse(String[])}, an option
+     * waiting for its value gives a {@link ParseErrorCode#MISSING_VALUE}
+     * error.
+     *
+     * @return the options set and the positional arguments, or the error
+     */
+    public ParseResult getResult() {
+
+        return commandLine.tryParse(Arrays.copyOf(tokens, size));
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * check one option, with its value if any, and record the first error.
+     *
+     * @param args
+     *            the option and its value
+     * @param offset
+     *            the index on the line of the first argument
+     * @return what is expected after the last argument
+     */
+    private Expected check(String[] args, int offset) {
+
+        ParseResult res = checker.tryParse(args);
+        if (res.isValid()) {
+            return res.getPositionalOffset() < args.length ? Expected.POSITIONAL
+                : Expected.OPTION_OR_POSITIONAL;
+        }
+        // an option alone at the end of the line waits for its value
+        if (res.getErrorCode() == ParseErrorCode.MISSING_VALUE && args.length == 1) {
+            return Expected.VALUE;
+        }
+        error = res;
+        errorToken = size;
+        errorIndex = offset + res.getErrorIndex();
+        return Expected.NOTHING;
+    }
+
+}
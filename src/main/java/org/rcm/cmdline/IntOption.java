@@ -0,0 +1,33 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This interface defines an option with an int value. The value is converted
+ * when the command line is parsed, invalid values are reported as a
+ * {@link CommandLineException}. It may have a default value even if none is
+ * specified on the command line.
+ *
+ * @author Robert Monnet
+ */
+public interface IntOption {
+
+    /**
+     * get the value associated with the option. The value is only meaningful
+     * if {@link #isSet()} is true, 0 is returned otherwise.
+     *
+     * @return the value associated with the option or 0 if none was
+     *         specified.
+     */
+    public int getValue();
+
+    /**
+     * specify if the option was defined on the command line (or has a default value).
+     *
+     * @return true if the option was set on the command line (or has a default value).
+     */
+    public boolean isSet();
+
+}
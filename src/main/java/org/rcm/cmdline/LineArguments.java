@@ -0,0 +1,235 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This class provides the arguments of a command written as a single line of
+ * text, such as <code>deploy -v --region=eu-1 "my app"</code>. The line is
+ * split following the POSIX shell rules:
+ * <ul>
+ * <li>arguments are separated by white spaces</li>
+ * <li>characters between single quotes are taken literally</li>
+ * <li>between double quotes, a backslash only escapes <code>"</code>,
+ * <code>\</code>, <code>$</code>, <code>`</code> and a new line</li>
+ * <li>outside of quotes, a backslash escapes any character, a backslash
+ * followed by a new line is removed</li>
+ * </ul>
+ * The line is scanned once to find where each argument starts and ends.
+ * Arguments without quotes or escapes remain ranges of the line, the others
+ * are copied without their quotes and escapes. The line must not be modified
+ * while the arguments are in use.
+ *
+ * @author Robert Monnet
+ */
+final class LineArguments
+    extends Arguments {
+
+    // fields
+    private final CharSequence line;
+    private int[]              bounds;
+    private String[]           unquoted;
+    private int                size;
+
+    /**
+     * Construct the arguments by splitting a line.
+     *
+     * @param lLine
+     *            the command line
+     * @throws CommandLineException
+     *             if a quote is not closed or the line ends with a backslash
+     */
+    LineArguments(CharSequence lLine)
+        throws CommandLineException {
+
+        line = lLine;
+        bounds = new int[16];
+
+        int len = line.length();
+        int i = 0;
+        while (true) {
+            // skip the white spaces between arguments
+            while (i < len && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == len) {
+                break;
+            }
+
+            // read an argument, the builder is only created if the argument
+            // has quotes or escapes
+            int start = i;
+            StringBuilder buf = null;
+            char quote = 0;
+            boolean quoted = false;
+            for (; i < len; i++) {
+                char c = line.charAt(i);
+                if (quote == 0 && Character.isWhitespace(c)) {
+                    break;
+                }
+                if (quote == '\'') {
+                    if (c == '\'') {
+                        quote = 0;
+                    } else {
+                        buf.append(c);
+                    }
+                } else if (c == '\\') {
+                    if (i + 1 == len) {
+                        throw new CommandLineException("missing character after \\ in '" + line
+                            + "'", false);
+                    }
+                    char next = line.charAt(++i);
+                    buf = startBuffer(buf, start, i - 1);
+                    if (next == '\n') {
+                        // line continuation
+                        continue;
+                    }
+                    if (quote == '"' && "\"\\$`".indexOf(next) < 0) {
+                        buf.append(c);
+                    }
+                    buf.append(next);
+                } else if (c == '"') {
+                    buf = startBuffer(buf, start, i);
+                    quote = quote == 0 ? '"' : 0;
+                    quoted = true;
+                } else if (c == '\'' && quote == 0) {
+                    buf = startBuffer(buf, start, i);
+                    quote = '\'';
+                    quoted = true;
+                } else if (buf != null) {
+                    buf.append(c);
+                }
+            }
+            if (quote != 0) {
+                throw new CommandLineException("missing closing quote in '" + line + "'", false);
+            }
+            // a word made only of line continuations is not an argument,
+            // unlike empty quotes
+            if (buf == null || buf.length() > 0 || quoted) {
+                add(start, i, buf == null ? null : buf.toString());
+            }
+        }
+    }
+
+    /**
+     * @see Arguments#size()
+     */
+    @Override
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * @see Arguments#text(int)
+     */
+    @Override
+    CharSequence text(int i) {
+
+        return isUnquoted(i) ? unquoted[i] : line;
+    }
+
+    /**
+     * @see Arguments#start(int)
+     */
+    @Override
+    int start(int i) {
+
+        return isUnquoted(i) ? 0 : bounds[2 * i];
+    }
+
+    /**
+     * @see Arguments#end(int)
+     */
+    @Override
+    int end(int i) {
+
+        return isUnquoted(i) ? unquoted[i].length() : bounds[2 * i + 1];
+    }
+
+    /**
+     * @see Arguments#get(int)
+     */
+    @Override
+    String get(int i) {
+
+        if (isUnquoted(i)) {
+            return unquoted[i];
+        }
+        return line.subSequence(bounds[2 * i], bounds[2 * i + 1]).toString();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * specify if an argument had quotes or escapes removed.
+     *
+     * @param i
+     *            the argument index
+     * @return true if the argument is held as a separate String
+     */
+    private boolean isUnquoted(int i) {
+
+        // the array only covers the arguments up to the last unquoted one
+        return unquoted != null && i < unquoted.length && unquoted[i] != null;
+    }
+
+    /**
+     * create the builder for an argument with quotes or escapes, starting with
+     * the characters read so far.
+     *
+     * @param buf
+     *            the current builder or null
+     * @param start
+     *            the index of the first character of the argument
+     * @param end
+     *            the index of the first quote or escape
+     * @return the builder
+     */
+    private StringBuilder startBuffer(StringBuilder buf, int start, int end) {
+
+        if (buf != null) {
+            return buf;
+        }
+        StringBuilder res = new StringBuilder();
+        res.append(line, start, end);
+        return res;
+    }
+
+    /**
+     * record an argument.
+     *
+     * @param start
+     *            the index of the first character of the argument
+     * @param end
+     *            the index after the last character of the argument
+     * @param value
+     *            the argument without quotes or escapes, or null if the
+     *            argument is the range of the line
+     */
+    private void add(int start, int end, String value) {
+
+        if (2 * size + 2 > bounds.length) {
+            int[] newBounds = new int[bounds.length * 2];
+            System.arraycopy(bounds, 0, newBounds, 0, bounds.length);
+            bounds = newBounds;
+        }
+        bounds[2 * size] = start;
+        bounds[2 * size + 1] = end;
+        if (value != null) {
+            if (unquoted == null) {
+                unquoted = new String[bounds.length / 2];
+            } else if (unquoted.length < bounds.length / 2) {
+                String[] newUnquoted = new String[bounds.length / 2];
+                System.arraycopy(unquoted, 0, newUnquoted, 0, unquoted.length);
+                unquoted = newUnquoted;
+            }
+            unquoted[size] = value;
+        }
+        size++;
+    }
+
+}
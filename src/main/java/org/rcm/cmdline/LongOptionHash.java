@@ -0,0 +1,312 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.rcm.cmdline.impl.AbstractOption;
+
+/**
+ * This class provides an immutable lookup of options by exact long name,
+ * through a perfect hash table built for one set of options. The table uses
+ * the hash and displace scheme: names are first spread in small buckets, then
+ * each bucket gets the displacement that places all its names in free slots.
+ * A lookup hashes the characters of the token once, reads the displacement of
+ * its bucket and compares the token with the single long name found in the
+ * slot, there is no probing and no object is created.
+ * <p>
+ * Building the table costs more than building a {@link LongOptionTrie}, it is
+ * only used by specialized command lines, see
+ * {@link CommandLine#specialize()}. Abbreviations cannot be resolved through
+ * a hash, they are handled by the trie.
+ *
+ * @author Robert Monnet
+ */
+final class LongOptionHash {
+
+    // number of displacements tried for a bucket before giving up
+    private static final int       MAX_DISPLACEMENT = 1 << 16;
+
+    // FNV-1a constants, two offset bases give two independent hashes
+    private static final int       FNV_OFFSET_1     = 0x811C9DC5;
+    private static final int       FNV_OFFSET_2     = 0x050C5D1F;
+    private static final int       FNV_PRIME        = 0x01000193;
+
+    // multiplier spreading the displacements
+    private static final int       GOLDEN           = 0x9E3779B9;
+
+    // fields
+    private final int[]            displacements;
+    private final int              bucketShift;
+    private final AbstractOption[] options;
+    private final String[]         names;
+    private final int              slotShift;
+
+    /**
+     * Construct the table from a collision free placement.
+     *
+     * @param hDisplacements
+     *            the displacement of each bucket
+     * @param hOptions
+     *            the options by slot
+     */
+    private LongOptionHash(int[] hDisplacements, AbstractOption[] hOptions) {
+
+        displacements = hDisplacements;
+        bucketShift = 32 - Integer.numberOfTrailingZeros(hDisplacements.length);
+        options = hOptions;
+        slotShift = 32 - Integer.numberOfTrailingZeros(hOptions.length);
+        names = new String[hOptions.length];
+        for (int i = 0; i < hOptions.length; i++) {
+            names[i] = hOptions[i] == null ? null : hOptions[i].getLongName();
+        }
+    }
+
+    /**
+     * build the table for a set of options. Options without a long name are
+     * ignored.
+     *
+     * @param optionList
+     *            the options to index
+     * @return the table or null if no collision free placement was found,
+     *         which only happens if two names have the same hashes
+     */
+    static LongOptionHash build(List<AbstractOption> optionList) {
+
+        List<AbstractOption> named = new ArrayList<AbstractOption>();
+        for (AbstractOption option : optionList) {
+            if (option.getLongName() != null) {
+                named.add(option);
+            }
+        }
+
+        // the table is at most half full and buckets hold two names on
+        // average, which keeps the displacement search short
+        int slots = 2;
+        while (slots < 2 * named.size()) {
+            slots <<= 1;
+        }
+        int buckets = Math.max(1, slots / 4);
+        int bShift = 32 - Integer.numberOfTrailingZeros(buckets);
+        int sShift = 32 - Integer.numberOfTrailingZeros(slots);
+
+        // spread the names in buckets
+        List<List<AbstractOption>> bucketList = new ArrayList<List<AbstractOption>>();
+        for (int i = 0; i < buckets; i++) {
+            bucketList.add(new ArrayList<AbstractOption>());
+        }
+        for (AbstractOption option : named) {
+            String name = option.getLongName();
+            bucketList.get(bucket(hash(name, 0, name.length(), FNV_OFFSET_1), bShift)).add(option);
+        }
+
+        // place the largest buckets first, while the table is still empty
+        Integer[] order = new Integer[buckets];
+        for (int i = 0; i < buckets; i++) {
+            order[i] = i;
+        }
+        final List<List<AbstractOption>> sizes = bucketList;
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer b1, Integer b2) {
+
+                return sizes.get(b2).size() - sizes.get(b1).size();
+            }
+        });
+
+        int[] disp = new int[buckets];
+        AbstractOption[] table = new AbstractOption[slots];
+        for (Integer b : order) {
+            List<AbstractOption> bucket = bucketList.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            int d = findDisplacement(bucket, table, sShift);
+            if (d < 0) {
+                return null;
+            }
+            disp[b] = d;
+            for (AbstractOption option : bucket) {
+                String name = option.getLongName();
+                table[slot(hash(name, 0, name.length(), FNV_OFFSET_2), d, sShift)] = option;
+            }
+        }
+        return new LongOptionHash(disp, table);
+    }
+
+    /**
+     * find the option with a given long name.
+     *
+     * @param text
+     *            the characters holding the name
+     * @param start
+     *            the index of the first character of the name
+     * @param end
+     *            the index after the last character of the name
+     * @return the option or null if no option has this long name
+     */
+    AbstractOption get(CharSequence text, int start, int end) {
+
+        // both hashes are computed in the same pass over the characters
+        int h1 = FNV_OFFSET_1;
+        int h2 = FNV_OFFSET_2;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            h1 = (h1 ^ c) * FNV_PRIME;
+            h2 = (h2 ^ c) * FNV_PRIME;
+        }
+        int pos = slot(h2, displacements[bucket(h1, bucketShift)], slotShift);
+        String name = names[pos];
+        if (name == null || name.length() != end - start) {
+            return null;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return null;
+            }
+        }
+        return options[pos];
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * find a displacement placing all the names of a bucket in free and
+     * distinct slots.
+     *
+     * @param bucket
+     *            the options of the bucket
+     * @param table
+     *            the slots already taken
+     * @param sShift
+     *            the shift giving the slot from the hash
+     * @return the displacement or -1 if none was found
+     */
+    private static int findDisplacement(List<AbstractOption> bucket, AbstractOption[] table,
+        int sShift) {
+
+        int[] hashes = new int[bucket.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            String name = bucket.get(i).getLongName();
+            hashes[i] = hash(name, 0, name.length(), FNV_OFFSET_2);
+        }
+        int[] positions = new int[hashes.length];
+        for (int d = 0; d < MAX_DISPLACEMENT; d++) {
+            if (isFree(hashes, positions, d, table, sShift)) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * verify that a displacement places the names of a bucket in free and
+     * distinct slots.
+     *
+     * @param hashes
+     *            the second hash of each name of the bucket
+     * @param positions
+     *            scratch array receiving the slots of the names
+     * @param d
+     *            the displacement tried
+     * @param table
+     *            the slots already taken
+     * @param sShift
+     *            the shift giving the slot from the hash
+     * @return true if all the slots are free and distinct
+     */
+    private static boolean isFree(int[] hashes, int[] positions, int d, AbstractOption[] table,
+        int sShift) {
+
+        for (int i = 0; i < hashes.length; i++) {
+            int pos = slot(hashes[i], d, sShift);
+            if (table[pos] != null) {
+                return false;
+            }
+            // buckets are small, a linear scan finds the duplicates
+            for (int j = 0; j < i; j++) {
+                if (positions[j] == pos) {
+                    return false;
+                }
+            }
+            positions[i] = pos;
+        }
+        return true;
+    }
+
+    /**
+     * hash a range of characters.
+     *
+     * @param text
+     *            the characters
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param offset
+     *            the FNV-1a offset basis
+     * @return the hash
+     */
+    private static int hash(CharSequence text, int start, int end, int offset) {
+
+        int h = offset;
+        for (int i = start; i < end; i++) {
+            h = (h ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * select the bucket of a name.
+     *
+     * @param h1
+     *            the first hash of the name
+     * @param shift
+     *            the shift giving the bucket from the hash
+     * @return the bucket index
+     */
+    private static int bucket(int h1, int shift) {
+
+        return shift == 32 ? 0 : mix(h1) >>> shift;
+    }
+
+    /**
+     * select the slot of a name.
+     *
+     * @param h2
+     *            the second hash of the name
+     * @param d
+     *            the displacement of the bucket of the name
+     * @param shift
+     *            the shift giving the slot from the hash
+     * @return the slot index
+     */
+    private static int slot(int h2, int d, int shift) {
+
+        return mix(h2 + d * GOLDEN) >>> shift;
+    }
+
+    /**
+     * spread the bits of a hash, the high bits are used as index.
+     *
+     * @param h
+     *            the hash
+     * @return the mixed hash
+     */
+    private static int mix(int h) {
+
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+}
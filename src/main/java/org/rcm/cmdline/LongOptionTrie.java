@@ -0,0 +1,233 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.Arrays;
+import java.util.List;
+import org.rcm.cmdline.impl.AbstractOption;
+
+/**
+ * This class provides an immutable lookup of options by long name. The long
+ * names are stored in a character trie that is walked directly over the
+ * characters of the command line token, stopping at the end of the token or at
+ * the first equal sign. No object is created during a lookup.
+ * <p>
+ * Each node of the trie knows if a single option is reachable from it, which
+ * makes unique prefix abbreviations (<code>--verb</code> for
+ * <code>--verbose</code>) as cheap as exact matches.
+ *
+ * @author Robert Monnet
+ */
+final class LongOptionTrie {
+
+    // fields
+    private final Node root;
+
+    /**
+     * Construct the trie for a set of options. Options without a long name are
+     * ignored.
+     *
+     * @param options
+     *            the options to index
+     */
+    LongOptionTrie(List<AbstractOption> options) {
+
+        root = new Node(0);
+        for (AbstractOption option : options) {
+            String longName = option.getLongName();
+            if (longName != null) {
+                root.insert(longName, option);
+            }
+        }
+        root.computeUnique();
+    }
+
+    /**
+     * walk the trie over the characters of a token, starting at a given
+     * position and stopping at the end of the token or at the first equal
+     * sign.
+     *
+     * @param text
+     *            the characters holding the command line token
+     * @param start
+     *            the position of the first character of the option name
+     * @param end
+     *            the position after the last character of the token
+     * @return the node reached or null if no long name starts with the
+     *         characters of the token
+     */
+    Node find(CharSequence text, int start, int end) {
+
+        Node node = root;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * This class defines a node of the trie. The node is reached after reading
+     * {@link Node#depth} characters of an option name.
+     */
+    static final class Node {
+
+        // fields
+        private final int      depth;
+        private char[]         keys     = new char[0];
+        private Node[]         children = new Node[0];
+        private AbstractOption option;
+        private AbstractOption unique;
+        private int            count;
+
+        /**
+         * Construct an empty node.
+         *
+         * @param nDepth
+         *            the number of characters read to reach the node
+         */
+        private Node(int nDepth) {
+
+            depth = nDepth;
+        }
+
+        /**
+         * provide the number of characters of the option name read to reach
+         * the node.
+         *
+         * @return the node depth
+         */
+        int getDepth() {
+
+            return depth;
+        }
+
+        /**
+         * provide the option whose long name ends on this node.
+         *
+         * @return the option or null if no long name ends on this node
+         */
+        AbstractOption getOption() {
+
+            return option;
+        }
+
+        /**
+         * provide the option whose long name ends on this node or, if none,
+         * the only option whose long name starts with the characters read so
+         * far.
+         *
+         * @return the option or null if there is none or more than one
+         */
+        AbstractOption getUniqueOption() {
+
+            return option != null ? option : unique;
+        }
+
+        /**
+         * add the options whose long name starts with the characters read to
+         * reach this node, in long name order.
+         *
+         * @param res
+         *            the list receiving the options
+         */
+        void collect(List<AbstractOption> res) {
+
+            if (option != null) {
+                res.add(option);
+            }
+            for (Node child : children) {
+                child.collect(res);
+            }
+        }
+
+        /**
+         * find the child reached by reading a character.
+         *
+         * @param c
+         *            the character read
+         * @return the child node or null if none
+         */
+        private Node child(char c) {
+
+            int pos = Arrays.binarySearch(keys, c);
+            return pos >= 0 ? children[pos] : null;
+        }
+
+        /**
+         * add an option below this node.
+         *
+         * @param name
+         *            the option long name
+         * @param opt
+         *            the option
+         */
+        private void insert(String name, AbstractOption opt) {
+
+            Node node = this;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                Node next = node.child(c);
+                if (next == null) {
+                    next = node.addChild(c);
+                }
+                node = next;
+            }
+            node.option = opt;
+        }
+
+        /**
+         * create a new child, keeping the keys sorted.
+         *
+         * @param c
+         *            the character leading to the child
+         * @return the new child
+         */
+        private Node addChild(char c) {
+
+            int pos = -Arrays.binarySearch(keys, c) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(keys, pos, newKeys, pos + 1, keys.length - pos);
+            System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+            Node res = new Node(depth + 1);
+            newKeys[pos] = c;
+            newChildren[pos] = res;
+            keys = newKeys;
+            children = newChildren;
+            return res;
+        }
+
+        /**
+         * count the options reachable from each node and remember the option
+         * when it is the only one.
+         */
+        private void computeUnique() {
+
+            count = option != null ? 1 : 0;
+            unique = option;
+            for (Node child : children) {
+                child.computeUnique();
+                count += child.count;
+                if (child.count == 1) {
+                    unique = child.unique;
+                }
+            }
+            if (count != 1) {
+                unique = null;
+            }
+        }
+
+    }
+
+}
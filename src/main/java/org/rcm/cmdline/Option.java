@@ -0,0 +1,45 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This interface defines what any declared option tells about itself, whatever
+ * its type: its names and its position in the command line. It is the type of
+ * the options reported by {@link CompiledCommandLine#getOption(int)},
+ * {@link ParseResult#getSetOption(int)} and
+ * {@link ParseResult#getFailedOption()}, for tools such as monitoring
+ * listeners. The values are read with the typed interfaces, such as
+ * {@link ValueOption}.
+ *
+ * @author Robert Monnet
+ */
+public interface Option {
+
+    /**
+     * provide the option's short name.
+     *
+     * @return the short name associated with the option or null if none is
+     *         associated.
+     */
+    public String getShortName();
+
+    /**
+     * provide the option's long name.
+     *
+     * @return the long name associated with the option or null if none is
+     *         associated.
+     */
+    public String getLongName();
+
+    /**
+     * provide the option's position in the command line it belongs to, the
+     * options are indexed in the order they were added.
+     *
+     * @return the option index or -1 if the option was not added to a command
+     *         line yet.
+     */
+    public int getIndex();
+
+}
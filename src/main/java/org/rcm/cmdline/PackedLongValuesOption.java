@@ -0,0 +1,40 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.nio.LongBuffer;
+
+/**
+ * This interface defines an option with a set of long values, separated by
+ * commas on the command line, for lists too large to be held as objects. The
+ * values are converted when the command line is parsed and packed outside of
+ * the heap, 8 bytes per value. Invalid values are reported as a
+ * {@link CommandLineException}. It can accept a set of default values even if
+ * none is specified on the command line.
+ *
+ * @author Robert Monnet
+ */
+public interface PackedLongValuesOption {
+
+    /**
+     * get the values associated with the option as a read-only buffer. The
+     * values can be read in order with {@link LongBuffer#get()} or by index
+     * with {@link LongBuffer#get(int)}, each call returns a new buffer
+     * positioned on the first value. a value of null indicates that the
+     * option was not specified and that no default value is available.
+     *
+     * @return the values associated with the option or null if none was
+     *         specified.
+     */
+    public LongBuffer getValues();
+
+    /**
+     * specify if the option was defined on the command line (or has default values).
+     *
+     * @return true if the option was set on the command line (or has default values).
+     */
+    public boolean isSet();
+
+}
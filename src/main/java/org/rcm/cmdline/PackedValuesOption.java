@@ -0,0 +1,52 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * This interface defines an option with a set of string values, separated by
+ * commas on the command line, for lists too large to be held as objects. The
+ * values follow the rules of {@link ValuesOption} but are encoded in UTF-8
+ * outside of the heap, each value preceded by its length. It can accept a set
+ * of default values even if none is specified on the command line.
+ *
+ * @author Robert Monnet
+ */
+public interface PackedValuesOption {
+
+    /**
+     * get the values associated with the option as a read-only list. A value
+     * is decoded each time it is read, the list itself holds no string. a
+     * value of null indicates that the option was not specified and that no
+     * default value is available.
+     *
+     * @return the list of values associated with the option or null if none
+     *         was specified.
+     */
+    public List<String> getValueList();
+
+    /**
+     * get the encoded values associated with the option as a read-only
+     * buffer, to read them in order without decoding them. Each value is a 4
+     * byte big endian length followed by that many bytes of UTF-8, each call
+     * returns a new buffer positioned on the first value. a value of null
+     * indicates that the option was not specified and that no default value
+     * is available.
+     *
+     * @return the encoded values associated with the option or null if none
+     *         was specified.
+     */
+    public ByteBuffer getEncodedValues();
+
+    /**
+     * specify if the option was defined on the command line (or has default values).
+     *
+     * @return true if the option was set on the command line (or has default values).
+     */
+    public boolean isSet();
+
+}
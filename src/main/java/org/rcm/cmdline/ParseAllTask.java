@@ -0,0 +1,105 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class parses a range of command lines on a fork-join pool. The range is
+ * split in halves until it is small enough to be parsed by a single task, each
+ * result is stored at the index of its command line so the results keep the
+ * input order. A command line that cannot be parsed gets a result holding the
+ * error and does not stop the other tasks.
+ * <p>
+ * The tasks only read the compiled command line, which is immutable, and each
+ * of them writes to its own range of the results array.
+ *
+ * @author Robert Monnet
+ */
+final class ParseAllTask
+    extends RecursiveAction {
+
+    /**
+     * serial id for the class
+     */
+    private static final long         serialVersionUID = 2215306712390464751L;
+
+    // fields
+    private final CompiledCommandLine commandLine;
+    private final Object[]            commands;
+    private final boolean             lines;
+    private final ParseResult[]       results;
+    private final int                 from;
+    private final int                 to;
+    private final int                 threshold;
+
+    /**
+     * Construct a task parsing a range of command lines.
+     *
+     * @param cl
+     *            the compiled command line
+     * @param tCommands
+     *            the command lines, either argument arrays or lines of text
+     * @param tLines
+     *            true if the command lines are lines of text
+     * @param tResults
+     *            the array receiving the results
+     * @param tFrom
+     *            the index of the first command line of the range
+     * @param tTo
+     *            the index after the last command line of the range
+     * @param tThreshold
+     *            the number of command lines below which the range is parsed
+     *            without splitting it
+     */
+    ParseAllTask(CompiledCommandLine cl, Object[] tCommands, boolean tLines, ParseResult[] tResults,
+        int tFrom, int tTo, int tThreshold) {
+
+        commandLine = cl;
+        commands = tCommands;
+        lines = tLines;
+        results = tResults;
+        from = tFrom;
+        to = tTo;
+        threshold = tThreshold;
+    }
+
+    /**
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+
+        if (to - from <= threshold) {
+            for (int i = from; i < to; i++) {
+                results[i] = parse(commands[i]);
+            }
+        } else {
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseAllTask(commandLine, commands, lines, results, from, mid, threshold),
+                new ParseAllTask(commandLine, commands, lines, results, mid, to, threshold));
+        }
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * parse a single command line, the error if any is kept in the result.
+     *
+     * @param command
+     *            the argument array or the line of text
+     * @return the parse result
+     */
+    private ParseResult parse(Object command) {
+
+        if (lines) {
+            return commandLine.tryParseLine((CharSequence) command);
+        }
+        return commandLine.tryParse((String[]) command);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This enum defines the reasons why a command line cannot be parsed, as
+ * reported by {@link ParseResult#getErrorCode()}.
+ *
+ * @author Robert Monnet
+ */
+public enum ParseErrorCode {
+
+    /**
+     * an argument is <code>-</code> or <code>--</code> without option name
+     */
+    MISSING_OPTION_NAME,
+
+    /**
+     * no option is declared with the short or long name found
+     */
+    UNKNOWN_OPTION,
+
+    /**
+     * the abbreviated long name found is the prefix of several long names
+     */
+    AMBIGUOUS_OPTION,
+
+    /**
+     * the option expects a value but none follows it
+     */
+    MISSING_VALUE,
+
+    /**
+     * the option is a toggle option but a value is attached to it
+     */
+    UNEXPECTED_VALUE,
+
+    /**
+     * the option expects a value but is bundled with other short options
+     */
+    VALUE_IN_COMBINATION,
+
+    /**
+     * the value of the option cannot be converted, for instance a number that
+     * is not valid
+     */
+    INVALID_VALUE,
+
+    /**
+     * the line cannot be split into arguments, a quote is not closed or the
+     * line ends with a backslash
+     */
+    INVALID_LINE,
+
+    /**
+     * an argument file named by an argument starting with <code>@</code>
+     * cannot be read
+     */
+    INVALID_ARG_FILE
+
+}
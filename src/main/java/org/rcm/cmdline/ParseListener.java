@@ -0,0 +1,102 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+/**
+ * This interface observes the work done by a command line, for monitoring
+ * tools that measure where the time goes. It is set with
+ * {@link CommandLine#setParseListener(ParseListener)} and called for:
+ * <ul>
+ * <li>each parse of an array of arguments or of a line, by
+ * {@link CompiledCommandLine} and therefore by {@link CommandLine}. The
+ * arguments checked one at a time by an {@link IncrementalParser} or for a
+ * completion are not reported</li>
+ * <li>each conversion of an option value, toggle options are not
+ * converted</li>
+ * <li>the creation of the exception describing an error, see
+ * {@link ParseResult#getError()}</li>
+ * </ul>
+ * Each step calls a start method then a finish method. The object returned by
+ * the start method is passed to the finish method, a listener uses it to carry
+ * its own state, such as an event being timed or a start time. The command
+ * line does not measure anything itself, without a listener the cost is a
+ * single test per step.
+ * <p>
+ * A compiled command line can be used by several threads, the listener is
+ * called concurrently and must be thread safe. It is called on the parse path
+ * and should return quickly.
+ *
+ * @author Robert Monnet
+ */
+public interface ParseListener {
+
+    /**
+     * called before the arguments are parsed.
+     *
+     * @param commandLine
+     *            the command line parsing the arguments
+     * @param argumentCount
+     *            the number of arguments, including the arguments read from
+     *            argument files
+     * @return the state passed to {@link #parseFinished(Object, ParseResult)},
+     *         may be null
+     */
+    Object parseStarted(CompiledCommandLine commandLine, int argumentCount);
+
+    /**
+     * called once the arguments are parsed, whether they are valid or not.
+     *
+     * @param context
+     *            the state returned by
+     *            {@link #parseStarted(CompiledCommandLine, int)}
+     * @param result
+     *            the parse result
+     */
+    void parseFinished(Object context, ParseResult result);
+
+    /**
+     * called before the value of an option is converted.
+     *
+     * @param option
+     *            the option, as returned when it was added to the command
+     *            line
+     * @return the state passed to
+     *         {@link #conversionFinished(Object, Object, boolean)}, may be null
+     */
+    Object conversionStarted(Object option);
+
+    /**
+     * called once the value of an option is converted.
+     *
+     * @param context
+     *            the state returned by {@link #conversionStarted(Object)}
+     * @param option
+     *            the option
+     * @param valid
+     *            false if the value could not be converted
+     */
+    void conversionFinished(Object context, Object option, boolean valid);
+
+    /**
+     * called before the exception describing an error is created.
+     *
+     * @param result
+     *            the parse result in error
+     * @return the state passed to {@link #errorFinished(Object, ParseResult)},
+     *         may be null
+     */
+    Object errorStarted(ParseResult result);
+
+    /**
+     * called once the exception describing an error is created.
+     *
+     * @param context
+     *            the state returned by {@link #errorStarted(ParseResult)}
+     * @param result
+     *            the parse result in error
+     */
+    void errorFinished(Object context, ParseResult result);
+
+}
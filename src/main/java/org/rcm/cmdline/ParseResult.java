@@ -0,0 +1,949 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import org.rcm.cmdline.impl.AbstractOption;
+import org.rcm.cmdline.impl.PackedLongValuesOptionImpl;
+import org.rcm.cmdline.impl.PackedValuesOptionImpl;
+import org.rcm.cmdline.impl.ValuesOptionImpl;
+
+/**
+ * This class holds the outcome of {@link CompiledCommandLine#parse(String[])}.
+ * Option values are retrieved by passing the option returned when the command
+ * line was set up, the option itself is never modified. Options that are not
+ * set on the command line report their default value, if any.
+ * <p>
+ * Only the options found on the command line are recorded, in a small hash
+ * table keyed on the option index, so the cost of a result depends on the
+ * number of arguments parsed rather than on the number of options declared.
+ * <p>
+ * The results returned by {@link CompiledCommandLine#tryParse(String[])} or
+ * {@link CompiledCommandLine#parseAll(Iterable)} can hold an error instead of
+ * options, see {@link #isValid()}. The error is described by a code and the
+ * index of the argument in error, the message is only built when requested.
+ * Querying the options or the positional arguments of such a result throws
+ * the error.
+ *
+ * @author Robert Monnet
+ */
+public final class ParseResult {
+
+    // smallest capacity of the option table
+    private static final int          MIN_CAPACITY = 8;
+
+    // shared result when there are no positional arguments
+    private static final String[]     NO_ARGUMENTS = new String[0];
+
+    // fields
+    private final CompiledCommandLine commandLine;
+    private int[]                     keys;
+    private Object[]                  values;
+    private long[]                    bits;
+    private int[]                     order;
+    private int                       size;
+    private Arguments                 args;
+    private int                       positionalOffset;
+    private ParseErrorCode            errorCode;
+    private int                       errorIndex   = -1;
+    private int                       errorPosition;
+    private String                    errorDetail;
+    private AbstractOption            errorOption;
+    private CommandLineException      error;
+
+    /**
+     * Construct an empty result for a compiled command line.
+     *
+     * @param cl
+     *            the compiled command line producing the result
+     * @param expected
+     *            the expected number of options set
+     */
+    ParseResult(CompiledCommandLine cl, int expected) {
+
+        commandLine = cl;
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expected) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+        bits = new long[capacity];
+        order = new int[capacity / 2];
+    }
+
+    /**
+     * specify if the command line was parsed successfully. This is always the
+     * case for the result of {@link CompiledCommandLine#parse(String[])},
+     * which throws on errors instead.
+     *
+     * @return true if the command line matched the set of defined options
+     */
+    public boolean isValid() {
+
+        return errorCode == null;
+    }
+
+    /**
+     * provide the reason why the command line could not be parsed.
+     *
+     * @return the error code or null if the command line is valid
+     */
+    public ParseErrorCode getErrorCode() {
+
+        return errorCode;
+    }
+
+    /**
+     * provide the index of the argument holding the option in error. For an
+     * invalid value, this is the argument holding the option, not the value.
+     *
+     * @return the argument index or -1 if the command line is valid or could
+     *         not be split into arguments
+     */
+    public int getErrorIndex() {
+
+        return errorIndex;
+    }
+
+    /**
+     * provide the name of the option in error, as written on the command line
+     * (abbreviations are not expanded).
+     *
+     * @return the option name or null if the command line is valid or the
+     *         error is not related to an option
+     */
+    public String getErrorOption() {
+
+        // the arguments are not kept when an argument file cannot be read
+        if (errorIndex < 0 || args == null || errorCode == ParseErrorCode.MISSING_OPTION_NAME) {
+            return null;
+        }
+        String tok = args.get(errorIndex);
+        if (tok.startsWith("--")) {
+            int eqIdx = tok.indexOf('=');
+            return eqIdx < 0 ? tok.substring(2) : tok.substring(2, eqIdx);
+        }
+        if (errorPosition > 0) {
+            return String.valueOf(tok.charAt(errorPosition));
+        }
+        return tok.substring(1);
+    }
+
+    /**
+     * provide the declared option in error, for the errors found once the
+     * option name is resolved: a missing, unexpected or invalid value, or a
+     * value option bundled with other short options.
+     *
+     * @return the option, as returned when it was added to the command line,
+     *         or null if the command line is valid or the error is not
+     *         related to a declared option
+     */
+    public Option getFailedOption() {
+
+        return errorOption;
+    }
+
+    /**
+     * provide a message describing why the command line could not be parsed.
+     * The message is built on each call.
+     *
+     * @return the message or null if the command line is valid
+     */
+    public String getErrorMessage() {
+
+        if (errorCode == null) {
+            return null;
+        }
+        switch (errorCode) {
+        case MISSING_OPTION_NAME:
+            return "missing short option after " + args.get(errorIndex);
+        case UNKNOWN_OPTION:
+            return "unknown option " + (isLongOptionError() ? "long" : "short") + " name '"
+                + getErrorOption() + "'";
+        case AMBIGUOUS_OPTION:
+            return "ambiguous option long name '" + getErrorOption() + "'";
+        case MISSING_VALUE:
+            return "option '" + getErrorOption() + "' was expecting a value";
+        case UNEXPECTED_VALUE:
+            return "option '" + getErrorOption() + "' was not expecting a value";
+        case VALUE_IN_COMBINATION:
+            return "option '" + getErrorOption()
+                + "' was expecting a value, cannot be used in combination with other options '"
+                + args.get(errorIndex) + "'";
+        default:
+            return errorDetail;
+        }
+    }
+
+    /**
+     * provide the reason why the command line could not be parsed as an
+     * exception, ready to be thrown. The exception is created on the first
+     * call.
+     *
+     * @return the error or null if the command line is valid
+     */
+    public CommandLineException getError() {
+
+        if (error == null && errorCode != null) {
+            ParseListener listener = commandLine.getParseListener();
+            if (listener == null) {
+                error = new CommandLineException(getErrorMessage());
+            } else {
+                Object context = listener.errorStarted(this);
+                error = new CommandLineException(getErrorMessage());
+                listener.errorFinished(context, this);
+            }
+        }
+        return error;
+    }
+
+    /**
+     * specify if a toggle option was defined on the command line.
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(ToggleOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * specify if a value option was defined on the command line (or has a
+     * default value).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has a default
+     *         value).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(ValueOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * specify if a values option was defined on the command line (or has
+     * default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(ValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the value associated with an option. a value of null indicates that
+     * the option was not specified and that no default value is available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the value associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public String getValue(ValueOption option)
+        throws IllegalArgumentException {
+
+        return (String) get(option);
+    }
+
+    /**
+     * get the list of values associated with an option. a value of null
+     * indicates that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public String[] getValues(ValuesOption option)
+        throws IllegalArgumentException {
+
+        Object value = get(option);
+        return ((ValuesOptionImpl) option).toArray(value);
+    }
+
+    /**
+     * get the list of values associated with an option as a read-only list,
+     * the values are only created when they are read. a value of null
+     * indicates that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public List<String> getValueList(ValuesOption option)
+        throws IllegalArgumentException {
+
+        Object value = get(option);
+        return ((ValuesOptionImpl) option).toList(value);
+    }
+
+    /**
+     * specify if an int option was defined on the command line (or has a
+     * default value).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has a default
+     *         value).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(IntOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the value associated with an int option. The value is only
+     * meaningful if the option is set, 0 is returned otherwise.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the value associated with the option or 0 if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public int getValue(IntOption option)
+        throws IllegalArgumentException {
+
+        long res = getBits(option);
+        return (int) res;
+    }
+
+    /**
+     * specify if a long option was defined on the command line (or has a
+     * default value).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has a default
+     *         value).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(LongOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the value associated with a long option. The value is only
+     * meaningful if the option is set, 0 is returned otherwise.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the value associated with the option or 0 if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public long getValue(LongOption option)
+        throws IllegalArgumentException {
+
+        long res = getBits(option);
+        return res;
+    }
+
+    /**
+     * specify if a double option was defined on the command line (or has a
+     * default value).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has a default
+     *         value).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(DoubleOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the value associated with a double option. The value is only
+     * meaningful if the option is set, 0 is returned otherwise.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the value associated with the option or 0 if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public double getValue(DoubleOption option)
+        throws IllegalArgumentException {
+
+        long res = getBits(option);
+        return Double.longBitsToDouble(res);
+    }
+
+    /**
+     * specify if a set of int values was defined on the command line (or has
+     * default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(IntValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the int values associated with an option. a value of null indicates
+     * that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public int[] getValues(IntValuesOption option)
+        throws IllegalArgumentException {
+
+        return (int[]) get(option);
+    }
+
+    /**
+     * specify if a set of long values was defined on the command line (or has
+     * default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(LongValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the long values associated with an option. a value of null indicates
+     * that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public long[] getValues(LongValuesOption option)
+        throws IllegalArgumentException {
+
+        return (long[]) get(option);
+    }
+
+    /**
+     * specify if a set of double values was defined on the command line (or has
+     * default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(DoubleValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the double values associated with an option. a value of null indicates
+     * that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public double[] getValues(DoubleValuesOption option)
+        throws IllegalArgumentException {
+
+        return (double[]) get(option);
+    }
+
+    /**
+     * specify if a set of packed long values was defined on the command line
+     * (or has default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(PackedLongValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the packed long values associated with an option, see
+     * {@link PackedLongValuesOption#getValues()}. a value of null indicates
+     * that the option was not specified and that no default value is
+     * available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return a read-only buffer positioned on the first value or null if
+     *         none was specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public LongBuffer getValues(PackedLongValuesOption option)
+        throws IllegalArgumentException {
+
+        Object value = get(option);
+        return ((PackedLongValuesOptionImpl) option).toBuffer(value);
+    }
+
+    /**
+     * specify if a set of packed values was defined on the command line (or
+     * has default values).
+     *
+     * @param option
+     *            the option to check
+     * @return true if the option was set on the command line (or has default
+     *         values).
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public boolean isSet(PackedValuesOption option)
+        throws IllegalArgumentException {
+
+        return get(option) != null;
+    }
+
+    /**
+     * get the packed values associated with an option as a read-only list,
+     * see {@link PackedValuesOption#getValueList()}. a value of null
+     * indicates that the option was not specified and that no default value
+     * is available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the values associated with the option or null if none was
+     *         specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getValueList(PackedValuesOption option)
+        throws IllegalArgumentException {
+
+        return (List<String>) get(option);
+    }
+
+    /**
+     * get the encoded packed values associated with an option, see
+     * {@link PackedValuesOption#getEncodedValues()}. a value of null
+     * indicates that the option was not specified and that no default value
+     * is available.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return a read-only buffer positioned on the first value or null if
+     *         none was specified.
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    public ByteBuffer getEncodedValues(PackedValuesOption option)
+        throws IllegalArgumentException {
+
+        Object value = get(option);
+        return ((PackedValuesOptionImpl) option).toEncoded(value);
+    }
+
+    /**
+     * provide the arguments left after the options. The arguments are copied
+     * to a new array on each call, use {@link #getPositionalList()} to avoid
+     * the copy.
+     *
+     * @return the array of positional arguments
+     */
+    public String[] getPositionalArguments() {
+
+        checkValid();
+        int count = args.size() - positionalOffset;
+        if (count == 0) {
+            return NO_ARGUMENTS;
+        }
+        String[] res = new String[count];
+        for (int i = 0; i < count; i++) {
+            res[i] = args.get(positionalOffset + i);
+        }
+        return res;
+    }
+
+    /**
+     * provide a read-only view of the arguments left after the options. The
+     * view is backed by the array or the line passed to the parse method,
+     * nothing is copied.
+     *
+     * @return the list of positional arguments
+     */
+    public List<String> getPositionalList() {
+
+        checkValid();
+        return new ArgumentList(args, positionalOffset);
+    }
+
+    /**
+     * provide the index of the first positional argument in the array passed
+     * to the parse method, or in the arguments of the line. The positional
+     * arguments are the elements from this index to the end of the array.
+     *
+     * @return the index of the first positional argument
+     */
+    public int getPositionalOffset() {
+
+        checkValid();
+        return positionalOffset;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * record the value of an option found on the command line.
+     *
+     * @param option
+     *            the option set
+     * @param converted
+     *            the value, as converted by the option
+     */
+    void set(AbstractOption option, Object converted) {
+
+        // slot may grow the table, it must be called before reading values
+        int pos = slot(option);
+        values[pos] = converted;
+    }
+
+    /**
+     * record the primitive value of an option found on the command line.
+     *
+     * @param option
+     *            the option set
+     * @param converted
+     *            the value, as converted by the option
+     */
+    void setBits(AbstractOption option, long converted) {
+
+        int pos = slot(option);
+        values[pos] = Boolean.TRUE;
+        bits[pos] = converted;
+    }
+
+    /**
+     * provide the value found on the command line for an option, the default
+     * value is not considered.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the converted value or null if the option was not on the command
+     *         line
+     */
+    Object getParsed(AbstractOption option) {
+
+        return values[find(option.getIndex() + 1)];
+    }
+
+    /**
+     * provide the number of options found on the command line.
+     *
+     * @return the number of options set
+     */
+    public int getSetCount() {
+
+        return size;
+    }
+
+    /**
+     * provide an option found on the command line, in the order the options
+     * were first set.
+     *
+     * @param i
+     *            the option rank, between 0 and {@link #getSetCount()}
+     * @return the option, as returned when it was added to the command line
+     */
+    public Option getSetOption(int i) {
+
+        return commandLine.getOption(keys[order[i]] - 1);
+    }
+
+    /**
+     * provide the value of an option found on the command line, in the order
+     * the options were first set.
+     *
+     * @param i
+     *            the option rank, between 0 and {@link #getSetCount()}
+     * @return the converted value
+     */
+    Object getSetValue(int i) {
+
+        return values[order[i]];
+    }
+
+    /**
+     * provide the primitive value of an option found on the command line, in
+     * the order the options were first set.
+     *
+     * @param i
+     *            the option rank, between 0 and {@link #getSetCount()}
+     * @return the converted value
+     */
+    long getSetBits(int i) {
+
+        return bits[order[i]];
+    }
+
+    /**
+     * record where the positional arguments start.
+     *
+     * @param pArgs
+     *            the arguments parsed
+     * @param offset
+     *            the index of the first positional argument
+     */
+    void setPositionalArguments(Arguments pArgs, int offset) {
+
+        args = pArgs;
+        positionalOffset = offset;
+    }
+
+    /**
+     * record that the command line could not be parsed.
+     *
+     * @param code
+     *            the reason of the error
+     * @param pArgs
+     *            the arguments parsed
+     * @param index
+     *            the index of the argument holding the option in error
+     * @param position
+     *            the position of the option name in a set of bundled short
+     *            options, 0 otherwise
+     * @param detail
+     *            the message for errors that are not built from the option
+     *            name, null otherwise
+     */
+    void fail(ParseErrorCode code, Arguments pArgs, int index, int position, String detail) {
+
+        errorCode = code;
+        args = pArgs;
+        errorIndex = index;
+        errorPosition = position;
+        errorDetail = detail;
+    }
+
+    /**
+     * record that the command line could not be parsed because of a declared
+     * option, see {@link #fail(ParseErrorCode, Arguments, int, int, String)}.
+     *
+     * @param option
+     *            the option in error
+     * @param code
+     *            the reason of the error
+     * @param pArgs
+     *            the arguments parsed
+     * @param index
+     *            the index of the argument holding the option in error
+     * @param position
+     *            the position of the option name in a set of bundled short
+     *            options, 0 otherwise
+     * @param detail
+     *            the message for errors that are not built from the option
+     *            name, null otherwise
+     */
+    void fail(AbstractOption option, ParseErrorCode code, Arguments pArgs, int index,
+        int position, String detail) {
+
+        fail(code, pArgs, index, position, detail);
+        errorOption = option;
+    }
+
+    /**
+     * provide the value of an option, falling back to its default value.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the converted value or null if the option is not set
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    private Object get(Object option)
+        throws IllegalArgumentException {
+
+        checkValid();
+        AbstractOption opt = commandLine.checkOption(option);
+        Object res = getParsed(opt);
+        return res != null ? res : opt.getDefaultValue();
+    }
+
+    /**
+     * provide the primitive value of an option, falling back to its default
+     * value.
+     *
+     * @param option
+     *            the option to retrieve
+     * @return the converted value
+     * @throws IllegalArgumentException
+     *             if the option is not part of the parsed command line
+     */
+    private long getBits(Object option)
+        throws IllegalArgumentException {
+
+        checkValid();
+        AbstractOption opt = commandLine.checkOption(option);
+        int pos = find(opt.getIndex() + 1);
+        return keys[pos] != 0 ? bits[pos] : opt.getDefaultBits();
+    }
+
+    /**
+     * find the slot of an option, adding it to the table if it is not set yet.
+     *
+     * @param option
+     *            the option set
+     * @return the slot holding the option
+     */
+    private int slot(AbstractOption option) {
+
+        int key = option.getIndex() + 1;
+        int pos = find(key);
+        if (keys[pos] == 0) {
+            // first time the option is set, keep the table half empty
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                pos = find(key);
+            }
+            keys[pos] = key;
+            order[size++] = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * find the slot of an option in the table using linear probing. Option
+     * indexes are small and dense so they are used as their own hash.
+     *
+     * @param key
+     *            the option index plus one, 0 marks an empty slot
+     * @return the slot holding the option or the empty slot where it belongs
+     */
+    private int find(int key) {
+
+        int mask = keys.length - 1;
+        int pos = key & mask;
+        while (keys[pos] != 0 && keys[pos] != key) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    /**
+     * double the capacity of the table, keeping the order the options were set
+     * in.
+     */
+    private void grow() {
+
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        long[] oldBits = bits;
+        int[] oldOrder = order;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        bits = new long[oldKeys.length * 2];
+        order = new int[oldKeys.length];
+        for (int i = 0; i < size; i++) {
+            int oldPos = oldOrder[i];
+            int pos = find(oldKeys[oldPos]);
+            keys[pos] = oldKeys[oldPos];
+            values[pos] = oldValues[oldPos];
+            bits[pos] = oldBits[oldPos];
+            order[i] = pos;
+        }
+    }
+
+    /**
+     * verify that the result holds options rather than an error.
+     *
+     * @throws CommandLineException
+     *             the error if the command line could not be parsed
+     */
+    private void checkValid()
+        throws CommandLineException {
+
+        if (errorCode != null) {
+            throw getError();
+        }
+    }
+
+    /**
+     * specify if the option in error was given by its long name.
+     *
+     * @return true for a long option
+     */
+    private boolean isLongOptionError() {
+
+        return args.length(errorIndex) > 1 && args.charAt(errorIndex, 1) == '-';
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.Arrays;
+import java.util.List;
+import org.rcm.cmdline.impl.AbstractOption;
+
+/**
+ * This class provides an immutable lookup of options by short name. Short names
+ * are always one character long, so the lookup is keyed on the character
+ * itself: ASCII characters are resolved through a direct table, other
+ * characters through a binary search in a sorted array. No object is created
+ * during a lookup.
+ *
+ * @author Robert Monnet
+ */
+final class ShortOptionTable {
+
+    // size of the direct lookup table
+    private static final int       ASCII_SIZE = 128;
+
+    // fields
+    private final AbstractOption[] asciiOptions;
+    private final char[]           otherNames;
+    private final AbstractOption[] otherOptions;
+
+    /**
+     * Construct the table for a set of options. Options without a short name
+     * are ignored.
+     *
+     * @param options
+     *            the options to index
+     */
+    ShortOptionTable(List<AbstractOption> options) {
+
+        asciiOptions = new AbstractOption[ASCII_SIZE];
+
+        // count the non ascii names first so the arrays have the exact size
+        int otherCount = 0;
+        for (AbstractOption option : options) {
+            String shortName = option.getShortName();
+            if (shortName != null && shortName.charAt(0) >= ASCII_SIZE) {
+                otherCount++;
+            }
+        }
+
+        // store the non ascii names sorted, the options are sorted alongside
+        otherNames = new char[otherCount];
+        otherOptions = new AbstractOption[otherCount];
+        int count = 0;
+        for (AbstractOption option : options) {
+            String shortName = option.getShortName();
+            if (shortName == null) {
+                continue;
+            }
+            char c = shortName.charAt(0);
+            if (c < ASCII_SIZE) {
+                asciiOptions[c] = option;
+            } else {
+                // insertion sort, the number of non ascii names is small
+                int pos = count;
+                while (pos > 0 && otherNames[pos - 1] > c) {
+                    otherNames[pos] = otherNames[pos - 1];
+                    otherOptions[pos] = otherOptions[pos - 1];
+                    pos--;
+                }
+                otherNames[pos] = c;
+                otherOptions[pos] = option;
+                count++;
+            }
+        }
+    }
+
+    /**
+     * find the option associated with a short name.
+     *
+     * @param c
+     *            the short name character
+     * @return the option or null if no option uses this short name
+     */
+    AbstractOption get(char c) {
+
+        if (c < ASCII_SIZE) {
+            return asciiOptions[c];
+        }
+        int pos = Arrays.binarySearch(otherNames, c);
+        return pos >= 0 ? otherOptions[pos] : null;
+    }
+
+}
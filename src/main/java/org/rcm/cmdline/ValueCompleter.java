@@ -0,0 +1,29 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline;
+
+import java.util.List;
+
+/**
+ * This interface provides the completion candidates of an option value or of
+ * the positional arguments, see
+ * {@link CommandLine#setValueCompleter(Object, ValueCompleter)}. It is called
+ * on every completion request, it should answer without expensive work.
+ *
+ * @author Robert Monnet
+ */
+public interface ValueCompleter {
+
+    /**
+     * add the values starting with a prefix to the candidates.
+     *
+     * @param prefix
+     *            the beginning of the value typed so far, possibly empty
+     * @param candidates
+     *            the list receiving the complete values
+     */
+    void complete(String prefix, List<String> candidates);
+
+}
@@ -1,5 +1,7 @@
 package org.rcm.cmdline;
 
+import java.util.List;
+
 /**
  * This interface defines a simple option with a set of string value. It can accept
  * a set of default value even if none is specified on the command line.
@@ -17,6 +19,18 @@ public interface ValuesOption {
      */
     public String[] getValues();
 
+    /**
+     * get the list of values associated with the option as a read-only list.
+     * The values are only created when they are read, so the size of the list
+     * or its first elements can be obtained without creating all the values.
+     * a value of null indicates that the option was not specified and that no
+     * default value is available.
+     * 
+     * @return the list of values associated with the option or null if none
+     *         was specified.
+     */
+    public List<String> getValueList();
+
     /**
      * specify if the option was defined on the command line (or has default values).
      * 
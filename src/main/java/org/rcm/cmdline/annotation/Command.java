@@ -0,0 +1,48 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation marks a class holding the options of a command line in its
+ * fields annotated with {@link Option}. At compile time, the annotation
+ * processor generates a class named after the annotated class with a
+ * <code>Parser</code> suffix, in the same package:
+ *
+ * <pre>
+ * &#064;Command(usage = &quot;Usage org.rcm.Example [options] &lt;name&gt;&quot;)
+ * class ExampleOptions {
+ *     &#064;Option(shortName = &quot;v&quot;, longName = &quot;verbose&quot;, help = &quot;verbose output&quot;)
+ *     boolean verbose;
+ * }
+ * ...
+ * ExampleOptions options = new ExampleOptions();
+ * String[] pargs = ExampleOptionsParser.parse(options, args);
+ * </pre>
+ *
+ * The generated parser follows the rules of
+ * {@link org.rcm.cmdline.CommandLine#parse(String[])} and reports errors with
+ * the same {@link org.rcm.cmdline.CommandLineException}, but it does not build
+ * any option object or lookup table at run time, the options are matched by
+ * switch statements and the help text is a constant.
+ *
+ * @author Robert Monnet
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Command {
+
+    /**
+     * the usage line, the first line of the help text.
+     */
+    String usage();
+
+}
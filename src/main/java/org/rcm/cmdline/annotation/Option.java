@@ -0,0 +1,63 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation declares a field of a {@link Command} class as an option.
+ * The type of the field selects the type of option:
+ * <ul>
+ * <li><code>boolean</code>, a toggle option</li>
+ * <li><code>String</code>, a value option</li>
+ * <li><code>String[]</code>, a values option</li>
+ * <li><code>int</code>, <code>long</code>, <code>double</code>, a numeric
+ * option</li>
+ * <li><code>int[]</code>, <code>long[]</code>, <code>double[]</code>, a
+ * numeric values option</li>
+ * </ul>
+ * The field cannot be private, static or final since the generated parser
+ * sets it directly.
+ *
+ * @author Robert Monnet
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Option {
+
+    /**
+     * the option short name, a single character, or "" if none.
+     */
+    String shortName() default "";
+
+    /**
+     * the option long name, at least 2 characters, or "" if none.
+     */
+    String longName() default "";
+
+    /**
+     * the help text associated with the option.
+     */
+    String help();
+
+    /**
+     * the mnemonic name of the option value used in the help text, ignored
+     * for toggle options.
+     */
+    String varName() default "VALUE";
+
+    /**
+     * the default value, a single element for options holding one value, the
+     * list of values for values options. Empty if the option has no default,
+     * toggle options have none.
+     */
+    String[] defaultValue() default {};
+
+}
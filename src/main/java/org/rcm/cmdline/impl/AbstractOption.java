@@ -4,7 +4,10 @@
  */
 package org.rcm.cmdline.impl;
 
+import java.lang.reflect.Array;
 import org.rcm.cmdline.CommandLine;
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.Option;
 
 /**
  * This class provides the foundation for all options types and define common
@@ -12,12 +15,18 @@ import org.rcm.cmdline.CommandLine;
  * 
  * @author Robert Monnet
  */
-public abstract class AbstractOption {
+public abstract class AbstractOption
+    implements Option {
 
     // fields
     private String shortName;
     private String longName;
     private String help;
+    private int             index = -1;
+    private ParseGeneration generation;
+    private long            stamp;
+    private Object          value;
+    private long            bits;
 
     /**
      * Construct an option by specifying a short and long name and the help
@@ -74,58 +83,105 @@ public abstract class AbstractOption {
     }
 
     /**
-     * provide one line of help describing the option.
+     * provide one line of help describing the option, its syntax followed by
+     * its description.
      * 
      * @return the help text associated with the option
      */
     public String getHelp() {
 
+        return getHelpSyntax() + " : " + getHelpText();
+    }
+
+    /**
+     * provide the syntax of the option in the help text: its short and long
+     * names followed by the mnemonic name of its value, if any.
+     * 
+     * @return the option syntax
+     */
+    public String getHelpSyntax() {
+
+        String valueName = getHelpValueName();
+        if (valueName == null) {
+            if (shortName == null) {
+                return "--" + longName;
+            }
+            if (longName == null) {
+                return "-" + shortName;
+            }
+            return "-" + shortName + " --" + longName;
+        }
         if (shortName == null) {
-            return "--" + longName + " : " + help;
+            return "--" + longName + "=<" + valueName + ">";
         }
         if (longName == null) {
-            return "-" + shortName + " : " + help;
+            return "-" + shortName + " <" + valueName + ">";
+        }
+        return "-" + shortName + " <" + valueName + ">, --" + longName + "=<" + valueName + ">";
+    }
+
+    /**
+     * provide the description of the option in the help text, followed by its
+     * default value if any.
+     * 
+     * @return the option description
+     */
+    public String getHelpText() {
+
+        String defaultValue = getHelpDefault();
+        if (defaultValue == null) {
+            return help;
         }
-        return "-" + shortName + " --" + longName + " : " + help;
+        return help + " (default to " + defaultValue + ")";
+    }
+
+    /**
+     * provide the mnemonic name of the value associated with the option, as
+     * written in the help text. Options holding a value override it.
+     * 
+     * @return the value name or null if the option does not take a value
+     */
+    protected String getHelpValueName() {
 
+        return null;
     }
 
     /**
-     * provides the help text associated with the option. This is nearly
-     * identical to {@link AbstractOption#getHelp()} but allows to specify the
-     * mnemonic name of the value associated with the option and the default
-     * value. Both can be specified as null if non relevant for this option.
+     * provide the default value of the option, as written in the help text.
+     * Options with a default value override it.
      * 
-     * @param valueName
-     *            the mnemonic name associated with the option value (or null)
-     * @param defaultValue
-     *            the default value associated with the option (or null)
-     * @return the help text for the option.
+     * @return the default value or null if the option has none
      */
-    protected String getHelp(String valueName, String defaultValue) {
+    protected String getHelpDefault() {
 
-        String res = null;
-        if (shortName == null) {
-            res = "--" + longName + "=<" + valueName + "> : " + help;
-        } else
-            if (longName == null) {
-                res = "-" + shortName + " <" + valueName + "> : " + help;
-            } else {
-                res =
-                    "-" + shortName + " <" + valueName + ">, --" + longName + "=<" + valueName
-                        + "> : " + help;
+        return null;
+    }
+
+    /**
+     * join a set of default values with commas for the help text. Options
+     * holding a set of values join them once, when they are created.
+     * 
+     * @param values
+     *            an array of values, such as an int[] or a String[], or null
+     * @return the joined values or null if there are no values
+     */
+    protected static String joinValues(Object values) {
+
+        if (values == null) {
+            return null;
+        }
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < Array.getLength(values); i++) {
+            if (i > 0) {
+                buf.append(',');
             }
-        if (defaultValue != null) {
-            res = res + " (default to " + defaultValue + ")";
+            buf.append(Array.get(values, i));
         }
-        return res;
+        return buf.toString();
     }
 
     /**
-     * Provide the option's long name
-     * 
-     * @return the long name associated with the option or null if none is
-     *         associated.
+     * @see org.rcm.cmdline.Option#getLongName()
      */
     public String getLongName() {
 
@@ -134,10 +190,7 @@ public abstract class AbstractOption {
     }
 
     /**
-     * Provide the option's short name
-     * 
-     * @return the short name associated with the option or null if none is
-     *         associated.
+     * @see org.rcm.cmdline.Option#getShortName()
      */
     public String getShortName() {
 
@@ -145,6 +198,64 @@ public abstract class AbstractOption {
 
     }
 
+    /**
+     * Provide the name used to designate the option in error messages, the
+     * long name if defined or else the short name.
+     * 
+     * @return the option name
+     */
+    protected String getName() {
+
+        return longName != null ? longName : shortName;
+
+    }
+
+    /**
+     * @see org.rcm.cmdline.Option#getIndex()
+     */
+    public int getIndex() {
+
+        return index;
+
+    }
+
+    /**
+     * Attach the option to the command line it belongs to, through
+     * {@link ParseGeneration#attach(AbstractOption, int)} when the option is
+     * added.
+     * 
+     * @param optIndex
+     *            the option position in the command line
+     * @param gen
+     *            the parse generation shared by the options of the command
+     *            line
+     * @throws IllegalStateException
+     *             if the option already belongs to a command line
+     */
+    void attach(int optIndex, ParseGeneration gen)
+        throws IllegalStateException {
+
+        if (index >= 0) {
+            throw new IllegalStateException("option already belongs to a command line");
+        }
+        index = optIndex;
+        generation = gen;
+        stamp = gen.get();
+
+    }
+
+    /**
+     * specifies if the option belongs to the command line of a generation.
+     * 
+     * @param gen
+     *            the parse generation
+     * @return true if the option was attached with this generation
+     */
+    boolean isAttachedTo(ParseGeneration gen) {
+
+        return generation == gen;
+    }
+
     /**
      * specifies if the option expect some associated value(s).
      * 
@@ -152,27 +263,175 @@ public abstract class AbstractOption {
      */
     public abstract boolean expectValue();
 
+    /**
+     * convert the value found on the command line to the value stored for the
+     * option. If the option uses an implicit value, the value passed is null.
+     * The conversion must not depend on the option state, so it can be used
+     * concurrently by compiled command lines.
+     * 
+     * @param optValue
+     *            the value found on the command line (or null)
+     * @return the converted value, never null
+     * @throws CommandLineException
+     *             if the value is not valid for the option
+     */
+    public abstract Object convert(String optValue)
+        throws CommandLineException;
+
+    /**
+     * convert a range of characters found on the command line to the value
+     * stored for the option. By default the characters are extracted as a
+     * String and passed to {@link AbstractOption#convert(String)}, options
+     * that can read the characters directly override this method.
+     * 
+     * @param text
+     *            the characters found on the command line
+     * @param start
+     *            the index of the first character of the value
+     * @param end
+     *            the index after the last character of the value
+     * @return the converted value, never null
+     * @throws CommandLineException
+     *             if the value is not valid for the option
+     */
+    public Object convert(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        return convert(text.subSequence(start, end).toString());
+    }
+
+    /**
+     * specifies if the option holds a primitive value. Only the options
+     * extending {@link PrimitiveOption} do, their values are converted by
+     * {@link PrimitiveOption#convertBits(CharSequence, int, int)} and stored as
+     * a long rather than as an object.
+     * 
+     * @return true if the option holds a primitive value
+     */
+    public boolean isPrimitive() {
+
+        return false;
+    }
+
+    /**
+     * provide the primitive value the option holds when it is not set on the
+     * command line. This is only used if {@link AbstractOption#isPrimitive()}
+     * is true.
+     * 
+     * @return the default value, as stored by the option
+     */
+    public long getDefaultBits() {
+
+        return 0;
+    }
+
+    /**
+     * provide the value the option holds when it is not set on the command
+     * line.
+     * 
+     * @return the default value, already converted, or null if none is
+     *         provided
+     */
+    public abstract Object getDefaultValue();
+
     /**
      * set the value for the option. This is typically called by {@link CommandLine#parse(String[])}
      * . If the option uses an implicit
      * value, this is called to confirm that the option is present on the
      * command line. In this case the value itself is ignored.
      * 
-     * @param value
+     * @param optValue
      *            the value to associate with the option.
      */
-    public abstract void setValue(String value);
+    public void setValue(String optValue) {
+
+        if (isPrimitive()) {
+            assignBits(((PrimitiveOption) this).convertBits(optValue, 0, optValue.length()));
+        } else {
+            assign(convert(optValue));
+        }
+    }
+
+    /**
+     * set the value for the option, the value has already been converted by
+     * {@link AbstractOption#convert(String)}. The command line sets the
+     * values it parsed through
+     * {@link ParseGeneration#assign(AbstractOption, Object)}.
+     * 
+     * @param converted
+     *            the converted value to associate with the option.
+     */
+    void assign(Object converted) {
+
+        value = converted;
+        if (generation != null) {
+            stamp = generation.get();
+        }
+    }
+
+    /**
+     * set the primitive value for the option, the value has already been
+     * converted by {@link PrimitiveOption#convertBits(CharSequence, int, int)}.
+     * The command line sets the values it parsed through
+     * {@link ParseGeneration#assignBits(AbstractOption, long)}.
+     * 
+     * @param converted
+     *            the converted value to associate with the option.
+     */
+    void assignBits(long converted) {
+
+        bits = converted;
+        assign(Boolean.TRUE);
+    }
+
+    /**
+     * provide the primitive value currently associated with the option.
+     * 
+     * @return the converted value, the default value if the option is not
+     *         set on the command line
+     */
+    protected long getCurrentBits() {
+
+        // a value set before the last reset of the command line is obsolete
+        if (generation != null && stamp != generation.get()) {
+            return getDefaultBits();
+        }
+        return bits;
+    }
+
+    /**
+     * provide the value currently associated with the option.
+     * 
+     * @return the converted value or null if the option is not set
+     */
+    protected Object getCurrentValue() {
+
+        // a value set before the last reset of the command line is obsolete
+        if (generation != null && stamp != generation.get()) {
+            return getDefaultValue();
+        }
+        return value;
+    }
 
     /**
      * specifies if this option has been set
      * 
      * @return true if the option is set
      */
-    public abstract boolean isSet();
+    public boolean isSet() {
+
+        return getCurrentValue() != null;
+    }
 
     /**
-     * reset the option to its initial state. This is used by {@link CommandLine#reset()}.
+     * reset the option to its initial state. The command line does not call
+     * this method for each option, it resets all of them at once through
+     * {@link ParseGeneration#advance()}.
      */
-    public abstract void reset();
+    public void reset() {
+
+        bits = getDefaultBits();
+        assign(getDefaultValue());
+    }
 
 }
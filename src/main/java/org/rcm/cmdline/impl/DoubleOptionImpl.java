@@ -0,0 +1,107 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.DoubleOption;
+
+/**
+ * This class defines an option with a double value. It can accept a default value
+ * even if none is specified on the command line.
+ *
+ * @author Robert Monnet
+ */
+public class DoubleOptionImpl
+    extends PrimitiveOption
+    implements DoubleOption {
+
+    /**
+     * Construct an option without a default value. Short Name and Long name are
+     * optional but at least one must be defined. To specify that short or long
+     * name does not exist, the null or empty String must be used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleOptionImpl(String shortName, String longName, String varName, String help)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, varName, help, false, 0);
+    }
+
+    /**
+     * Construct an option with a default value. Short Name and Long name are
+     * optional but at least one must be defined. To specify that short or long
+     * name does not exist, the null or empty String must be used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValue
+     *            the default value associated with the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleOptionImpl(String shortName, String longName, String varName, String help,
+        double defValue)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, varName, help, true, Double.doubleToRawLongBits(defValue));
+    }
+
+    /**
+     * @see PrimitiveOption#convertBits(CharSequence, int, int)
+     */
+    @Override
+    public long convertBits(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        return Double.doubleToRawLongBits(Numbers.parseDouble(text, start, end, getName()));
+    }
+
+    /**
+     * get the value associated with the option. The value is only meaningful
+     * if {@link #isSet()} is true, 0 is returned otherwise.
+     *
+     * @return the value associated with the option or 0 if none was
+     *         specified.
+     */
+    public double getValue() {
+
+        return Double.longBitsToDouble(getCurrentBits());
+    }
+
+    /**
+     * @see PrimitiveOption#box(long)
+     */
+    @Override
+    protected Object box(long bits) {
+
+        return Double.valueOf(Double.longBitsToDouble(bits));
+    }
+
+    /**
+     * @see PrimitiveOption#format(long)
+     */
+    @Override
+    protected String format(long bits) {
+
+        return String.valueOf(Double.longBitsToDouble(bits));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.DoubleValuesOption;
+
+/**
+ * This class defines an option with a set of double values. The values are read
+ * directly from the characters of the command line and stored in a double array.
+ * It can accept a set of default values even if none is specified on the
+ * command line.
+ *
+ * @author Robert Monnet
+ */
+public class DoubleValuesOptionImpl
+    extends AbstractOption
+    implements DoubleValuesOption {
+
+    // fields
+    private double[]  defaultValues;
+    private String variableName;
+    private String defaultHelp;
+
+    /**
+     * Construct an option with a set of default values. Short Name and Long
+     * name are optional but at least one must be defined. To specify that
+     * short or long name does not exist, the null or empty String must be used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if
+     *            none is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public DoubleValuesOptionImpl(String shortName, String longName, String varName, String help,
+        double[] defValues)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, help);
+        defaultValues = defValues;
+        defaultHelp = joinValues(defValues);
+        variableName = varName;
+        reset();
+    }
+
+    /**
+     * @see AbstractOption#expectValue()
+     */
+    @Override
+    public boolean expectValue() {
+
+        // always expect a value
+        return true;
+    }
+
+    /**
+     * @see AbstractOption#convert(String)
+     */
+    @Override
+    public Object convert(String optValue)
+        throws CommandLineException {
+
+        return convert(optValue, 0, optValue.length());
+    }
+
+    /**
+     * @see AbstractOption#convert(CharSequence, int, int)
+     */
+    @Override
+    public Object convert(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        return Numbers.parseDoubles(text, start, end, getName());
+    }
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return defaultValues;
+    }
+
+    /**
+     * retrieve the set of values associated with the option. a value of null
+     * will be returned if the option was not specified on the command line and
+     * if no default is provided
+     *
+     * @return the set of values associated with the option
+     */
+    public double[] getValues() {
+
+        return (double[]) getCurrentValue();
+    }
+
+    /**
+     * @see AbstractOption#getHelpValueName()
+     */
+    @Override
+    protected String getHelpValueName() {
+
+        return variableName + ",...";
+    }
+
+    /**
+     * @see AbstractOption#getHelpDefault()
+     */
+    @Override
+    protected String getHelpDefault() {
+
+        return defaultHelp;
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import org.rcm.cmdline.CommandLineException;
+
+/**
+ * This class provides the number conversions used by the primitive options.
+ * Numbers are read directly from the characters of the command line token, no
+ * intermediate String is created for integers and for simple decimal numbers.
+ *
+ * @author Robert Monnet
+ */
+final class Numbers {
+
+    // largest number of significant digits that is exact in a double
+    private static final int      MAX_EXACT_DIGITS = 15;
+
+    // powers of ten that are exact in a double
+    private static final double[] POWERS_OF_TEN    = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+        1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * This class only provides static methods.
+     */
+    private Numbers() {
+
+    }
+
+    /**
+     * read an integer from a range of characters.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param min
+     *            the smallest acceptable value
+     * @param max
+     *            the largest acceptable value
+     * @param name
+     *            the option name, used in error messages
+     * @return the integer read
+     * @throws CommandLineException
+     *             if the characters are not an integer or if it is out of range
+     */
+    static long parseLong(CharSequence text, int start, int end, long min, long max, String name)
+        throws CommandLineException {
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw notANumber(text, start, end, name, "an integer");
+        }
+
+        // accumulate negatively, the negative range is larger than the positive
+        // one
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long res = 0;
+        for (; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw notANumber(text, start, end, name, "an integer");
+            }
+            if (res < multMin || res * 10 < limit + digit) {
+                throw outOfRange(text, start, end, name);
+            }
+            res = res * 10 - digit;
+        }
+        res = negative ? res : -res;
+        if (res < min || res > max) {
+            throw outOfRange(text, start, end, name);
+        }
+        return res;
+    }
+
+    /**
+     * read a decimal number from a range of characters. Plain decimal numbers
+     * with at most 15 significant digits are read directly from the
+     * characters, other forms are delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param name
+     *            the option name, used in error messages
+     * @return the number read
+     * @throws CommandLineException
+     *             if the characters are not a number
+     */
+    static double parseDouble(CharSequence text, int start, int end, String name)
+        throws CommandLineException {
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        // the mantissa and the power of ten are exact, a single division
+        // gives the correctly rounded result
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean simple = i < end;
+        boolean seenDigit = false;
+        for (; i < end && simple; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                if (digits > MAX_EXACT_DIGITS) {
+                    simple = false;
+                } else {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (dot) {
+                        scale++;
+                    }
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                simple = false;
+            }
+        }
+        if (simple && seenDigit && scale < POWERS_OF_TEN.length) {
+            double res = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -res : res;
+        }
+
+        try {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        } catch (NumberFormatException ex) {
+            throw notANumber(text, start, end, name, "a number");
+        }
+    }
+
+    /**
+     * parse a comma separated list of int values.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid int
+     */
+    static int[] parseInts(CharSequence text, int start, int end, String name)
+        throws CommandLineException {
+
+        int[] res = new int[countValues(text, start, end)];
+        int i = start;
+        for (int n = 0; n < res.length; n++) {
+            int elementEnd = elementEnd(text, i, end);
+            res[n] = (int) parseLong(text, i, elementEnd, Integer.MIN_VALUE, Integer.MAX_VALUE, name);
+            i = elementEnd + 1;
+        }
+        return res;
+    }
+
+    /**
+     * parse a comma separated list of long values.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid long
+     */
+    static long[] parseLongs(CharSequence text, int start, int end, String name)
+        throws CommandLineException {
+
+        long[] res = new long[countValues(text, start, end)];
+        int i = start;
+        for (int n = 0; n < res.length; n++) {
+            int elementEnd = elementEnd(text, i, end);
+            res[n] = parseLong(text, i, elementEnd, Long.MIN_VALUE, Long.MAX_VALUE, name);
+            i = elementEnd + 1;
+        }
+        return res;
+    }
+
+    /**
+     * parse a comma separated list of double values.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid double
+     */
+    static double[] parseDoubles(CharSequence text, int start, int end, String name)
+        throws CommandLineException {
+
+        double[] res = new double[countValues(text, start, end)];
+        int i = start;
+        for (int n = 0; n < res.length; n++) {
+            int elementEnd = elementEnd(text, i, end);
+            res[n] = parseDouble(text, i, elementEnd, name);
+            i = elementEnd + 1;
+        }
+        return res;
+    }
+
+    /**
+     * count the values of a comma separated list. As with
+     * {@link String#split(String)} and the lists of String values, the
+     * trailing empty elements are not values, unless the list itself is
+     * empty.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @return the number of values
+     */
+    static int countValues(CharSequence text, int start, int end) {
+
+        if (start == end) {
+            return 1;
+        }
+        int last = end;
+        while (last > start && text.charAt(last - 1) == ',') {
+            last--;
+        }
+        return last == start ? 0 : countElements(text, start, last);
+    }
+
+    /**
+     * count the comma separated elements in a range of characters.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @return the number of elements
+     */
+    static int countElements(CharSequence text, int start, int end) {
+
+        int res = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ',') {
+                res++;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * find the end of a comma separated element.
+     *
+     * @param text
+     *            the characters to read
+     * @param start
+     *            the index of the first character of the element
+     * @param end
+     *            the index after the last character
+     * @return the index of the comma following the element or end
+     */
+    static int elementEnd(CharSequence text, int start, int end) {
+
+        int i = start;
+        while (i < end && text.charAt(i) != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * create the exception reported when a value is not a number. The parser
+     * turns it into an error code, so no stack trace is needed.
+     */
+    private static CommandLineException notANumber(CharSequence text, int start, int end,
+        String name, String expected) {
+
+        return new CommandLineException("option '" + name + "' was expecting " + expected
+            + " but found '" + text.subSequence(start, end) + "'", false);
+    }
+
+    /**
+     * create the exception reported when a value is out of range.
+     */
+    private static CommandLineException outOfRange(CharSequence text, int start, int end,
+        String name) {
+
+        return new CommandLineException("option '" + name + "' value '"
+            + text.subSequence(start, end) + "' is out of range", false);
+    }
+
+}
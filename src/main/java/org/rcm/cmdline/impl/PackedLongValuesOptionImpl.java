@@ -0,0 +1,175 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.PackedLongValuesOption;
+
+/**
+ * This class defines an option with a set of long values packed outside of
+ * the heap. The values are read directly from the characters of the command
+ * line and written to a direct buffer in the native byte order, 8 bytes per
+ * value. It can accept a set of default values even if none is specified on
+ * the command line.
+ *
+ * @author Robert Monnet
+ */
+public class PackedLongValuesOptionImpl
+    extends AbstractOption
+    implements PackedLongValuesOption {
+
+    // fields
+    private LongBuffer packedDefaultValues;
+    private String     variableName;
+    private String     defaultHelp;
+
+    /**
+     * Construct an option with a set of default values. Short Name and Long
+     * name are optional but at least one must be defined. To specify that
+     * short or long name does not exist, the null or empty String must be used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if
+     *            none is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public PackedLongValuesOptionImpl(String shortName, String longName, String varName,
+        String help, long[] defValues)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, help);
+        defaultHelp = joinValues(defValues);
+        if (defValues != null) {
+            LongBuffer packed = allocate(defValues.length);
+            for (int n = 0; n < defValues.length; n++) {
+                packed.put(n, defValues[n]);
+            }
+            packedDefaultValues = packed.asReadOnlyBuffer();
+        }
+        variableName = varName;
+        reset();
+    }
+
+    /**
+     * @see AbstractOption#expectValue()
+     */
+    @Override
+    public boolean expectValue() {
+
+        // always expect a value
+        return true;
+    }
+
+    /**
+     * @see AbstractOption#convert(String)
+     */
+    @Override
+    public Object convert(String optValue)
+        throws CommandLineException {
+
+        return convert(optValue, 0, optValue.length());
+    }
+
+    /**
+     * @see AbstractOption#convert(CharSequence, int, int)
+     */
+    @Override
+    public Object convert(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        int count = Numbers.countValues(text, start, end);
+        if (count > Integer.MAX_VALUE / 8) {
+            throw new CommandLineException("too many values for option '" + getName() + "'",
+                false);
+        }
+        LongBuffer res = allocate(count);
+        int i = start;
+        for (int n = 0; n < res.capacity(); n++) {
+            int elementEnd = Numbers.elementEnd(text, i, end);
+            res.put(n, Numbers.parseLong(text, i, elementEnd, Long.MIN_VALUE, Long.MAX_VALUE,
+                getName()));
+            i = elementEnd + 1;
+        }
+        return res.asReadOnlyBuffer();
+    }
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return packedDefaultValues;
+    }
+
+    /**
+     * @see org.rcm.cmdline.PackedLongValuesOption#getValues()
+     */
+    public LongBuffer getValues() {
+
+        return toBuffer(getCurrentValue());
+    }
+
+    /**
+     * present a value converted by this option as a buffer positioned on the
+     * first value, the buffer is not shared with other callers.
+     *
+     * @param converted
+     *            the value returned by {@link #convert(String)} or
+     *            {@link #getDefaultValue()}, or null
+     * @return the values or null
+     */
+    public LongBuffer toBuffer(Object converted) {
+
+        return converted == null ? null : ((LongBuffer) converted).duplicate();
+    }
+
+    /**
+     * @see AbstractOption#getHelpValueName()
+     */
+    @Override
+    protected String getHelpValueName() {
+
+        return variableName + ",...";
+    }
+
+    /**
+     * @see AbstractOption#getHelpDefault()
+     */
+    @Override
+    protected String getHelpDefault() {
+
+        return defaultHelp;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * allocate a direct buffer for a number of values.
+     *
+     * @param count
+     *            the number of values
+     * @return the buffer, positioned on the first value
+     */
+    private static LongBuffer allocate(int count) {
+
+        return ByteBuffer.allocateDirect(8 * count).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import org.rcm.cmdline.CommandLineException;
+
+/**
+ * This class provides a read-only list of the comma separated values of an
+ * option, encoded outside of the heap. The value is split with the rules of
+ * {@link SplitValueList} and each element is written to a direct buffer as a
+ * 4 byte length followed by its UTF-8 bytes, a second direct buffer holds the
+ * position of each element. An element is decoded each time it is read, the
+ * list holds no string and no array proportional to the number of elements.
+ *
+ * @author Robert Monnet
+ */
+final class PackedValueList
+    extends AbstractList<String>
+    implements RandomAccess {
+
+    // fields
+    private final ByteBuffer data;
+    private final IntBuffer  positions;
+    private final int        size;
+
+    /**
+     * Construct the list from its buffers.
+     *
+     * @param pData
+     *            the encoded elements
+     * @param pPositions
+     *            the position of each element
+     * @param pSize
+     *            the number of elements
+     */
+    private PackedValueList(ByteBuffer pData, IntBuffer pPositions, int pSize) {
+
+        data = pData;
+        positions = pPositions;
+        size = pSize;
+    }
+
+    /**
+     * create the list by splitting a range of characters.
+     *
+     * @param text
+     *            the characters holding the comma separated values
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @return the list
+     * @throws CommandLineException
+     *             if a quoted element is not terminated
+     */
+    static PackedValueList split(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        // the buffers are sized for the largest possible content, quotes and
+        // escapes are counted but not written
+        int maxCount = Numbers.countElements(text, start, end);
+        long maxBytes = 4L * maxCount;
+        for (int i = start; i < end; i++) {
+            maxBytes += maxUtf8Length(text.charAt(i));
+        }
+        if (maxBytes > Integer.MAX_VALUE) {
+            throw new CommandLineException("values larger than 2 GB", false);
+        }
+        PackedValueList res = new PackedValueList(ByteBuffer.allocateDirect((int) maxBytes),
+            ByteBuffer.allocateDirect(4 * maxCount).asIntBuffer(), 0);
+        int count = res.encode(text, start, end);
+        return new PackedValueList(res.data, res.positions, count);
+    }
+
+    /**
+     * create the list for a set of values, such as default values.
+     *
+     * @param values
+     *            the values
+     * @return the list
+     * @throws CommandLineException
+     *             if the values are larger than 2 GB
+     */
+    static PackedValueList of(String[] values)
+        throws CommandLineException {
+
+        if (values.length == 0) {
+            return new PackedValueList(ByteBuffer.allocateDirect(0), IntBuffer.allocate(0), 0);
+        }
+        String joined = join(values);
+        return split(joined, 0, joined.length());
+    }
+
+    /**
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public String get(int index) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int pos = positions.get(index);
+        byte[] bytes = new byte[data.getInt(pos)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(pos + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * provide the encoded elements, each a 4 byte big endian length followed
+     * by the UTF-8 bytes.
+     *
+     * @return a read-only buffer positioned on the first element
+     */
+    ByteBuffer getEncoded() {
+
+        return data.asReadOnlyBuffer();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * split the characters and write the elements to the buffers.
+     *
+     * @param text
+     *            the characters holding the comma separated values
+     * @param start
+     *            the index of the first character
+     * @param end
+     *            the index after the last character
+     * @return the number of elements
+     * @throws CommandLineException
+     *             if a quoted element is not terminated
+     */
+    private int encode(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        int count = 0;
+        int elementStart = start;
+        int lengthPos = 0;
+        int pos = 4;
+        boolean quoted = false;
+        // the number of elements at the end without any character
+        int trailingEmpty = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < end && isEscaped(text.charAt(i + 1))) {
+                data.put(pos++, (byte) text.charAt(++i));
+            } else if (c == '"' && (quoted || i == elementStart)) {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                trailingEmpty = i == elementStart ? trailingEmpty + 1 : 0;
+                data.putInt(lengthPos, pos - lengthPos - 4);
+                positions.put(count++, lengthPos);
+                elementStart = i + 1;
+                lengthPos = pos;
+                pos += 4;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+                pos = putCodePoint(pos, Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                pos = putCodePoint(pos, Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+        if (quoted) {
+            throw new CommandLineException("missing closing quote in value '"
+                + text.subSequence(start, end) + "'", false);
+        }
+        trailingEmpty = end == elementStart ? trailingEmpty + 1 : 0;
+        data.putInt(lengthPos, pos - lengthPos - 4);
+        positions.put(count++, lengthPos);
+
+        // drop the trailing empty elements, unless the value itself is empty
+        while (count > 1 && trailingEmpty > 0) {
+            count--;
+            trailingEmpty--;
+            pos = positions.get(count);
+        }
+        if (count == 1 && end > start && trailingEmpty > 0) {
+            count = 0;
+            pos = 0;
+        }
+        // Buffer methods are called through Buffer to run on Java 7 and 8
+        ((Buffer) data).limit(pos);
+        return count;
+    }
+
+    /**
+     * write a code point in UTF-8.
+     *
+     * @param pos
+     *            the position of the first byte
+     * @param cp
+     *            the code point
+     * @return the position after the last byte
+     */
+    private int putCodePoint(int pos, int cp) {
+
+        if (cp < 0x80) {
+            data.put(pos++, (byte) cp);
+        } else if (cp < 0x800) {
+            data.put(pos++, (byte) (0xc0 | (cp >> 6)));
+            data.put(pos++, (byte) (0x80 | (cp & 0x3f)));
+        } else if (cp < 0x10000) {
+            data.put(pos++, (byte) (0xe0 | (cp >> 12)));
+            data.put(pos++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+            data.put(pos++, (byte) (0x80 | (cp & 0x3f)));
+        } else {
+            data.put(pos++, (byte) (0xf0 | (cp >> 18)));
+            data.put(pos++, (byte) (0x80 | ((cp >> 12) & 0x3f)));
+            data.put(pos++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+            data.put(pos++, (byte) (0x80 | (cp & 0x3f)));
+        }
+        return pos;
+    }
+
+    /**
+     * provide the largest number of UTF-8 bytes written for a character, a
+     * surrogate is half of a 4 byte code point.
+     *
+     * @param c
+     *            the character
+     * @return the number of bytes
+     */
+    private static int maxUtf8Length(char c) {
+
+        return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    /**
+     * specify if a character can be escaped by a backslash, see
+     * {@link SplitValueList}.
+     *
+     * @param c
+     *            the character following the backslash
+     * @return true if the backslash escapes the character
+     */
+    private static boolean isEscaped(char c) {
+
+        return c == ',' || c == '"';
+    }
+
+    /**
+     * join values with commas, escaping the commas and quotes they hold.
+     *
+     * @param values
+     *            the values
+     * @return the comma separated values
+     */
+    private static String join(String[] values) {
+
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                res.append(',');
+            }
+            String value = values[i];
+            for (int k = 0; k < value.length(); k++) {
+                char c = value.charAt(k);
+                if (isEscaped(c)) {
+                    res.append('\\');
+                }
+                res.append(c);
+            }
+        }
+        return res.toString();
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.rcm.cmdline.CommandLineException;
+import org.rcm.cmdline.PackedValuesOption;
+
+/**
+ * This class defines an option with a set of string values encoded outside of
+ * the heap. The values are split and encoded directly from the characters of
+ * the command line into a {@link PackedValueList}. It can accept a set of
+ * default values even if none is specified on the command line.
+ *
+ * @author Robert Monnet
+ */
+public class PackedValuesOptionImpl
+    extends AbstractOption
+    implements PackedValuesOption {
+
+    // fields
+    private PackedValueList packedDefaultValues;
+    private String          variableName;
+    private String          defaultHelp;
+
+    /**
+     * Construct an option with a set of default values. Short Name and Long
+     * name are optional but at least one must be defined. To specify that
+     * short or long name does not exist, the null or empty String must be used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param defValues
+     *            the default values associated with the option or null if
+     *            none is provided
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    public PackedValuesOptionImpl(String shortName, String longName, String varName, String help,
+        String[] defValues)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, help);
+        defaultHelp = joinValues(defValues);
+        if (defValues != null) {
+            try {
+                packedDefaultValues = PackedValueList.of(defValues);
+            } catch (CommandLineException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+        variableName = varName;
+        reset();
+    }
+
+    /**
+     * @see AbstractOption#expectValue()
+     */
+    @Override
+    public boolean expectValue() {
+
+        // always expect a value
+        return true;
+    }
+
+    /**
+     * @see AbstractOption#convert(String)
+     */
+    @Override
+    public Object convert(String optValue)
+        throws CommandLineException {
+
+        return convert(optValue, 0, optValue.length());
+    }
+
+    /**
+     * @see AbstractOption#convert(CharSequence, int, int)
+     */
+    @Override
+    public Object convert(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        return PackedValueList.split(text, start, end);
+    }
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return packedDefaultValues;
+    }
+
+    /**
+     * @see org.rcm.cmdline.PackedValuesOption#getValueList()
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getValueList() {
+
+        return (List<String>) getCurrentValue();
+    }
+
+    /**
+     * @see org.rcm.cmdline.PackedValuesOption#getEncodedValues()
+     */
+    public ByteBuffer getEncodedValues() {
+
+        return toEncoded(getCurrentValue());
+    }
+
+    /**
+     * present a value converted by this option as encoded values.
+     *
+     * @param converted
+     *            the value returned by {@link #convert(String)} or
+     *            {@link #getDefaultValue()}, or null
+     * @return the encoded values or null
+     */
+    public ByteBuffer toEncoded(Object converted) {
+
+        return converted == null ? null : ((PackedValueList) converted).getEncoded();
+    }
+
+    /**
+     * @see AbstractOption#getHelpValueName()
+     */
+    @Override
+    protected String getHelpValueName() {
+
+        return variableName + ",...";
+    }
+
+    /**
+     * @see AbstractOption#getHelpDefault()
+     */
+    @Override
+    protected String getHelpDefault() {
+
+        return defaultHelp;
+    }
+
+}
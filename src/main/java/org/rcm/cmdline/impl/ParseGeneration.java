@@ -0,0 +1,117 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+/**
+ * This class defines the parse generation shared by all the options of a
+ * command line. Each option remembers the generation its value was set in, a
+ * value set in an older generation is ignored and the option reports its
+ * default value instead. Resetting all the options of a command line is
+ * therefore done by starting a new generation, whatever the number of options.
+ * <p>
+ * The generation is also the only way to attach an option and to set the
+ * values found by a parse, it is held by the command line and not reachable
+ * from its options, so the code receiving the options cannot change their
+ * state.
+ *
+ * @author Robert Monnet
+ */
+public class ParseGeneration {
+
+    // fields
+    private long current;
+
+    /**
+     * provide the current generation.
+     *
+     * @return the current generation
+     */
+    public long get() {
+
+        return current;
+    }
+
+    /**
+     * start a new generation, all the options sharing this generation return
+     * to their default value.
+     */
+    public void advance() {
+
+        current++;
+    }
+
+    /**
+     * attach an option to the command line of this generation.
+     *
+     * @param option
+     *            the option added to the command line
+     * @param index
+     *            the option position in the command line
+     * @throws IllegalStateException
+     *             if the option already belongs to a command line
+     */
+    public void attach(AbstractOption option, int index)
+        throws IllegalStateException {
+
+        option.attach(index, this);
+    }
+
+    /**
+     * set the value of an option found by a parse.
+     *
+     * @param option
+     *            the option
+     * @param converted
+     *            the value, converted by the option
+     * @throws IllegalArgumentException
+     *             if the option does not belong to the command line of this
+     *             generation
+     */
+    public void assign(AbstractOption option, Object converted)
+        throws IllegalArgumentException {
+
+        checkAttached(option);
+        option.assign(converted);
+    }
+
+    /**
+     * set the primitive value of an option found by a parse.
+     *
+     * @param option
+     *            the option
+     * @param converted
+     *            the value, converted by the option
+     * @throws IllegalArgumentException
+     *             if the option does not belong to the command line of this
+     *             generation
+     */
+    public void assignBits(AbstractOption option, long converted)
+        throws IllegalArgumentException {
+
+        checkAttached(option);
+        option.assignBits(converted);
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * check that an option belongs to the command line of this generation.
+     *
+     * @param option
+     *            the option
+     * @throws IllegalArgumentException
+     *             if the option belongs to another command line
+     */
+    private void checkAttached(AbstractOption option)
+        throws IllegalArgumentException {
+
+        if (!option.isAttachedTo(this)) {
+            throw new IllegalArgumentException("option not declared on this command line");
+        }
+    }
+
+}
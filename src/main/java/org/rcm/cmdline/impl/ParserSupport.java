@@ -0,0 +1,329 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import org.rcm.cmdline.CommandLineException;
+
+/**
+ * This class provides the conversions and error messages used by the parsers
+ * generated from {@link org.rcm.cmdline.annotation.Command} classes, so they
+ * behave exactly as {@link org.rcm.cmdline.CommandLine#parse(String[])}. It is
+ * not meant to be used directly.
+ *
+ * @author Robert Monnet
+ */
+public final class ParserSupport {
+
+    // shared result when there are no positional arguments
+    private static final String[] NO_ARGUMENTS = new String[0];
+
+    /**
+     * This class only provides static methods.
+     */
+    private ParserSupport() {
+
+    }
+
+    /**
+     * provide the name of a long option token, the characters between the
+     * leading <code>--</code> and the first equal sign.
+     *
+     * @param tok
+     *            the long option token
+     * @return the option name
+     */
+    public static String longName(String tok) {
+
+        int eqIdx = tok.indexOf('=');
+        return eqIdx < 0 ? tok.substring(2) : tok.substring(2, eqIdx);
+    }
+
+    /**
+     * provide the value attached to a long option token, the characters after
+     * the first equal sign.
+     *
+     * @param tok
+     *            the long option token
+     * @return the value or null if no value is attached to the option
+     */
+    public static String longValue(String tok) {
+
+        int eqIdx = tok.indexOf('=');
+        return eqIdx < 0 ? null : tok.substring(eqIdx + 1);
+    }
+
+    /**
+     * provide the value of an option given in the argument following it.
+     *
+     * @param args
+     *            the arguments
+     * @param idx
+     *            the index of the option
+     * @param name
+     *            the option name as written on the command line
+     * @return the value
+     * @throws CommandLineException
+     *             if there is no argument after the option or if it is an
+     *             option
+     */
+    public static String nextValue(String[] args, int idx, String name)
+        throws CommandLineException {
+
+        if (idx >= args.length - 1 || args[idx + 1].startsWith("-")) {
+            throw new CommandLineException("option '" + name + "' was expecting a value");
+        }
+        return args[idx + 1];
+    }
+
+    /**
+     * copy the positional arguments.
+     *
+     * @param args
+     *            the arguments
+     * @param idx
+     *            the index of the first positional argument
+     * @return the positional arguments
+     */
+    public static String[] positionalArguments(String[] args, int idx) {
+
+        int count = args.length - idx;
+        if (count == 0) {
+            return NO_ARGUMENTS;
+        }
+        String[] res = new String[count];
+        System.arraycopy(args, idx, res, 0, count);
+        return res;
+    }
+
+    /**
+     * convert the value of an int option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the value
+     * @throws CommandLineException
+     *             if the value is not a valid int
+     */
+    public static int toInt(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return (int) Numbers.parseLong(value, 0, value.length(), Integer.MIN_VALUE,
+                Integer.MAX_VALUE, name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * convert the value of a long option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the value
+     * @throws CommandLineException
+     *             if the value is not a valid long
+     */
+    public static long toLong(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return Numbers.parseLong(value, 0, value.length(), Long.MIN_VALUE, Long.MAX_VALUE, name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * convert the value of a double option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the value
+     * @throws CommandLineException
+     *             if the value is not a valid double
+     */
+    public static double toDouble(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return Numbers.parseDouble(value, 0, value.length(), name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * split the value of a values option.
+     *
+     * @param value
+     *            the option value
+     * @return the values
+     * @throws CommandLineException
+     *             if a quote is not closed
+     */
+    public static String[] toValues(String value)
+        throws CommandLineException {
+
+        try {
+            return new SplitValueList(value).toValueArray();
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * convert the value of an int values option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid int
+     */
+    public static int[] toInts(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return Numbers.parseInts(value, 0, value.length(), name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * convert the value of a long values option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid long
+     */
+    public static long[] toLongs(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return Numbers.parseLongs(value, 0, value.length(), name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * convert the value of a double values option.
+     *
+     * @param value
+     *            the option value
+     * @param name
+     *            the option name, for error messages
+     * @return the values
+     * @throws CommandLineException
+     *             if an element is not a valid double
+     */
+    public static double[] toDoubles(String value, String name)
+        throws CommandLineException {
+
+        try {
+            return Numbers.parseDoubles(value, 0, value.length(), name);
+        } catch (CommandLineException e) {
+            throw withStackTrace(e);
+        }
+    }
+
+    /**
+     * create the exception thrown for <code>-</code> or <code>--</code>.
+     *
+     * @param tok
+     *            the token
+     * @return the exception
+     */
+    public static CommandLineException missingOptionName(String tok) {
+
+        return new CommandLineException("missing short option after " + tok);
+    }
+
+    /**
+     * create the exception thrown for an unknown long option.
+     *
+     * @param name
+     *            the option name as written on the command line
+     * @return the exception
+     */
+    public static CommandLineException unknownLongOption(String name) {
+
+        return new CommandLineException("unknown option long name '" + name + "'");
+    }
+
+    /**
+     * create the exception thrown for an unknown short option.
+     *
+     * @param name
+     *            the option name
+     * @return the exception
+     */
+    public static CommandLineException unknownShortOption(char name) {
+
+        return new CommandLineException("unknown option short name '" + name + "'");
+    }
+
+    /**
+     * create the exception thrown when a value is attached to a toggle
+     * option.
+     *
+     * @param name
+     *            the option name as written on the command line
+     * @return the exception
+     */
+    public static CommandLineException unexpectedValue(String name) {
+
+        return new CommandLineException("option '" + name + "' was not expecting a value");
+    }
+
+    /**
+     * create the exception thrown when an option expecting a value is bundled
+     * with other short options.
+     *
+     * @param name
+     *            the option name
+     * @param tok
+     *            the token holding the bundled options
+     * @return the exception
+     */
+    public static CommandLineException valueInCombination(char name, String tok) {
+
+        return new CommandLineException("option '" + name
+            + "' was expecting a value, cannot be used in combination with other options '" + tok
+            + "'");
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * recreate a conversion error with a stack trace, the conversions create
+     * stackless exceptions because the compiled parser handles them.
+     *
+     * @param e
+     *            the conversion error
+     * @return the exception to throw
+     */
+    private static CommandLineException withStackTrace(CommandLineException e) {
+
+        return new CommandLineException(e.getMessage());
+    }
+
+}
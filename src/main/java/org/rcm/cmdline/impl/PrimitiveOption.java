@@ -0,0 +1,168 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import org.rcm.cmdline.CommandLineException;
+
+/**
+ * This class provides the foundation for options holding a single primitive
+ * value such as an int, a long or a double. The value is converted once when
+ * the command line is parsed and stored as a long, without boxing.
+ *
+ * @author Robert Monnet
+ */
+public abstract class PrimitiveOption
+    extends AbstractOption {
+
+    // fields
+    private boolean hasDefault;
+    private long    defaultBits;
+    private String  variableName;
+
+    /**
+     * Construct an option with or without a default value. Short Name and Long
+     * name are optional but at least one must be defined. To specify that
+     * short or long name does not exist, the null or empty String must be
+     * used.
+     *
+     * @param shortName
+     *            the option short name (or null or "")
+     * @param longName
+     *            the option long name (or null or "")
+     * @param varName
+     *            the option variable name, used in the help text
+     * @param help
+     *            the help comment associated with the option
+     * @param withDefault
+     *            true if the option has a default value
+     * @param defBits
+     *            the default value, as stored by the option
+     * @throws IllegalArgumentException
+     *             if the definition is invalid
+     */
+    protected PrimitiveOption(String shortName, String longName, String varName, String help,
+        boolean withDefault, long defBits)
+        throws IllegalArgumentException {
+
+        super(shortName, longName, help);
+        hasDefault = withDefault;
+        defaultBits = defBits;
+        variableName = varName;
+        reset();
+    }
+
+    /**
+     * @see AbstractOption#expectValue()
+     */
+    @Override
+    public boolean expectValue() {
+
+        // option is always associated with a value
+        return true;
+    }
+
+    /**
+     * @see AbstractOption#isPrimitive()
+     */
+    @Override
+    public final boolean isPrimitive() {
+
+        return true;
+    }
+
+    /**
+     * @see AbstractOption#convert(String)
+     */
+    @Override
+    public Object convert(String optValue)
+        throws CommandLineException {
+
+        return box(convertBits(optValue, 0, optValue.length()));
+    }
+
+    /**
+     * @see AbstractOption#convert(CharSequence, int, int)
+     */
+    @Override
+    public Object convert(CharSequence text, int start, int end)
+        throws CommandLineException {
+
+        return box(convertBits(text, start, end));
+    }
+
+    /**
+     * convert a range of characters found on the command line to the
+     * primitive value stored for the option. The command lines call this
+     * method rather than {@link #convert(CharSequence, int, int)}, the value
+     * is not boxed.
+     *
+     * @param text
+     *            the characters found on the command line
+     * @param start
+     *            the index of the first character of the value
+     * @param end
+     *            the index after the last character of the value
+     * @return the converted value, as stored by the option
+     * @throws CommandLineException
+     *             if the value is not valid for the option
+     */
+    public abstract long convertBits(CharSequence text, int start, int end)
+        throws CommandLineException;
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return hasDefault ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @see AbstractOption#getDefaultBits()
+     */
+    @Override
+    public long getDefaultBits() {
+
+        return defaultBits;
+    }
+
+    /**
+     * @see AbstractOption#getHelpValueName()
+     */
+    @Override
+    protected String getHelpValueName() {
+
+        return variableName;
+    }
+
+    /**
+     * @see AbstractOption#getHelpDefault()
+     */
+    @Override
+    protected String getHelpDefault() {
+
+        return hasDefault ? format(defaultBits) : null;
+    }
+
+    /**
+     * box a value stored by the option.
+     *
+     * @param bits
+     *            the value as stored by the option
+     * @return the value as an object
+     */
+    protected abstract Object box(long bits);
+
+    /**
+     * format a value stored by the option, for the help text.
+     *
+     * @param bits
+     *            the value as stored by the option
+     * @return the value as text
+     */
+    protected abstract String format(long bits);
+
+}
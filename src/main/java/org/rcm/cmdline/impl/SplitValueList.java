@@ -0,0 +1,203 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.impl;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import org.rcm.cmdline.CommandLineException;
+
+/**
+ * This class provides a read-only list of the comma separated values of an
+ * option. The value is scanned once to find where each element starts and
+ * ends, the element strings themselves are only created when they are read.
+ * <p>
+ * A comma or a double quote preceded by a backslash is part of the element.
+ * An element starting with a double quote extends to the matching double
+ * quote and can contain commas. As with {@link String#split(String)}, trailing
+ * empty elements are dropped.
+ *
+ * @author Robert Monnet
+ */
+final class SplitValueList
+    extends AbstractList<String>
+    implements RandomAccess {
+
+    // fields
+    private final String      source;
+    private final int[]       bounds;
+    private final int         size;
+    private final boolean     plain;
+    private volatile String[] array;
+
+    /**
+     * Construct the list by splitting a value.
+     *
+     * @param value
+     *            the comma separated values
+     * @throws CommandLineException
+     *             if a quoted element is not terminated
+     */
+    SplitValueList(String value)
+        throws CommandLineException {
+
+        source = value;
+
+        // bounds holds the start and end of each element, one pass over the
+        // characters finds all of them
+        int[] b = new int[16];
+        int count = 0;
+        int start = 0;
+        int len = value.length();
+        boolean special = false;
+        boolean quoted = false;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < len && isEscaped(value.charAt(i + 1))) {
+                special = true;
+                i++;
+            } else if (c == '"' && (quoted || i == start)) {
+                special = true;
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                if (2 * count + 2 > b.length) {
+                    b = grow(b);
+                }
+                b[2 * count] = start;
+                b[2 * count + 1] = i;
+                count++;
+                start = i + 1;
+            }
+        }
+        if (quoted) {
+            throw new CommandLineException("missing closing quote in value '" + value + "'",
+                false);
+        }
+        if (2 * count + 2 > b.length) {
+            b = grow(b);
+        }
+        b[2 * count] = start;
+        b[2 * count + 1] = len;
+        count++;
+
+        // drop the trailing empty elements, unless the value itself is empty
+        while (count > 1 && b[2 * count - 2] == b[2 * count - 1]) {
+            count--;
+        }
+        if (count == 1 && len > 0 && b[0] == b[1]) {
+            count = 0;
+        }
+
+        bounds = b;
+        size = count;
+        plain = !special;
+    }
+
+    /**
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public String get(int index) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        String[] res = array;
+        if (res != null) {
+            return res[index];
+        }
+        return element(index);
+    }
+
+    /**
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * provide all the values as an array. The array is created on the first
+     * call and then shared by all the calls.
+     *
+     * @return the values
+     */
+    String[] toValueArray() {
+
+        String[] res = array;
+        if (res == null) {
+            res = new String[size];
+            for (int i = 0; i < size; i++) {
+                res[i] = element(i);
+            }
+            array = res;
+        }
+        return res;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * create the string for an element, removing quotes and escapes if
+     * needed.
+     *
+     * @param index
+     *            the element index
+     * @return the element
+     */
+    private String element(int index) {
+
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        if (plain) {
+            return source.substring(start, end);
+        }
+        StringBuilder res = new StringBuilder(end - start);
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '\\' && i + 1 < end && isEscaped(source.charAt(i + 1))) {
+                res.append(source.charAt(++i));
+            } else if (c == '"' && (quoted || i == start)) {
+                quoted = !quoted;
+            } else {
+                res.append(c);
+            }
+        }
+        return res.toString();
+    }
+
+    /**
+     * specify if a character can be escaped by a backslash. Other backslashes
+     * are kept as is so paths such as <code>C:\dir</code> or
+     * <code>\\server\share</code> are not modified.
+     *
+     * @param c
+     *            the character following the backslash
+     * @return true if the backslash escapes the character
+     */
+    private static boolean isEscaped(char c) {
+
+        return c == ',' || c == '"';
+    }
+
+    /**
+     * double the size of the bounds array.
+     *
+     * @param b
+     *            the bounds array
+     * @return the new bounds array
+     */
+    private static int[] grow(int[] b) {
+
+        int[] res = new int[b.length * 2];
+        System.arraycopy(b, 0, res, 0, b.length);
+        return res;
+    }
+
+}
@@ -17,9 +17,6 @@ public class ToggleOptionImpl
     extends AbstractOption
     implements ToggleOption {
 
-    // fields
-    private boolean isSet;
-
     /**
      * Construct the option specifying a short and a long name. Both are
      * optional but at least one must be specified. To indicate no short or long
@@ -47,33 +44,23 @@ public class ToggleOptionImpl
     }
 
     /**
-     * @see IOption#setValue(String)
+     * @see AbstractOption#convert(String)
      */
     @Override
-    public void setValue(String value) {
+    public Object convert(String optValue) {
 
         // value is implicit, just turn the option on
-        isSet = true;
-    }
-
-    /**
-     * specify if the option was defined on the command line.
-     * 
-     * @return true if the option was set on the command line.
-     */
-    @Override
-    public boolean isSet() {
-
-        return isSet;
+        return Boolean.TRUE;
     }
 
     /**
-     * @see IOption#setValue(String)
+     * @see AbstractOption#getDefaultValue()
      */
     @Override
-    public void reset() {
+    public Object getDefaultValue() {
 
-        isSet = false;
+        // a toggle is never set by default
+        return null;
     }
 
 }
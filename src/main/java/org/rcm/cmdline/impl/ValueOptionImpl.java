@@ -18,7 +18,6 @@ public class ValueOptionImpl
 
     // fields
     private String defaultValue;
-    private String value;
     private String variableName;
 
     /**
@@ -68,8 +67,8 @@ public class ValueOptionImpl
 
         super(shortName, longName, help);
         defaultValue = defValue;
-        value = defaultValue;
         variableName = varName;
+        reset();
     }
 
     /**
@@ -83,12 +82,21 @@ public class ValueOptionImpl
     }
 
     /**
-     * @see IOption#setValue(String)
+     * @see AbstractOption#convert(String)
      */
     @Override
-    public void setValue(String optValue) {
+    public Object convert(String optValue) {
 
-        value = optValue;
+        return optValue;
+    }
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return defaultValue;
     }
 
     /**
@@ -100,35 +108,25 @@ public class ValueOptionImpl
      */
     public String getValue() {
 
-        return value;
+        return (String) getCurrentValue();
     }
 
     /**
-     * @see org.rcm.cmdline.IOption#isSet()
+     * @see AbstractOption#getHelpValueName()
      */
     @Override
-    public boolean isSet() {
-
-        return value != null;
-    }
-
-    /**
-     * @see org.rcm.cmdline.IOption#reset()
-     */
-    @Override
-    public void reset() {
-
-        value = defaultValue;
+    protected String getHelpValueName() {
 
+        return variableName;
     }
 
     /**
-     * @see IOption#getHelp()
+     * @see AbstractOption#getHelpDefault()
      */
     @Override
-    public String getHelp() {
+    protected String getHelpDefault() {
 
-        return getHelp(variableName, defaultValue);
+        return defaultValue;
     }
 
 }
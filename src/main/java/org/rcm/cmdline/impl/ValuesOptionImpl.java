@@ -4,6 +4,10 @@
  */
 package org.rcm.cmdline.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.rcm.cmdline.CommandLineException;
 import org.rcm.cmdline.ValuesOption;
 
 /**
@@ -18,8 +22,8 @@ public class ValuesOptionImpl
 
     // fields
     private String[] defaultValues;
-    private String[] values;
     private String   variableName;
+    private String   defaultHelp;
 
     /**
      * Construct an option without a default value. Short Name and Long name are
@@ -68,8 +72,9 @@ public class ValuesOptionImpl
 
         super(shortName, longName, help);
         defaultValues = defValues;
-        values = defaultValues;
+        defaultHelp = joinValues(defValues);
         variableName = varName;
+        reset();
     }
 
     /**
@@ -83,12 +88,22 @@ public class ValuesOptionImpl
     }
 
     /**
-     * @see IOption#setValue(String)
+     * @see AbstractOption#convert(String)
      */
     @Override
-    public void setValue(String optValue) {
+    public Object convert(String optValue)
+        throws CommandLineException {
 
-        values = optValue.split(",");
+        return new SplitValueList(optValue);
+    }
+
+    /**
+     * @see AbstractOption#getDefaultValue()
+     */
+    @Override
+    public Object getDefaultValue() {
+
+        return defaultValues;
     }
 
     /**
@@ -100,46 +115,70 @@ public class ValuesOptionImpl
      */
     public String[] getValues() {
 
-        return values;
+        return toArray(getCurrentValue());
     }
 
     /**
-     * @see org.rcm.cmdline.IOption#isSet()
+     * retrieve the values associated with the option as a read-only list. The
+     * list is built lazily, each value is only created when it is read. a value
+     * of null will be returned if the option was not specified on the command
+     * line and if no default is provided
+     * 
+     * @return the list of values associated with the option
      */
-    @Override
-    public boolean isSet() {
+    public List<String> getValueList() {
+
+        return toList(getCurrentValue());
+    }
+
+    /**
+     * present a value converted by this option as an array.
+     * 
+     * @param converted
+     *            the value returned by {@link #convert(String)} or
+     *            {@link #getDefaultValue()}, or null
+     * @return the values as an array or null
+     */
+    public String[] toArray(Object converted) {
+
+        if (converted instanceof SplitValueList) {
+            return ((SplitValueList) converted).toValueArray();
+        }
+        return (String[]) converted;
+    }
+
+    /**
+     * present a value converted by this option as a read-only list.
+     * 
+     * @param converted
+     *            the value returned by {@link #convert(String)} or
+     *            {@link #getDefaultValue()}, or null
+     * @return the values as a list or null
+     */
+    public List<String> toList(Object converted) {
 
-        return values != null;
+        if (converted == null || converted instanceof SplitValueList) {
+            return (SplitValueList) converted;
+        }
+        return Collections.unmodifiableList(Arrays.asList((String[]) converted));
     }
 
     /**
-     * @see org.rcm.cmdline.IOption#reset()
+     * @see AbstractOption#getHelpValueName()
      */
     @Override
-    public void reset() {
+    protected String getHelpValueName() {
 
-        values = defaultValues;
+        return variableName + ",...";
     }
 
     /**
-     * @see IOption#getHelp()
+     * @see AbstractOption#getHelpDefault()
      */
     @Override
-    public String getHelp() {
-
-        String defaultString = null;
-
-        if (defaultValues != null) {
-            StringBuffer buf = new StringBuffer();
-            for (int i = 0; i < defaultValues.length; i++) {
-                if (i > 0) {
-                    buf.append(",");
-                }
-                buf.append(defaultValues[i]);
-            }
-            defaultString = buf.toString();
-        }
-        return getHelp(variableName + ",...", defaultString);
+    protected String getHelpDefault() {
+
+        return defaultHelp;
     }
 
 }
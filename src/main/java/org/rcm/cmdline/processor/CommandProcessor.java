@@ -0,0 +1,372 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import org.rcm.cmdline.annotation.Command;
+import org.rcm.cmdline.annotation.Option;
+import org.rcm.cmdline.processor.OptionField.Kind;
+
+/**
+ * This class defines the annotation processor generating a parser for each
+ * class annotated with {@link Command}. The options are checked with the
+ * rules of {@link org.rcm.cmdline.CommandLine}, errors are reported on the
+ * annotated elements and no parser is generated for a class in error.
+ *
+ * @author Robert Monnet
+ */
+public class CommandProcessor
+    extends AbstractProcessor {
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes()
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+
+        return Collections.singleton(Command.class.getName());
+    }
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+     *      javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Command.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Command can only be used on a class");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<OptionField> options = readOptions(type);
+            if (options != null) {
+                generate(type, options);
+            }
+        }
+        return true;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * read and check the options declared in a class.
+     *
+     * @param type
+     *            the class annotated with Command
+     * @return the options in declaration order or null if any is invalid
+     */
+    private List<OptionField> readOptions(TypeElement type) {
+
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "a @Command class cannot be private");
+            valid = false;
+        }
+
+        List<OptionField> res = new ArrayList<OptionField>();
+        Set<String> shortNames = new HashSet<String>();
+        Set<String> longNames = new HashSet<String>();
+        for (Element member : type.getEnclosedElements()) {
+            Option option = member.getAnnotation(Option.class);
+            if (option == null || member.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+            OptionField field = readOption((VariableElement) member, option);
+            if (field == null) {
+                valid = false;
+                continue;
+            }
+            if (field.getShortName() != null && !shortNames.add(field.getShortName())) {
+                error(member, "duplicate option short name '" + field.getShortName() + "'");
+                valid = false;
+            }
+            if (field.getLongName() != null && !longNames.add(field.getLongName())) {
+                error(member, "duplicate option long name '" + field.getLongName() + "'");
+                valid = false;
+            }
+            res.add(field);
+        }
+        return valid ? res : null;
+    }
+
+    /**
+     * read and check an option field.
+     *
+     * @param field
+     *            the annotated field
+     * @param option
+     *            the annotation
+     * @return the option or null if it is invalid
+     */
+    private OptionField readOption(VariableElement field, Option option) {
+
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+            || modifiers.contains(Modifier.FINAL)) {
+            error(field, "an @Option field cannot be private, static or final");
+            return null;
+        }
+        Kind kind = Kind.forType(field.asType().toString());
+        if (kind == null) {
+            error(field, "unsupported @Option field type " + field.asType());
+            return null;
+        }
+
+        // same rules as AbstractOption
+        String shortName = "".equals(option.shortName()) ? null : option.shortName();
+        String longName = "".equals(option.longName()) ? null : option.longName();
+        if (shortName == null && longName == null) {
+            error(field, "at least one of short name or long name must be specified");
+            return null;
+        }
+        if (option.help().length() == 0) {
+            error(field, "help string cannot be null or empty");
+            return null;
+        }
+        if (shortName != null && (shortName.length() != 1 || shortName.charAt(0) == '-')) {
+            error(field, "short option name must be 1 character '" + shortName + "'");
+            return null;
+        }
+        if (longName != null && (longName.length() < 2 || longName.indexOf('=') >= 0)) {
+            error(field, "long option name must be at least 2 characters '" + longName + "'");
+            return null;
+        }
+
+        String[] defaults = option.defaultValue();
+        if (kind == Kind.TOGGLE && defaults.length > 0) {
+            error(field, "a toggle option cannot have a default value");
+            return null;
+        }
+        if (!kind.isList() && defaults.length > 1) {
+            error(field, "the option holds a single value, only one default can be given");
+            return null;
+        }
+
+        // convert the default values now, so a bad default fails the build
+        StringBuilder init = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        try {
+            for (int i = 0; i < defaults.length; i++) {
+                if (i > 0) {
+                    init.append(", ");
+                    text.append(',');
+                }
+                appendDefault(kind, defaults[i], init, text);
+            }
+        } catch (NumberFormatException e) {
+            error(field, "invalid default value for option '"
+                + (longName != null ? longName : shortName) + "'");
+            return null;
+        }
+
+        String defaultInit;
+        if (defaults.length == 0) {
+            defaultInit = kind == Kind.TOGGLE ? "false" : kind.isNumeric() && !kind.isList() ? "0"
+                : "null";
+        } else if (kind.isList()) {
+            defaultInit = "new " + field.asType() + " { " + init + " }";
+        } else {
+            defaultInit = init.toString();
+        }
+
+        String help;
+        if (kind == Kind.TOGGLE) {
+            help = getHelp(shortName, longName, option.help());
+        } else {
+            String varName = kind.isList() ? option.varName() + ",..." : option.varName();
+            help = getHelp(shortName, longName, option.help(), varName,
+                defaults.length == 0 ? null : text.toString());
+        }
+        return new OptionField(field.getSimpleName().toString(), kind, shortName, longName, help,
+            defaultInit);
+    }
+
+    /**
+     * convert a default value to a Java expression and to its help text.
+     *
+     * @param kind
+     *            the kind of option
+     * @param value
+     *            the default value as given in the annotation
+     * @param init
+     *            the buffer receiving the Java expression
+     * @param text
+     *            the buffer receiving the help text
+     * @throws NumberFormatException
+     *             if the value is not valid for a numeric option
+     */
+    private static void appendDefault(Kind kind, String value, StringBuilder init,
+        StringBuilder text)
+        throws NumberFormatException {
+
+        switch (kind) {
+        case INT:
+        case INTS:
+            int i = Integer.parseInt(value);
+            init.append(i);
+            text.append(i);
+            break;
+        case LONG:
+        case LONGS:
+            long l = Long.parseLong(value);
+            init.append(l).append('L');
+            text.append(l);
+            break;
+        case DOUBLE:
+        case DOUBLES:
+            double d = Double.parseDouble(value);
+            init.append("Double.longBitsToDouble(0x")
+                .append(Long.toHexString(Double.doubleToRawLongBits(d))).append("L)");
+            text.append(d);
+            break;
+        default:
+            init.append(ParserWriter.literal(value));
+            text.append(value);
+            break;
+        }
+    }
+
+    /**
+     * build the help line of a toggle option, as AbstractOption does.
+     */
+    private static String getHelp(String shortName, String longName, String help) {
+
+        if (shortName == null) {
+            return "--" + longName + " : " + help;
+        }
+        if (longName == null) {
+            return "-" + shortName + " : " + help;
+        }
+        return "-" + shortName + " --" + longName + " : " + help;
+    }
+
+    /**
+     * build the help line of an option with a value, as AbstractOption does.
+     */
+    private static String getHelp(String shortName, String longName, String help,
+        String valueName, String defaultValue) {
+
+        String res;
+        if (shortName == null) {
+            res = "--" + longName + "=<" + valueName + "> : " + help;
+        } else if (longName == null) {
+            res = "-" + shortName + " <" + valueName + "> : " + help;
+        } else {
+            res = "-" + shortName + " <" + valueName + ">, --" + longName + "=<" + valueName
+                + "> : " + help;
+        }
+        if (defaultValue != null) {
+            res = res + " (default to " + defaultValue + ")";
+        }
+        return res;
+    }
+
+    /**
+     * write the parser of a class.
+     *
+     * @param type
+     *            the class annotated with Command
+     * @param options
+     *            the options of the class
+     */
+    private void generate(TypeElement type, List<OptionField> options) {
+
+        String packageName = getPackage(type).getQualifiedName().toString();
+        String parserName = getParserName(type);
+        String qualifiedName = packageName.length() == 0 ? parserName : packageName + "."
+            + parserName;
+        String usage = type.getAnnotation(Command.class).usage();
+        try {
+            Writer out = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+            try {
+                new ParserWriter(out, packageName, parserName, type.getQualifiedName().toString(),
+                    usage, options).write();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            error(type, "cannot write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * provide the package of a class.
+     *
+     * @param type
+     *            the class
+     * @return the package
+     */
+    private static PackageElement getPackage(TypeElement type) {
+
+        Element element = type;
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    /**
+     * provide the name of the parser generated for a class, the class simple
+     * name followed by Parser. The names of enclosing classes are added for a
+     * nested class, separated by underscores.
+     *
+     * @param type
+     *            the class
+     * @return the simple name of the parser
+     */
+    private static String getParserName(TypeElement type) {
+
+        String res = type.getSimpleName().toString();
+        Element element = type.getEnclosingElement();
+        while (element instanceof TypeElement) {
+            res = element.getSimpleName() + "_" + res;
+            element = element.getEnclosingElement();
+        }
+        return res + "Parser";
+    }
+
+    /**
+     * report an error on an element.
+     *
+     * @param element
+     *            the element in error
+     * @param message
+     *            the error message
+     */
+    private void error(Element element, String message) {
+
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.processor;
+
+/**
+ * This class holds an option read from a field annotated with
+ * {@link org.rcm.cmdline.annotation.Option}, once its annotation has been
+ * checked.
+ *
+ * @author Robert Monnet
+ */
+final class OptionField {
+
+    /**
+     * This enum defines the kinds of option, one for each supported field
+     * type.
+     */
+    enum Kind {
+
+        TOGGLE("boolean", null),
+        VALUE("java.lang.String", null),
+        VALUES("java.lang.String[]", "toValues"),
+        INT("int", "toInt"),
+        LONG("long", "toLong"),
+        DOUBLE("double", "toDouble"),
+        INTS("int[]", "toInts"),
+        LONGS("long[]", "toLongs"),
+        DOUBLES("double[]", "toDoubles");
+
+        // fields
+        private final String typeName;
+        private final String conversion;
+
+        /**
+         * Construct a kind of option.
+         *
+         * @param kTypeName
+         *            the name of the field type
+         * @param kConversion
+         *            the ParserSupport method converting the value, null if
+         *            the value is used as is
+         */
+        private Kind(String kTypeName, String kConversion) {
+
+            typeName = kTypeName;
+            conversion = kConversion;
+        }
+
+        /**
+         * find the kind of option for a field type.
+         *
+         * @param typeName
+         *            the name of the field type
+         * @return the kind or null if the type is not supported
+         */
+        static Kind forType(String typeName) {
+
+            for (Kind kind : values()) {
+                if (kind.typeName.equals(typeName)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * provide the name of the field type, as written in Java source.
+         *
+         * @return the type name
+         */
+        String getTypeName() {
+
+            return typeName;
+        }
+
+        /**
+         * provide the ParserSupport method converting the value.
+         *
+         * @return the method name or null if the value is used as is
+         */
+        String getConversion() {
+
+            return conversion;
+        }
+
+        /**
+         * specify if the option holds a list of values.
+         *
+         * @return true for a values option
+         */
+        boolean isList() {
+
+            return typeName.endsWith("[]");
+        }
+
+        /**
+         * specify if the conversion needs the option name for its error
+         * messages.
+         *
+         * @return true for the numeric options
+         */
+        boolean isNumeric() {
+
+            return this != TOGGLE && this != VALUE && this != VALUES;
+        }
+
+    }
+
+    // fields
+    private final String fieldName;
+    private final Kind   kind;
+    private final String shortName;
+    private final String longName;
+    private final String help;
+    private final String defaultInit;
+
+    /**
+     * Construct an option.
+     *
+     * @param oFieldName
+     *            the name of the field
+     * @param oKind
+     *            the kind of option
+     * @param oShortName
+     *            the short name or null
+     * @param oLongName
+     *            the long name or null
+     * @param oHelp
+     *            the complete help line of the option
+     * @param oDefaultInit
+     *            the Java expression of the default value
+     */
+    OptionField(String oFieldName, Kind oKind, String oShortName, String oLongName, String oHelp,
+        String oDefaultInit) {
+
+        fieldName = oFieldName;
+        kind = oKind;
+        shortName = oShortName;
+        longName = oLongName;
+        help = oHelp;
+        defaultInit = oDefaultInit;
+    }
+
+    /**
+     * provide the name of the field.
+     *
+     * @return the field name
+     */
+    String getFieldName() {
+
+        return fieldName;
+    }
+
+    /**
+     * provide the kind of option.
+     *
+     * @return the kind
+     */
+    Kind getKind() {
+
+        return kind;
+    }
+
+    /**
+     * provide the short name.
+     *
+     * @return the short name or null
+     */
+    String getShortName() {
+
+        return shortName;
+    }
+
+    /**
+     * provide the long name.
+     *
+     * @return the long name or null
+     */
+    String getLongName() {
+
+        return longName;
+    }
+
+    /**
+     * provide the name used in the conversion error messages, the long name
+     * if any.
+     *
+     * @return the option name
+     */
+    String getName() {
+
+        return longName != null ? longName : shortName;
+    }
+
+    /**
+     * provide the line of the option in the help text.
+     *
+     * @return the help line
+     */
+    String getHelp() {
+
+        return help;
+    }
+
+    /**
+     * provide the Java expression giving the value of the field when the
+     * option is not set.
+     *
+     * @return the default value expression
+     */
+    String getDefaultInit() {
+
+        return defaultInit;
+    }
+
+}
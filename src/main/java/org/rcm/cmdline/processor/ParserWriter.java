@@ -0,0 +1,366 @@
+/*
+ * Copyright Robert Monnet 2007, 2011
+ * Released under the Apache 2.0 license (http://www.opensource.org/licenses/Apache-2.0)
+ */
+package org.rcm.cmdline.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import org.rcm.cmdline.processor.OptionField.Kind;
+
+/**
+ * This class writes the source of the parser generated for a
+ * {@link org.rcm.cmdline.annotation.Command} class. The parser reads the
+ * arguments as {@link org.rcm.cmdline.CompiledCommandLine} does, long options
+ * are matched by a switch on their name and short options by a switch on
+ * their character.
+ *
+ * @author Robert Monnet
+ */
+final class ParserWriter {
+
+    // fields
+    private final Writer            out;
+    private final String            packageName;
+    private final String            parserName;
+    private final String            targetName;
+    private final String            usage;
+    private final List<OptionField> options;
+
+    /**
+     * Construct a writer for a parser.
+     *
+     * @param wOut
+     *            the output of the generated source
+     * @param wPackageName
+     *            the package of the parser, "" for the default package
+     * @param wParserName
+     *            the simple name of the parser
+     * @param wTargetName
+     *            the qualified name of the annotated class
+     * @param wUsage
+     *            the usage line of the help text
+     * @param wOptions
+     *            the options in declaration order
+     */
+    ParserWriter(Writer wOut, String wPackageName, String wParserName, String wTargetName,
+        String wUsage, List<OptionField> wOptions) {
+
+        out = wOut;
+        packageName = wPackageName;
+        parserName = wParserName;
+        targetName = wTargetName;
+        usage = wUsage;
+        options = wOptions;
+    }
+
+    /**
+     * write the parser.
+     *
+     * @throws IOException
+     *             if the source cannot be written
+     */
+    void write()
+        throws IOException {
+
+        line(0, "// generated from " + targetName + ", do not edit");
+        if (packageName.length() > 0) {
+            line(0, "package " + packageName + ";");
+        }
+        line(0, "");
+        line(0, "import org.rcm.cmdline.CommandLineException;");
+        line(0, "import org.rcm.cmdline.impl.ParserSupport;");
+        line(0, "");
+        line(0, "/**");
+        line(0, " * This class parses the command line options of {@link " + targetName + "}.");
+        line(0, " */");
+        line(0, "public final class " + parserName + " {");
+        line(0, "");
+        line(1, "private static final String NL = System.getProperty(\"line.separator\", \"\\n\");");
+        line(0, "");
+        writeHelp();
+        writeDefaults();
+        line(1, "private " + parserName + "() {");
+        line(1, "}");
+        line(0, "");
+        line(1, "/**");
+        line(1, " * return the help text, identical to CommandLine#getHelp().");
+        line(1, " *");
+        line(1, " * @return the help text for the command line.");
+        line(1, " */");
+        line(1, "public static String getHelp() {");
+        line(2, "return HELP;");
+        line(1, "}");
+        line(0, "");
+        writeParse();
+        line(0, "}");
+    }
+
+    /**
+     * quote a string as a Java string literal.
+     *
+     * @param value
+     *            the string
+     * @return the literal
+     */
+    static String literal(String value) {
+
+        StringBuilder res = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            appendEscaped(res, value.charAt(i), '"');
+        }
+        return res.append('"').toString();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Helper methods
+    // --------------------------------------------------------------------------------------
+
+    /**
+     * write the help text constant.
+     */
+    private void writeHelp()
+        throws IOException {
+
+        String help = "private static final String HELP = " + literal(usage) + " + NL";
+        int indent = 1;
+        for (OptionField option : options) {
+            line(indent, help);
+            help = "+ " + literal("    " + option.getHelp()) + " + NL";
+            indent = 3;
+        }
+        line(indent, help + ";");
+        line(0, "");
+    }
+
+    /**
+     * write the constants holding the default values of values options, so
+     * they are created once.
+     */
+    private void writeDefaults()
+        throws IOException {
+
+        for (OptionField option : options) {
+            if (option.getKind().isList() && !"null".equals(option.getDefaultInit())) {
+                line(1, "private static final " + option.getKind().getTypeName() + " "
+                    + defaultName(option) + " = " + option.getDefaultInit() + ";");
+                line(0, "");
+            }
+        }
+    }
+
+    /**
+     * write the parse method.
+     */
+    private void writeParse()
+        throws IOException {
+
+        line(1, "/**");
+        line(1, " * parse an array of command line argument, as CommandLine#parse(String[]).");
+        line(1, " * The fields of the target are reset to their default value, then set");
+        line(1, " * from the options found.");
+        line(1, " *");
+        line(1, " * @param target");
+        line(1, " *            the object receiving the options");
+        line(1, " * @param args");
+        line(1, " *            the array of arguments including options and positional");
+        line(1, " *            arguments");
+        line(1, " * @return the array of positional arguments");
+        line(1, " * @throws CommandLineException");
+        line(1, " *             if the command line does not match the set of defined options");
+        line(1, " */");
+        line(1, "public static String[] parse(" + targetName + " target, String[] args)");
+        line(2, "throws CommandLineException {");
+        line(0, "");
+        for (OptionField option : options) {
+            String init = option.getKind().isList() && !"null".equals(option.getDefaultInit())
+                ? defaultName(option) : option.getDefaultInit();
+            line(2, "target." + option.getFieldName() + " = " + init + ";");
+        }
+        line(0, "");
+        line(2, "int idx = 0;");
+        line(2, "while (idx < args.length) {");
+        line(3, "String tok = args[idx];");
+        line(3, "if (!tok.startsWith(\"-\")) {");
+        line(4, "break;");
+        line(3, "}");
+        line(3, "if (tok.startsWith(\"--\")) {");
+        line(4, "if (tok.length() == 2) {");
+        line(5, "throw ParserSupport.missingOptionName(tok);");
+        line(4, "}");
+        line(4, "String name = ParserSupport.longName(tok);");
+        line(4, "String value = ParserSupport.longValue(tok);");
+        line(4, "switch (name) {");
+        for (OptionField option : options) {
+            if (option.getLongName() == null) {
+                continue;
+            }
+            line(4, "case " + literal(option.getLongName()) + ":");
+            if (option.getKind() == Kind.TOGGLE) {
+                line(5, "if (value != null) {");
+                line(6, "throw ParserSupport.unexpectedValue(name);");
+                line(5, "}");
+                line(5, "target." + option.getFieldName() + " = true;");
+            } else {
+                line(5, "if (value == null) {");
+                line(6, "value = ParserSupport.nextValue(args, idx++, name);");
+                line(5, "}");
+                line(5, assignment(option, "value"));
+            }
+            line(5, "break;");
+        }
+        line(4, "default:");
+        line(5, "throw ParserSupport.unknownLongOption(name);");
+        line(4, "}");
+        line(3, "} else if (tok.length() == 1) {");
+        line(4, "throw ParserSupport.missingOptionName(tok);");
+        line(3, "} else if (tok.length() == 2) {");
+        line(4, "char c = tok.charAt(1);");
+        line(4, "switch (c) {");
+        for (OptionField option : options) {
+            if (option.getShortName() == null) {
+                continue;
+            }
+            line(4, "case " + charLiteral(option.getShortName().charAt(0)) + ":");
+            if (option.getKind() == Kind.TOGGLE) {
+                line(5, "target." + option.getFieldName() + " = true;");
+            } else {
+                line(5, assignment(option,
+                    "ParserSupport.nextValue(args, idx++, tok.substring(1))"));
+            }
+            line(5, "break;");
+        }
+        line(4, "default:");
+        line(5, "throw ParserSupport.unknownShortOption(c);");
+        line(4, "}");
+        line(3, "} else {");
+        line(4, "for (int i = 1; i < tok.length(); i++) {");
+        line(5, "char c = tok.charAt(i);");
+        line(5, "switch (c) {");
+        for (OptionField option : options) {
+            if (option.getShortName() == null) {
+                continue;
+            }
+            line(5, "case " + charLiteral(option.getShortName().charAt(0)) + ":");
+            if (option.getKind() == Kind.TOGGLE) {
+                line(6, "target." + option.getFieldName() + " = true;");
+                line(6, "break;");
+            } else {
+                line(6, "throw ParserSupport.valueInCombination(c, tok);");
+            }
+        }
+        line(5, "default:");
+        line(6, "throw ParserSupport.unknownShortOption(c);");
+        line(5, "}");
+        line(4, "}");
+        line(3, "}");
+        line(3, "idx++;");
+        line(2, "}");
+        line(2, "return ParserSupport.positionalArguments(args, idx);");
+        line(1, "}");
+        line(0, "");
+    }
+
+    /**
+     * build the statement setting the field of an option from its value.
+     *
+     * @param option
+     *            the option
+     * @param value
+     *            the Java expression of the value
+     * @return the statement
+     */
+    private static String assignment(OptionField option, String value) {
+
+        Kind kind = option.getKind();
+        String converted;
+        if (kind.getConversion() == null) {
+            converted = value;
+        } else if (kind.isNumeric()) {
+            converted = "ParserSupport." + kind.getConversion() + "(" + value + ", "
+                + literal(option.getName()) + ")";
+        } else {
+            converted = "ParserSupport." + kind.getConversion() + "(" + value + ")";
+        }
+        return "target." + option.getFieldName() + " = " + converted + ";";
+    }
+
+    /**
+     * provide the name of the constant holding the default values of an
+     * option.
+     *
+     * @param option
+     *            the option
+     * @return the constant name
+     */
+    private static String defaultName(OptionField option) {
+
+        return "DEFAULT_" + option.getFieldName();
+    }
+
+    /**
+     * quote a character as a Java char literal.
+     *
+     * @param c
+     *            the character
+     * @return the literal
+     */
+    private static String charLiteral(char c) {
+
+        StringBuilder res = new StringBuilder("'");
+        appendEscaped(res, c, '\'');
+        return res.append('\'').toString();
+    }
+
+    /**
+     * append a character to a literal, escaping it if needed.
+     *
+     * @param res
+     *            the literal
+     * @param c
+     *            the character
+     * @param quote
+     *            the quote character of the literal
+     */
+    private static void appendEscaped(StringBuilder res, char c, char quote) {
+
+        if (c == quote || c == '\\') {
+            res.append('\\').append(c);
+        } else if (c < 0x20) {
+            // unicode escapes are translated before the literal is read, a
+            // line break must use an octal escape
+            res.append('\\').append(Integer.toOctalString(c | 01000).substring(1));
+        } else if (c > 0x7e) {
+            String hex = Integer.toHexString(c);
+            res.append("\\u");
+            for (int i = hex.length(); i < 4; i++) {
+                res.append('0');
+            }
+            res.append(hex);
+        } else {
+            res.append(c);
+        }
+    }
+
+    /**
+     * write a line of source.
+     *
+     * @param indent
+     *            the indentation level
+     * @param text
+     *            the line
+     */
+    private void line(int indent, String text)
+        throws IOException {
+
+        if (text.length() > 0) {
+            for (int i = 0; i < indent; i++) {
+                out.write("    ");
+            }
+            out.write(text);
+        }
+        out.write('\n');
+    }
+
+}
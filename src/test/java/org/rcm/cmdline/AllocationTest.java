@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package org.rcm.cmdline;
+
+import junit.framework.TestCase;
+
+/**
+ * Allocation budgets of the parse paths. Each scenario is parsed until the
+ * code is compiled, then the bytes allocated by the thread are measured over
+ * several rounds of parses. The budgets are the bytes allocated per parse by
+ * the current code on a 64 bit HotSpot JVM with compressed references and the
+ * usual object headers, every round must match them within less than the
+ * smallest object: a change adding or removing an allocation on a path fails
+ * the test and must update the budget. The test is skipped, with a message
+ * giving the reason, on other JVMs and object layouts where the sizes differ;
+ * it fails on HotSpot if the allocations of a thread cannot be measured.
+ *
+ * @author Robert
+ */
+public class AllocationTest extends TestCase {
+
+	// parses of a scenario before measuring, enough to compile the parser
+	private static final int WARMUP = 20000;
+
+	// parses measured per round, each round is checked
+	private static final int ITERATIONS = 10000;
+	private static final int ROUNDS = 5;
+
+	// bytes per parse allowed around the budget, less than the smallest object
+	private static final double TOLERANCE = 8;
+
+	private com.sun.management.ThreadMXBean threads;
+	private String skipReason;
+	private CommandLine cl;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		com.sun.management.HotSpotDiagnosticMXBean hotspot = java.lang.management.ManagementFactory
+			.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+		if (hotspot == null) {
+			skipReason = "not a HotSpot JVM";
+		} else if (!isDefaultLayout(hotspot)) {
+			skipReason = "object layout differs from the one of the budgets";
+		} else {
+			java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory
+				.getThreadMXBean();
+			assertTrue("the JVM cannot measure the allocations of a thread",
+				bean instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		cl = new CommandLine("usage ...");
+		cl.addToggleOption("v", "verbose", "set the output to verbose");
+		cl.addToggleOption("d", "debug", "set the debug mode");
+		cl.addToggleOption("q", "quiet", "set the output to quiet");
+		cl.addIntOption("n", "count", "N", "set the count");
+		cl.addValueOption(null, "name", "NAME", "set the name", null);
+		cl.addValuesOption(null, "tags", "TAG,...", "set the tags");
+		cl.addIntValuesOption(null, "ids", "ID,...", "set the ids");
+	}
+
+	/**
+	 * test the toggles set by their long and short names
+	 */
+	public void testToggles() throws Exception {
+
+		checkBudget("toggles", new String[] { "-v", "--debug", "--quiet", "file" }, 320);
+	}
+
+	/**
+	 * test a set of bundled short toggles
+	 */
+	public void testBundledShorts() throws Exception {
+
+		checkBudget("bundled shorts", new String[] { "-vdq", "file" }, 320);
+	}
+
+	/**
+	 * test values attached to long options
+	 */
+	public void testLongValue() throws Exception {
+
+		checkBudget("long=value", new String[] { "--count=42", "--name=foo", "file" }, 368);
+	}
+
+	/**
+	 * test lists of values
+	 */
+	public void testValuesLists() throws Exception {
+
+		checkBudget("values lists", new String[] { "--tags=a,b,c", "--ids", "1,2,3", "file" }, 520);
+	}
+
+	/**
+	 * check that the objects have the layout the budgets were measured with.
+	 */
+	private static boolean isDefaultLayout(com.sun.management.HotSpotDiagnosticMXBean hotspot) {
+
+		if (!"true".equals(hotspot.getVMOption("UseCompressedOops").getValue())
+			|| !"8".equals(hotspot.getVMOption("ObjectAlignmentInBytes").getValue())) {
+			return false;
+		}
+		try {
+			return !"true".equals(hotspot.getVMOption("UseCompactObjectHeaders").getValue());
+		} catch (IllegalArgumentException _) {
+			// the option is unknown before Java 24
+			return true;
+		}
+	}
+
+	/**
+	 * parse a command line until the code is compiled, then check the bytes
+	 * allocated per parse in each round.
+	 */
+	private void checkBudget(String scenario, String[] args, long budget) throws Exception {
+
+		if (skipReason != null) {
+			System.err.println(getClass().getName() + "." + getName() + " skipped: " + skipReason);
+			return;
+		}
+		for (int i = 0; i < WARMUP; i++) {
+			cl.parse(args);
+		}
+		long id = Thread.currentThread().getId();
+		for (int r = 0; r < ROUNDS; r++) {
+			long start = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < ITERATIONS; i++) {
+				cl.parse(args);
+			}
+			double perParse = (threads.getThreadAllocatedBytes(id) - start) / (double) ITERATIONS;
+			assertEquals(scenario + ": bytes per parse in round " + r, budget, perParse, TOLERANCE);
+		}
+	}
+
+}
@@ -558,6 +558,1038 @@ public class OptionParserTest extends TestCase {
 
 	}
 
+	/**
+	 * test the compiled command line
+	 */
+	public void testCompiledCommandLine() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		ValueOption color = op.addValueOption("c", "color", "COLOR", "set the color", "purple");
+		ValuesOption sizes = op.addValuesOption("s", "sizes", "SIZE", "set the sizes");
+		CompiledCommandLine spec = op.compile();
+
+		// results are independent from each other and from the options
+		ParseResult res1 = spec.parse(new String[] { "-v", "--color=green", "arg1" });
+		ParseResult res2 = spec.parse(new String[] { "--sizes", "1,2", "arg1", "arg2" });
+		assertTrue(res1.isSet(verbose));
+		assertEquals("green", res1.getValue(color));
+		assertFalse(res1.isSet(sizes));
+		assertEquals(1, res1.getPositionalArguments().length);
+		assertFalse(res2.isSet(verbose));
+		assertEquals("purple", res2.getValue(color));
+		assertEquals(2, res2.getValues(sizes).length);
+		assertEquals(2, res2.getPositionalArguments().length);
+		assertFalse(verbose.isSet());
+		assertEquals("purple", color.getValue());
+
+		// options added later are not part of the compiled command line
+		ToggleOption debug = op.addToggleOption("d", "debug", "set debug mode");
+		try {
+			res1.isSet(debug);
+			fail("should have thrown IllegalArgumentException");
+		} catch (IllegalArgumentException _) {
+			// expected
+		}
+		try {
+			spec.parse(new String[] { "-d" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+		assertTrue(op.compile().parse(new String[] { "-d" }).isSet(debug));
+
+		// options from another command line are rejected
+		CommandLine other = new CommandLine("usage ...");
+		ToggleOption otherVerbose = other.addToggleOption("v", "verbose", "set the output to verbose");
+		try {
+			res1.isSet(otherVerbose);
+			fail("should have thrown IllegalArgumentException");
+		} catch (IllegalArgumentException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test short options outside of the ascii range
+	 */
+	public void testNonAsciiShortOption() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption alpha = op.addToggleOption("\u03b1", "alpha", "set alpha");
+		ToggleOption omega = op.addToggleOption("\u03c9", "omega", "set omega");
+		ToggleOption beta = op.addToggleOption("\u00df", "beta", "set beta");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+
+		String[] args = op.parse(new String[] { "-\u03c9v\u00df", "arg1" });
+		assertEquals(1, args.length);
+		assertFalse(alpha.isSet());
+		assertTrue(omega.isSet());
+		assertTrue(beta.isSet());
+		assertTrue(verbose.isSet());
+
+		try {
+			op.parse(new String[] { "-\u03b2" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test long option abbreviations
+	 */
+	public void testLongOptionAbbreviation() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		ToggleOption verify = op.addToggleOption(null, "verify", "verify the output");
+		ToggleOption color = op.addToggleOption(null, "color", "use colors");
+		ToggleOption colors = op.addToggleOption(null, "colors", "use more colors");
+		ValueOption file = op.addValueOption("f", "file", "FILE", "set the output file");
+
+		// abbreviations are not allowed by default
+		try {
+			op.parse(new String[] { "--verb" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+
+		op.setAllowAbbreviations(true);
+		op.parse(new String[] { "--verb", "--veri", "--fi=out.txt" });
+		assertTrue(verbose.isSet());
+		assertTrue(verify.isSet());
+		assertEquals("out.txt", file.getValue());
+
+		// an exact match wins over an abbreviation
+		op.parse(new String[] { "--color" });
+		assertTrue(color.isSet());
+		assertFalse(colors.isSet());
+
+		// ambiguous abbreviations
+		try {
+			op.parse(new String[] { "--ver" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException ex) {
+			assertEquals("ambiguous option long name 'ver'", ex.getMessage());
+		}
+		try {
+			op.parse(new String[] { "--=value" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException ex) {
+			assertEquals("unknown option long name ''", ex.getMessage());
+		}
+		try {
+			op.parse(new String[] { "--verbs" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException ex) {
+			assertEquals("unknown option long name 'verbs'", ex.getMessage());
+		}
+	}
+
+	/**
+	 * test that options return to their default value when the command line
+	 * is reused
+	 */
+	public void testReuse() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption[] toggles = new ToggleOption[26];
+		for (int i = 0; i < toggles.length; i++) {
+			String name = String.valueOf((char) ('a' + i));
+			toggles[i] = op.addToggleOption(name, name + name, "toggle " + name);
+		}
+		ValueOption color = op.addValueOption("C", "color", "COLOR", "set the color", "purple");
+
+		// a single argument setting more options than the result expects
+		op.parse(new String[] { "-abcdefghijklmnopqrstuvwxyz", "--color=green" });
+		for (ToggleOption toggle : toggles) {
+			assertTrue(toggle.isSet());
+		}
+		assertEquals("green", color.getValue());
+		ParseResult res = op.compile().parse(new String[] { "-zyxwvutsrqponmlkjihgfedcba" });
+		for (ToggleOption toggle : toggles) {
+			assertTrue(res.isSet(toggle));
+		}
+
+		// everything is back to default for the next parse
+		op.parse(new String[] { "-b", "arg1" });
+		for (int i = 0; i < toggles.length; i++) {
+			assertEquals(i == 1, toggles[i].isSet());
+		}
+		assertEquals("purple", color.getValue());
+	}
+
+	/**
+	 * test the positional arguments view
+	 */
+	public void testPositionalList() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+
+		String[] input = new String[] { "-v", "arg1", "arg2" };
+		java.util.List<String> args = op.parseAsList(input);
+		assertTrue(verbose.isSet());
+		assertEquals(2, args.size());
+		assertEquals("arg1", args.get(0));
+		assertEquals("arg2", args.get(1));
+		try {
+			args.set(0, "arg3");
+			fail("should have thrown UnsupportedOperationException");
+		} catch (UnsupportedOperationException _) {
+			// expected
+		}
+		try {
+			args.get(2);
+			fail("should have thrown IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException _) {
+			// expected
+		}
+
+		ParseResult res = op.compile().parse(input);
+		assertEquals(1, res.getPositionalOffset());
+		assertEquals(args, res.getPositionalList());
+		assertEquals(0, op.compile().parse(new String[] { "-v" }).getPositionalList().size());
+	}
+
+	/**
+	 * test splitting a list of values
+	 */
+	public void testValuesSplitting() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ValuesOption ids = op.addValuesOption("i", "ids", "ID", "set the ids");
+		ValuesOption colors = op.addValuesOption("c", "colors", "COLOR", "set the colors",
+				new String[] { "blue", "red" });
+
+		// same behavior as String.split for plain values
+		String[] inputs = new String[] { "a,b,c", "", ",", "a,,", ",a", "a,,b", "C:\\dir,D:\\" };
+		for (String input : inputs) {
+			op.parse(new String[] { "--ids=" + input });
+			assertTrue(java.util.Arrays.equals(input.split(","), ids.getValues()));
+			assertEquals(java.util.Arrays.asList(input.split(",")), ids.getValueList());
+		}
+
+		// escaped and quoted commas
+		op.parse(new String[] { "--ids", "a\\,b,\"c,d\",\"e\\\"f\",g\"h" });
+		assertEquals(java.util.Arrays.asList("a,b", "c,d", "e\"f", "g\"h"), ids.getValueList());
+		try {
+			op.parse(new String[] { "--ids", "a,\"b,c" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+
+		// lazy view
+		ParseResult res = op.compile().parse(new String[] { "-i", "1,2,3,4" });
+		java.util.List<String> list = res.getValueList(ids);
+		assertEquals(4, list.size());
+		assertEquals("3", list.get(2));
+		assertEquals(4, res.getValues(ids).length);
+		assertEquals(java.util.Arrays.asList("blue", "red"), res.getValueList(colors));
+		assertNull(op.compile().parse(new String[] {}).getValueList(ids));
+	}
+
+	/**
+	 * test the options holding primitive values
+	 */
+	public void testPrimitiveOptions() {
+
+		CommandLine op = new CommandLine("usage ...");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count", 10);
+		LongOption size = op.addLongOption("s", "size", "SIZE", "set the size");
+		DoubleOption ratio = op.addDoubleOption("r", "ratio", "R", "set the ratio", 0.5);
+		IntValuesOption ports = op.addIntValuesOption("p", "ports", "PORT", "set the ports");
+		DoubleValuesOption weights = op.addDoubleValuesOption("w", "weights", "W", "set the weights",
+				new double[] { 1.0 });
+
+		assertTrue(count.isSet());
+		assertEquals(10, count.getValue());
+		assertFalse(size.isSet());
+		assertEquals(0L, size.getValue());
+
+		op.parse(new String[] { "--count=-42", "-s", "9223372036854775807", "--ratio", "0.1",
+				"--ports=80,443", "arg1" });
+		assertEquals(-42, count.getValue());
+		assertEquals(Long.MAX_VALUE, size.getValue());
+		assertEquals(0.1, ratio.getValue());
+		assertTrue(java.util.Arrays.equals(new int[] { 80, 443 }, ports.getValues()));
+		assertTrue(java.util.Arrays.equals(new double[] { 1.0 }, weights.getValues()));
+
+		// back to default for the next parse
+		op.parse(new String[] { "-w", "2.5,1e3,-0.125" });
+		assertEquals(10, count.getValue());
+		assertFalse(size.isSet());
+		assertEquals(0.5, ratio.getValue());
+		assertNull(ports.getValues());
+		assertTrue(java.util.Arrays.equals(new double[] { 2.5, 1000, -0.125 }, weights.getValues()));
+
+		// decimal numbers read directly match Double.parseDouble
+		String[] decimals = new String[] { "0", "-0", "3.14159", "0.000123456789012345", "123456789012345.6",
+				"1.7976931348623157e308", "4.9e-324", ".5", "5.", "+2.25", "1234567890123456789" };
+		for (String decimal : decimals) {
+			ParseResult res = op.compile().parse(new String[] { "--ratio=" + decimal });
+			assertEquals(Double.doubleToLongBits(Double.parseDouble(decimal)),
+					Double.doubleToLongBits(res.getValue(ratio)));
+		}
+
+		// invalid values
+		String[][] invalid = new String[][] { { "--count=2147483648" }, { "--count=-2147483649" },
+				{ "--count=12a" }, { "--count=" }, { "--count=-" }, { "--size=99999999999999999999" },
+				{ "--ratio=abc" }, { "--ports=80,,443" }, { "--ports=80,x" }, { "--ports=" } };
+		for (String[] args : invalid) {
+			try {
+				op.parse(args);
+				fail("should have thrown CommandLineException for " + args[0]);
+			} catch (CommandLineException _) {
+				// expected
+			}
+		}
+
+		ParseResult res = op.compile().parse(new String[] { "-n", "7", "-p", "1,2,3" });
+		assertEquals(7, res.getValue(count));
+		assertTrue(res.isSet(count));
+		assertFalse(res.isSet(size));
+		assertEquals(0.5, res.getValue(ratio));
+		assertEquals(3, res.getValues(ports).length);
+		assertEquals(10, count.getValue());
+
+		// trailing empty elements are dropped, as for the lists of String values
+		res = op.compile().parse(new String[] { "-p", "80,443,", "-w", "0.5,," });
+		assertTrue(java.util.Arrays.equals(new int[] { 80, 443 }, res.getValues(ports)));
+		assertTrue(java.util.Arrays.equals(new double[] { 0.5 }, res.getValues(weights)));
+		assertEquals(0, op.compile().parse(new String[] { "-p", "," }).getValues(ports).length);
+
+		// the generic conversion boxes the primitive value
+		assertEquals(Integer.valueOf(-42), ((org.rcm.cmdline.impl.AbstractOption) count).convert("-42"));
+		assertEquals(Long.valueOf(Long.MIN_VALUE),
+				((org.rcm.cmdline.impl.AbstractOption) size).convert("-9223372036854775808"));
+		assertEquals(Double.valueOf(0.25), ((org.rcm.cmdline.impl.AbstractOption) ratio).convert("x0.25y", 1, 5));
+		try {
+			((org.rcm.cmdline.impl.AbstractOption) count).convert("12a");
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test parsing a command written as a single line
+	 */
+	public void testParseLine() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		ValueOption region = op.addValueOption("r", "region", "REGION", "set the region");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count");
+
+		java.util.List<String> args = op.parseLine("  -v --region='eu 1'\t-n 12 \"my app\" it\\'s \"a\\\"b\"  ");
+		assertTrue(verbose.isSet());
+		assertEquals("eu 1", region.getValue());
+		assertEquals(12, count.getValue());
+		assertEquals(3, args.size());
+		assertEquals("my app", args.get(0));
+		assertEquals("it's", args.get(1));
+		assertEquals("a\"b", args.get(2));
+
+		// single quotes are literal, double quotes keep unknown escapes
+		args = op.parseLine("'a\\b' \"c\\d\" e\\\nf");
+		assertEquals("a\\b", args.get(0));
+		assertEquals("c\\d", args.get(1));
+		assertEquals("ef", args.get(2));
+
+		// a line continuation alone is not an argument, empty quotes are
+		assertEquals(java.util.Arrays.asList("a", "b"), op.parseLine("a \\\n b"));
+		assertEquals(java.util.Arrays.asList("a", "", "b"), op.parseLine("a \\\n'' b"));
+
+		// any character sequence can be parsed
+		ParseResult res = op.compile().parseLine(java.nio.CharBuffer.wrap("-r us arg".toCharArray()));
+		assertEquals("us", res.getValue(region));
+		assertFalse(res.isSet(verbose));
+		assertEquals("arg", res.getPositionalList().get(0));
+		assertEquals(0, op.parseLine("  ").size());
+		assertEquals("", op.parseLine("'' x").get(0));
+
+		try {
+			op.parseLine("-r \"eu");
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+		try {
+			op.parseLine("arg\\");
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+		try {
+			op.parseLine("--unknown");
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test a line holding a quoted argument followed by many arguments
+	 */
+	public void testParseLineManyArguments() {
+
+		CommandLine op = new CommandLine("usage ...");
+		op.addToggleOption("v", "verbose", "set the output to verbose");
+		StringBuilder line = new StringBuilder("\"quoted arg\"");
+		for (int i = 0; i < 20; i++) {
+			line.append(" p").append(i);
+		}
+		ParseResult res = op.compile().tryParseLine(line);
+		assertTrue(res.isValid());
+		java.util.List<String> args = res.getPositionalList();
+		assertEquals(21, args.size());
+		assertEquals("quoted arg", args.get(0));
+		assertEquals("p19", args.get(20));
+		assertEquals("p8", op.parseLine(line.toString()).get(9));
+	}
+
+	/**
+	 * test parsing many command lines in parallel
+	 */
+	public void testParseAll() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count");
+		CompiledCommandLine spec = op.compile();
+
+		java.util.List<String[]> commands = new java.util.ArrayList<String[]>();
+		java.util.List<String> lines = new java.util.ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			String n = i % 100 == 7 ? "x" : Integer.toString(i);
+			commands.add(new String[] { "-v", "-n", n, "arg" + i });
+			lines.add("--count=" + n + " 'arg " + i + "'");
+		}
+
+		java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+		try {
+			java.util.List<ParseResult> results = spec.parseAll(commands, pool);
+			java.util.List<ParseResult> lineResults = spec.parseAllLines(lines, pool);
+			assertEquals(1000, results.size());
+			assertEquals(1000, lineResults.size());
+			for (int i = 0; i < 1000; i++) {
+				ParseResult res = results.get(i);
+				ParseResult lineRes = lineResults.get(i);
+				if (i % 100 == 7) {
+					assertFalse(res.isValid());
+					assertNotNull(res.getError());
+					assertFalse(lineRes.isValid());
+					try {
+						res.getValue(count);
+						fail("should have thrown CommandLineException");
+					} catch (CommandLineException _) {
+						// expected
+					}
+				} else {
+					assertTrue(res.isValid());
+					assertNull(res.getError());
+					assertTrue(res.isSet(verbose));
+					assertEquals(i, res.getValue(count));
+					assertEquals("arg" + i, res.getPositionalList().get(0));
+					assertFalse(lineRes.isSet(verbose));
+					assertEquals(i, lineRes.getValue(count));
+					assertEquals("arg " + i, lineRes.getPositionalList().get(0));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertFalse(verbose.isSet());
+		assertEquals(0, spec.parseAll(new java.util.ArrayList<String[]>()).size());
+	}
+
+	/**
+	 * test parsing without exceptions
+	 */
+	public void testTryParse() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		ToggleOption quiet = op.addToggleOption("q", "quiet", "only report errors");
+		ValueOption region = op.addValueOption("r", "region", "REGION", "set the region");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count");
+
+		ParseResult res = op.tryParse(new String[] { "-v", "-r", "eu", "arg" });
+		assertTrue(res.isValid());
+		assertNull(res.getErrorCode());
+		assertNull(res.getErrorMessage());
+		assertNull(res.getError());
+		assertEquals(-1, res.getErrorIndex());
+		assertTrue(verbose.isSet());
+		assertEquals("eu", region.getValue());
+
+		res = op.tryParse(new String[] { "-v", "--unknown=3" });
+		assertFalse(res.isValid());
+		assertFalse(verbose.isSet());
+		assertEquals(ParseErrorCode.UNKNOWN_OPTION, res.getErrorCode());
+		assertEquals(1, res.getErrorIndex());
+		assertEquals("unknown", res.getErrorOption());
+		assertEquals("unknown option long name 'unknown'", res.getErrorMessage());
+		assertEquals(res.getErrorMessage(), res.getError().getMessage());
+		try {
+			res.isSet(verbose);
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException _) {
+			// expected
+		}
+
+		CompiledCommandLine spec = op.compile();
+		res = spec.tryParse(new String[] { "-vx" });
+		assertEquals(ParseErrorCode.UNKNOWN_OPTION, res.getErrorCode());
+		assertEquals("x", res.getErrorOption());
+		assertEquals("unknown option short name 'x'", res.getErrorMessage());
+		res = spec.tryParse(new String[] { "-qr" });
+		assertEquals(ParseErrorCode.VALUE_IN_COMBINATION, res.getErrorCode());
+		assertEquals("r", res.getErrorOption());
+		res = spec.tryParse(new String[] { "-q", "-r" });
+		assertEquals(ParseErrorCode.MISSING_VALUE, res.getErrorCode());
+		assertEquals(1, res.getErrorIndex());
+		assertEquals("option 'r' was expecting a value", res.getErrorMessage());
+		res = spec.tryParse(new String[] { "--verbose=yes" });
+		assertEquals(ParseErrorCode.UNEXPECTED_VALUE, res.getErrorCode());
+		assertEquals("verbose", res.getErrorOption());
+		res = spec.tryParse(new String[] { "--count", "many" });
+		assertEquals(ParseErrorCode.INVALID_VALUE, res.getErrorCode());
+		assertEquals(0, res.getErrorIndex());
+		assertEquals("count", res.getErrorOption());
+		assertTrue(res.getErrorMessage().indexOf("many") > 0);
+		res = spec.tryParse(new String[] { "--" });
+		assertEquals(ParseErrorCode.MISSING_OPTION_NAME, res.getErrorCode());
+		assertNull(res.getErrorOption());
+		assertEquals("missing short option after --", res.getErrorMessage());
+		res = spec.tryParseLine("-r 'eu");
+		assertEquals(ParseErrorCode.INVALID_LINE, res.getErrorCode());
+		assertEquals(-1, res.getErrorIndex());
+		assertNull(res.getErrorOption());
+
+		// the exceptions thrown by parse keep their stack trace
+		try {
+			spec.parse(new String[] { "-x" });
+			fail("should have thrown CommandLineException");
+		} catch (CommandLineException e) {
+			assertEquals("unknown option short name 'x'", e.getMessage());
+			assertTrue(e.getStackTrace().length > 0);
+		}
+		assertEquals(0, new CommandLineException("error", false).getStackTrace().length);
+		assertEquals(0, count.getValue());
+	}
+
+	/**
+	 * test the parser generated from an annotated class
+	 */
+	public void testGeneratedParser() {
+
+		// the same options declared on a command line
+		CommandLine op = new CommandLine("usage: example [options] <files>");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		op.addToggleOption("q", null, "only report errors");
+		ValueOption output = op.addValueOption("o", "output", "FILE", "write the report to FILE", "out.txt");
+		ValuesOption colors = op.addValuesOption(null, "colors", "COLOR", "set the colors",
+				new String[] { "blue", "red" });
+		IntOption count = op.addIntOption("n", "count", "N", "set the count", 10);
+		DoubleOption ratio = op.addDoubleOption("r", "ratio", "R", "set the ratio");
+		LongValuesOption ids = op.addLongValuesOption("i", "ids", "ID", "set the ids");
+		assertEquals(op.getHelp(), OptionParserTest_ExampleOptionsParser.getHelp());
+
+		ExampleOptions options = new ExampleOptions();
+		String[] input = new String[] { "-vq", "--output=report.txt", "--colors", "green,\\,x",
+				"--count=-3", "-r", "0.25", "--ids=1,2", "file1", "-file2" };
+		String[] pargs = OptionParserTest_ExampleOptionsParser.parse(options, input);
+		assertTrue(java.util.Arrays.equals(op.parse(input), pargs));
+		assertEquals(verbose.isSet(), options.verbose);
+		assertTrue(options.quiet);
+		assertEquals(output.getValue(), options.output);
+		assertTrue(java.util.Arrays.equals(colors.getValues(), options.colors));
+		assertEquals(count.getValue(), options.count);
+		assertEquals(ratio.getValue(), options.ratio);
+		assertTrue(java.util.Arrays.equals(ids.getValues(), options.ids));
+
+		// fields go back to their defaults
+		assertEquals(0, OptionParserTest_ExampleOptionsParser.parse(options, new String[0]).length);
+		assertFalse(options.verbose);
+		assertEquals("out.txt", options.output);
+		assertEquals(2, options.colors.length);
+		assertEquals(10, options.count);
+		assertEquals(0.0, options.ratio);
+		assertNull(options.ids);
+
+		// errors are reported with the same messages
+		String[][] invalid = new String[][] { { "--unknown" }, { "-x" }, { "-vx" }, { "-vo" }, { "-o" },
+				{ "--verbose=yes" }, { "--count", "many" }, { "--" }, { "-" }, { "--colors=\"a" } };
+		for (String[] args : invalid) {
+			String expected = op.tryParse(args).getErrorMessage();
+			assertNotNull(expected);
+			try {
+				OptionParserTest_ExampleOptionsParser.parse(options, args);
+				fail("should have thrown CommandLineException");
+			} catch (CommandLineException e) {
+				assertEquals(expected, e.getMessage());
+				assertTrue(e.getStackTrace().length > 0);
+			}
+		}
+	}
+
+	/**
+	 * test the command line specialized for its options
+	 */
+	public void testSpecialize() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ValueOption[] values = new ValueOption[1000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = op.addValueOption(null, "opt" + i, "VALUE", "option " + i);
+		}
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		CompiledCommandLine spec = op.specialize();
+		assertSame(spec, op.specialize());
+		assertNotSame(spec, op.compile());
+
+		for (int i = 0; i < values.length; i++) {
+			ParseResult res = spec.parse(new String[] { "--opt" + i + "=" + i, "--verbose", "arg" });
+			assertEquals(Integer.toString(i), res.getValue(values[i]));
+			assertTrue(res.isSet(verbose));
+			assertEquals("arg", res.getPositionalList().get(0));
+		}
+		ParseResult res = spec.parseLine("--opt7 'a b'");
+		assertEquals("a b", res.getValue(values[7]));
+
+		String[][] invalid = new String[][] { { "--opt1000" }, { "--opt" }, { "--op" }, { "--=x" },
+				{ "--verbose=yes" }, { "--opt1" } };
+		for (String[] args : invalid) {
+			ParseResult expected = op.compile().tryParse(args);
+			res = spec.tryParse(args);
+			assertEquals(expected.getErrorCode(), res.getErrorCode());
+			assertEquals(expected.getErrorMessage(), res.getErrorMessage());
+		}
+
+		// abbreviations still work
+		op.setAllowAbbreviations(true);
+		assertTrue(op.specialize().parse(new String[] { "--verb" }).isSet(verbose));
+		op.addToggleOption("q", "quiet", "only report errors");
+		assertNotSame(spec, op.specialize());
+	}
+
+	/**
+	 * test sub commands created on demand
+	 */
+	public void testCommandRegistry() {
+
+		CommandLine top = new CommandLine("usage: ops [options] <command>");
+		ToggleOption verbose = top.addToggleOption("v", "verbose", "set the output to verbose");
+		CommandRegistry ops = new CommandRegistry(top);
+		DeployCommand deploy = new DeployCommand();
+		ops.addCommand("deploy", "deploy an application", deploy);
+		ops.addCommand("rollback", "revert to the previous version",
+				RollbackCommand.class.getName());
+		try {
+			ops.addCommand("deploy", "again", deploy);
+			fail("should have thrown IllegalArgumentException");
+		} catch (IllegalArgumentException _) {
+			// expected
+		}
+
+		// the help does not create the sub commands
+		String NL = System.getProperty("line.separator", "\n");
+		assertEquals("usage: ops [options] <command>" + NL + "    -v --verbose : set the output to verbose" + NL
+				+ "commands:" + NL + "    deploy : deploy an application" + NL
+				+ "    rollback : revert to the previous version" + NL, ops.getHelp());
+		assertNull(deploy.force);
+		assertEquals(0, RollbackCommand.created);
+
+		// only the selected sub command is created
+		String[] pargs = ops.parse(new String[] { "-v", "deploy", "--force", "app1" });
+		assertEquals("deploy", ops.getCommand());
+		assertSame(deploy, ops.getFactory());
+		assertTrue(verbose.isSet());
+		assertTrue(deploy.force.isSet());
+		assertEquals(1, pargs.length);
+		assertEquals("app1", pargs[0]);
+		assertEquals(0, RollbackCommand.created);
+
+		pargs = ops.parse(new String[] { "rollback", "-n", "2" });
+		assertEquals("rollback", ops.getCommand());
+		assertFalse(verbose.isSet());
+		assertEquals(2, ((RollbackCommand) ops.getFactory()).steps.getValue());
+		assertEquals(0, pargs.length);
+		assertEquals(1, RollbackCommand.created);
+		ops.parse(new String[] { "rollback" });
+		assertEquals(1, RollbackCommand.created);
+		assertSame(ops.getCommandLine("deploy"), ops.getCommandLine("deploy"));
+
+		// errors
+		String[][] invalid = new String[][] { {}, { "-v" }, { "status" }, { "deploy", "--unknown" },
+				{ "--force", "deploy" } };
+		for (String[] args : invalid) {
+			try {
+				ops.parse(args);
+				fail("should have thrown CommandLineException");
+			} catch (CommandLineException _) {
+				assertNull(ops.getCommand());
+			}
+		}
+	}
+
+	/**
+	 * test the incremental parser
+	 */
+	public void testIncrementalParser() {
+
+		CommandLine op = new CommandLine("usage ...");
+		op.addToggleOption("v", "verbose", "set the output to verbose");
+		op.addToggleOption("q", "quiet", "only report errors");
+		ValueOption output = op.addValueOption("o", "output", "FILE", "write the report to FILE");
+		op.addIntOption("n", "count", "N", "set the count");
+		IncrementalParser parser = op.compile().newIncrementalParser();
+
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.getExpected());
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.push("-vq"));
+		assertEquals(IncrementalParser.Expected.VALUE, parser.push("--output"));
+		assertEquals("output", parser.getPendingOption());
+		assertTrue(parser.isValid());
+		assertFalse(parser.isComplete());
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.push("report.txt"));
+		assertNull(parser.getPendingOption());
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.push("--count=3"));
+		assertEquals(IncrementalParser.Expected.POSITIONAL, parser.push("file1"));
+		assertEquals(IncrementalParser.Expected.POSITIONAL, parser.push("-x"));
+		assertTrue(parser.isComplete());
+		assertEquals(6, parser.size());
+		ParseResult res = parser.getResult();
+		assertEquals("report.txt", res.getValue(output));
+		assertEquals(2, res.getPositionalArguments().length);
+
+		// remove the last arguments
+		assertEquals(IncrementalParser.Expected.POSITIONAL, parser.pop());
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.pop());
+		assertEquals(IncrementalParser.Expected.OPTION_OR_POSITIONAL, parser.pop());
+		assertEquals(IncrementalParser.Expected.VALUE, parser.pop());
+		assertEquals(ParseErrorCode.MISSING_VALUE, parser.getResult().getErrorCode());
+
+		// a value starting with an hyphen, then remove the error
+		assertEquals(IncrementalParser.Expected.NOTHING, parser.push("-q"));
+		assertEquals(IncrementalParser.Expected.NOTHING, parser.push("file1"));
+		assertFalse(parser.isValid());
+		assertEquals(ParseErrorCode.MISSING_VALUE, parser.getErrorCode());
+		assertEquals(1, parser.getErrorIndex());
+		assertEquals("option 'output' was expecting a value", parser.getErrorMessage());
+		parser.pop();
+		assertEquals(IncrementalParser.Expected.VALUE, parser.pop());
+		assertTrue(parser.isValid());
+		assertNull(parser.getErrorCode());
+		parser.clear();
+		assertEquals(0, parser.size());
+		try {
+			parser.pop();
+			fail("should have thrown IllegalStateException");
+		} catch (IllegalStateException _) {
+			// expected
+		}
+
+		// same outcome as a complete parse
+		String[][] lines = new String[][] { { "-vn", "3" }, { "-n", "x" }, { "--count", "-1" },
+				{ "--verbose=yes" }, { "--colour" }, { "-", "a" }, { "a", "--", "-" },
+				{ "-q", "--", "b" }, { "-o", "out", "-v", "x", "-y" }, { "--output" } };
+		for (String[] args : lines) {
+			parser.clear();
+			for (String arg : args) {
+				parser.push(arg);
+			}
+			ParseResult expected = op.compile().tryParse(args);
+			assertEquals(expected.isValid(), parser.isComplete());
+			if (parser.isValid()) {
+				continue;
+			}
+			assertEquals(expected.getErrorCode(), parser.getErrorCode());
+			assertEquals(expected.getErrorIndex(), parser.getErrorIndex());
+			assertEquals(expected.getErrorMessage(), parser.getErrorMessage());
+		}
+	}
+
+	/**
+	 * test the completion of options and values
+	 */
+	public void testComplete() {
+
+		CommandLine op = new CommandLine("usage ...");
+		op.addToggleOption("v", "verbose", "set the output to verbose");
+		op.addToggleOption("q", "quiet", "only report errors");
+		ValueOption color = op.addValueOption("c", "color", "COLOR", "set the color");
+		op.addValueOption(null, "config", "FILE", "read the configuration from FILE");
+		op.setValueCompleter(color, new ChoiceCompleter("red", "green", "blue", "black"));
+		op.setPositionalCompleter(new ChoiceCompleter("start", "stop", "status"));
+
+		// long names
+		assertEquals(java.util.Arrays.asList("--color", "--config"), op.complete(new String[] { "--co" }, 0, 4));
+		assertEquals(java.util.Arrays.asList("--verbose"), op.complete(new String[] { "--verbose" }, 0, 3));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "--x" }, 0, 3));
+		assertEquals(java.util.Arrays.asList("--color=black", "--color=blue"),
+			op.complete(new String[] { "--color=bl" }, 0, 10));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "--config=" }, 0, 9));
+
+		// short names
+		assertEquals(java.util.Arrays.asList("-v", "-q", "-c", "--config"), op.complete(new String[] { "-" }, 0, 1));
+		assertEquals(java.util.Arrays.asList("-vq"), op.complete(new String[] { "-vq" }, 0, 3));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "-vx" }, 0, 3));
+
+		// option values and positional arguments
+		assertEquals(java.util.Arrays.asList("red"), op.complete(new String[] { "-v", "-c", "r" }, 2, 1));
+		assertEquals(java.util.Arrays.asList("black", "blue", "green", "red"),
+			op.complete(new String[] { "--color" }, 1, 0));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "--config" }, 1, 0));
+		assertEquals(java.util.Arrays.asList("start", "status"), op.complete(new String[] { "-v", "sta" }, 1, 3));
+		assertEquals(java.util.Arrays.asList("start", "status", "stop"),
+			op.complete(new String[] { "start" }, 1, 0));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "start", "--co" }, 1, 4));
+		assertEquals(java.util.Collections.emptyList(), op.complete(new String[] { "-x", "" }, 1, 0));
+
+		// shell entry point
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.PrintStream out = new java.io.PrintStream(bytes);
+		assertFalse(op.handleCompletion(new String[] { "-v" }, out));
+		assertTrue(op.handleCompletion(new String[] { CommandLine.COMPLETE_OPTION, "1", "-v", "--ve" },
+			out));
+		assertEquals("--verbose" + System.getProperty("line.separator"), bytes.toString());
+		assertTrue(op.getBashCompletion("my-prog").contains("complete -o default -F _my_prog_complete my-prog"));
+
+		try {
+			op.setValueCompleter(new CommandLine("usage ...").addValueOption("x", null, "X", "x"), null);
+			fail("foreign option accepted");
+		} catch (IllegalArgumentException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test the expansion of argument files
+	 */
+	public void testArgFiles() throws Exception {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		ValueOption output = op.addValueOption("o", "output", "FILE", "write the report to FILE");
+		op.setExpandArgFiles(true);
+
+		java.io.File lines = createArgFile("--output\r\nreport.txt\n\nfirst\nsecond file\n");
+		java.io.File nul = createArgFile("-v\0a\nb\0\0c\0");
+		try {
+			java.util.List<String> args = op.parseAsList(new String[] { "@" + lines.getPath(), "third" });
+			assertEquals("report.txt", output.getValue());
+			assertEquals(java.util.Arrays.asList("first", "second file", "third"), args);
+
+			args = op.parseAsList(new String[] { "@" + nul.getPath(), "@" + lines.getPath() });
+			assertTrue(verbose.isSet());
+			assertEquals(java.util.Arrays.asList("a\nb", "c", "--output", "report.txt", "first", "second file"),
+				args);
+
+			// an error index counts the arguments of the files
+			ParseResult res = op.compile().tryParse(new String[] { "-v", "@" + lines.getPath(), "-x" });
+			assertTrue(res.isValid());
+			res = op.compile().tryParse(new String[] { "@" + lines.getPath(), "-v" });
+			assertEquals(java.util.Arrays.asList("first", "second file", "-v"), res.getPositionalList());
+			res = op.compile().tryParse(new String[] { "-v", "@" + nul.getPath() + ".missing" });
+			assertEquals(ParseErrorCode.INVALID_ARG_FILE, res.getErrorCode());
+			assertEquals(1, res.getErrorIndex());
+			assertNull(res.getErrorOption());
+			assertTrue(res.getErrorMessage().startsWith("cannot read argument file"));
+
+			// argument files are not expanded by default
+			op.setExpandArgFiles(false);
+			assertEquals("@" + lines.getPath(), op.parse(new String[] { "@" + lines.getPath() })[0]);
+		} finally {
+			lines.delete();
+			nul.delete();
+		}
+
+		// read the arguments in and out of order across the checkpoints
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			buf.append("file").append(i).append('\n');
+		}
+		java.io.File large = createArgFile(buf.toString());
+		try {
+			java.util.List<String> args = op.compile().parse(new String[] { "@" + large.getPath() })
+				.getPositionalList();
+			assertEquals(1, args.size());
+			op.setExpandArgFiles(true);
+			args = op.compile().parse(new String[] { "@" + large.getPath() }).getPositionalList();
+			assertEquals(3000, args.size());
+			assertEquals("file2500", args.get(2500));
+			assertEquals("file1024", args.get(1024));
+			assertEquals("file1023", args.get(1023));
+			int i = 0;
+			for (String arg : args) {
+				assertEquals("file" + i++, arg);
+			}
+		} finally {
+			large.delete();
+		}
+	}
+
+	/**
+	 * test the positional arguments read from a stream
+	 */
+	public void testParseStreaming() throws Exception {
+
+		CommandLine op = new CommandLine("usage ...");
+		final ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		final java.util.List<java.util.List<String>> batches = new java.util.ArrayList<java.util.List<String>>();
+		ArgumentHandler handler = new ArgumentHandler() {
+			public void handle(java.util.List<String> arguments) {
+				assertTrue(verbose.isSet());
+				batches.add(new java.util.ArrayList<String>(arguments));
+			}
+		};
+
+		java.io.InputStream in = new java.io.ByteArrayInputStream("b\0c d\0\0e\0f".getBytes("UTF-8"));
+		assertEquals(5, op.parseStreaming(new String[] { "-v", "a" }, in, true, 2, handler));
+		assertEquals(3, batches.size());
+		assertEquals(java.util.Arrays.asList("a", "b"), batches.get(0));
+		assertEquals(java.util.Arrays.asList("c d", "e"), batches.get(1));
+		assertEquals(java.util.Arrays.asList("f"), batches.get(2));
+
+		// one argument per line, larger than the read buffer
+		batches.clear();
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			buf.append("file").append(i).append("\r\n");
+		}
+		in = new java.io.ByteArrayInputStream(buf.toString().getBytes("UTF-8"));
+		assertEquals(10000, op.parseStreaming(new String[] { "-v" }, in, false, 1000, handler));
+		assertEquals(10, batches.size());
+		assertEquals("file9999", batches.get(9).get(999));
+
+		try {
+			op.parseStreaming(new String[] { "-x" }, in, false, 1000, handler);
+			fail("invalid option accepted");
+		} catch (CommandLineException _) {
+			// expected
+		}
+	}
+
+	/**
+	 * test the options with values packed outside of the heap
+	 */
+	public void testPackedValues() {
+
+		CommandLine op = new CommandLine("usage ...");
+		PackedLongValuesOption ids = op.addPackedLongValuesOption("i", "ids", "ID", "select the ids", null);
+		PackedValuesOption names = op.addPackedValuesOption("n", "names", "NAME", "select the names",
+			new String[] { "all", "a,b" });
+		assertNull(ids.getValues());
+		assertEquals(java.util.Arrays.asList("all", "a,b"), names.getValueList());
+
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			buf.append(i > 0 ? "," : "").append(i * 3L);
+		}
+		op.parse(new String[] { "--ids=" + buf, "-n", "caf\u00e9,\"x,y\",a\\,b,\ud83d\ude00,,", "file" });
+		java.nio.LongBuffer values = ids.getValues();
+		assertEquals(100000, values.remaining());
+		assertEquals(29997, values.get(9999));
+		long sum = 0;
+		while (values.hasRemaining()) {
+			sum += values.get();
+		}
+		assertEquals(3L * 99999 * 100000 / 2, sum);
+		assertEquals(0, ids.getValues().position());
+		assertEquals(2, op.compile().parse(new String[] { "--ids=1,2," }).getValues(ids).remaining());
+
+		java.util.List<String> list = names.getValueList();
+		assertEquals(java.util.Arrays.asList("caf\u00e9", "x,y", "a,b", "\ud83d\ude00"), list);
+		java.nio.ByteBuffer encoded = names.getEncodedValues();
+		assertEquals(5, encoded.getInt());
+		encoded.position(encoded.position() + 5);
+		assertEquals(3, encoded.getInt());
+		assertEquals(4 * 4 + 5 + 3 + 3 + 4, encoded.limit());
+
+		ParseResult res = op.compile().parse(new String[] { "-i", "1,-2" });
+		assertEquals(-2, res.getValues(ids).get(1));
+		assertEquals(2, res.getValueList(names).size());
+		assertTrue(res.isSet(names));
+		assertEquals(ParseErrorCode.INVALID_VALUE, op.compile().tryParse(new String[] { "-i", "1,x" })
+			.getErrorCode());
+		assertEquals(0, op.compile().parse(new String[] { "-n", ",," }).getValueList(names).size());
+	}
+
+	/**
+	 * test the listener observing the parses
+	 */
+	public void testParseListener() {
+
+		CommandLine op = new CommandLine("usage ...");
+		op.addToggleOption("v", "verbose", "set the output to verbose");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count");
+		RecordingListener listener = new RecordingListener();
+		op.setParseListener(listener);
+
+		op.parse(new String[] { "-v", "--count=3", "file" });
+		assertEquals("parse 3,convert count true,parsed true", listener.events.toString());
+		listener.events.setLength(0);
+
+		ParseResult res = op.compile().tryParse(new String[] { "-n", "x" });
+		assertEquals("parse 2,convert count false,parsed false", listener.events.toString());
+		assertNotNull(res.getError());
+		assertNotNull(res.getError());
+		assertEquals("parse 2,convert count false,parsed false,error INVALID_VALUE,created",
+			listener.events.toString());
+
+		// the compiled command lines obtained before keep their listener
+		CompiledCommandLine compiled = op.compile();
+		op.setParseListener(null);
+		listener.events.setLength(0);
+		op.parse(new String[] { "-n", "4" });
+		assertEquals(4, count.getValue());
+		assertEquals("", listener.events.toString());
+		compiled.parse(new String[] { "-v" });
+		assertEquals("parse 1,parsed true", listener.events.toString());
+	}
+
+	/**
+	 * test the options reported by a parse result for monitoring
+	 */
+	public void testResultOptions() {
+
+		CommandLine op = new CommandLine("usage ...");
+		ToggleOption verbose = op.addToggleOption("v", "verbose", "set the output to verbose");
+		IntOption count = op.addIntOption("n", "count", "N", "set the count");
+		CompiledCommandLine compiled = op.compile();
+		assertEquals(2, compiled.getOptionCount());
+		assertSame(count, compiled.getOption(1));
+
+		ParseResult res = compiled.tryParse(new String[] { "--count=2", "-v" });
+		assertEquals(2, res.getSetCount());
+		assertSame(count, res.getSetOption(0));
+		assertSame(verbose, res.getSetOption(1));
+		assertNull(res.getFailedOption());
+
+		assertSame(count, compiled.tryParse(new String[] { "-n", "x" }).getFailedOption());
+		assertSame(count, compiled.tryParse(new String[] { "-v", "-n" }).getFailedOption());
+		assertSame(verbose, compiled.tryParse(new String[] { "--verbose=1" }).getFailedOption());
+		assertSame(count, compiled.tryParse(new String[] { "-vn" }).getFailedOption());
+		assertNull(compiled.tryParse(new String[] { "-x" }).getFailedOption());
+		assertEquals("count", compiled.getOption(1).getLongName());
+		assertEquals(0, res.getSetOption(1).getIndex());
+
+		// only the generation of the command line sets the option values
+		try {
+			new org.rcm.cmdline.impl.ParseGeneration().assign((org.rcm.cmdline.impl.AbstractOption) verbose,
+				Boolean.TRUE);
+			fail("should have thrown IllegalArgumentException");
+		} catch (IllegalArgumentException _) {
+			// expected
+		}
+		assertFalse(verbose.isSet());
+	}
+
 	/**
 	 * test the help function
 	 */
@@ -615,4 +1647,162 @@ public class OptionParserTest extends TestCase {
 
 	}
 
+	/**
+	 * sub command of the registry test, given as an object
+	 */
+	static class DeployCommand implements CommandFactory {
+
+		ToggleOption force;
+
+		public CommandLine createCommandLine() {
+
+			CommandLine cl = new CommandLine("usage: ops deploy [options] <app>");
+			force = cl.addToggleOption("f", "force", "replace the running version");
+			return cl;
+		}
+	}
+
+	/**
+	 * sub command of the registry test, given by class name
+	 */
+	public static class RollbackCommand implements CommandFactory {
+
+		static int created;
+
+		IntOption steps;
+
+		public CommandLine createCommandLine() {
+
+			created++;
+			CommandLine cl = new CommandLine("usage: ops rollback [options]");
+			steps = cl.addIntOption("n", "steps", "N", "set the number of versions", 1);
+			return cl;
+		}
+	}
+
+	/**
+	 * create a temporary argument file.
+	 */
+	private static java.io.File createArgFile(String content) throws java.io.IOException {
+
+		java.io.File file = java.io.File.createTempFile("args", ".txt");
+		java.io.OutputStream out = new java.io.FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * listener recording the events of the parse listener test.
+	 */
+	private static class RecordingListener implements ParseListener {
+
+		StringBuffer events = new StringBuffer();
+
+		public Object parseStarted(CompiledCommandLine commandLine, int argumentCount) {
+			events.append("parse ").append(argumentCount);
+			return "parsed";
+		}
+
+		public void parseFinished(Object context, ParseResult result) {
+			events.append(',').append(context).append(' ').append(result.isValid());
+		}
+
+		public Object conversionStarted(Object option) {
+			events.append(",convert ");
+			return null;
+		}
+
+		public void conversionFinished(Object context, Object option, boolean valid) {
+			events.append(((org.rcm.cmdline.impl.AbstractOption) option).getLongName()).append(' ')
+				.append(valid);
+		}
+
+		public Object errorStarted(ParseResult result) {
+			events.append(",error ").append(result.getErrorCode());
+			return "created";
+		}
+
+		public void errorFinished(Object context, ParseResult result) {
+			events.append(',').append(context);
+		}
+	}
+
+	/**
+	 * test the help in columns, the streaming help and the help cache
+	 */
+	public void testHelpColumns() throws Exception {
+
+		String NL = System.getProperty("line.separator", "\n");
+		CommandLine op = new CommandLine("usage: paint [options] file");
+		op.addToggleOption("v", "verbose", "set the output to verbose");
+		op.addIntOption("n", "count", "N",
+			"set the number of copies printed for each file given on the command line", 1);
+		op.addValuesOption(null, "colors", "COLOR", "set the colors", new String[] { "blue", "red" });
+		op.addToggleOption(null, "a-very-long-option-name", "an option with a long name");
+
+		assertEquals("usage: paint [options] file" + NL
+			+ "    -v --verbose              set the output to verbose" + NL
+			+ "    -n <N>, --count=<N>       set the number of copies" + NL
+			+ "                              printed for each file given on" + NL
+			+ "                              the command line (default to" + NL
+			+ "                              1)" + NL
+			+ "    --colors=<COLOR,...>      set the colors (default to" + NL
+			+ "                              blue,red)" + NL
+			+ "    --a-very-long-option-name" + NL
+			+ "                              an option with a long name" + NL, op.getHelp(60));
+		assertEquals("usage: paint [options] file" + NL
+			+ "    -v --verbose               set the output to verbose" + NL
+			+ "    -n <N>, --count=<N>        set the number of copies printed for each file given on the command line (default to 1)"
+			+ NL + "    --colors=<COLOR,...>       set the colors (default to blue,red)" + NL
+			+ "    --a-very-long-option-name  an option with a long name" + NL, op.getHelp(200));
+
+		// the streaming help matches the help text, which is kept
+		String help = op.getHelp();
+		assertSame(help, op.getHelp());
+		java.io.StringWriter out = new java.io.StringWriter();
+		op.writeHelp(out);
+		assertEquals(help, out.toString());
+		out = new java.io.StringWriter();
+		op.writeHelp(out, 60);
+		assertEquals(op.getHelp(60), out.toString());
+
+		// adding an option discards the kept help
+		op.addToggleOption("q", null, "set the output to quiet");
+		assertTrue(op.getHelp().endsWith("    -q : set the output to quiet" + NL));
+		assertTrue(op.getHelp(60).endsWith("    -q                        set the output to quiet" + NL));
+	}
+
+	/**
+	 * options of the generated parser test
+	 */
+	@org.rcm.cmdline.annotation.Command(usage = "usage: example [options] <files>")
+	static class ExampleOptions {
+
+		@org.rcm.cmdline.annotation.Option(shortName = "v", longName = "verbose", help = "set the output to verbose")
+		boolean verbose;
+
+		@org.rcm.cmdline.annotation.Option(shortName = "q", help = "only report errors")
+		boolean quiet;
+
+		@org.rcm.cmdline.annotation.Option(shortName = "o", longName = "output", varName = "FILE", help = "write the report to FILE", defaultValue = "out.txt")
+		String output;
+
+		@org.rcm.cmdline.annotation.Option(longName = "colors", varName = "COLOR", help = "set the colors", defaultValue = {
+				"blue", "red" })
+		String[] colors;
+
+		@org.rcm.cmdline.annotation.Option(shortName = "n", longName = "count", varName = "N", help = "set the count", defaultValue = "10")
+		int count;
+
+		@org.rcm.cmdline.annotation.Option(shortName = "r", longName = "ratio", varName = "R", help = "set the ratio")
+		double ratio;
+
+		@org.rcm.cmdline.annotation.Option(shortName = "i", longName = "ids", varName = "ID", help = "set the ids")
+		long[] ids;
+	}
+
 }